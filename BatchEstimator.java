@@ -0,0 +1,292 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Columnar results: row i of every array belongs to the same input size.
+class EstimationBatch {
+    final String modelName;
+    final double[] size;
+    final double[] effort;
+    final double[] cost;
+    final double[] duration;
+
+    EstimationBatch(String modelName, double[] size) {
+        this.modelName = modelName;
+        this.size = size;
+        this.effort = new double[size.length];
+        this.cost = new double[size.length];
+        this.duration = new double[size.length];
+    }
+
+    int size() {
+        return size.length;
+    }
+
+    Estimation get(int i) {
+        return new Estimation(modelName, size[i], effort[i], cost[i], duration[i]);
+    }
+}
+
+// Estimates many sizes at once over primitive columns, for portfolio and what-if runs. The LOC and
+// FP kernels are plain counted loops over arrays that HotSpot's superword pass can vectorize; the
+// COCOMO kernel replaces Math.pow with the polynomial log2/exp2 below. Large batches are split
+// across the fork-join pool.
+//
+//   java BatchEstimator [sizes] [rounds]   compares the batch path against Estimation.cocomoBased etc.
+public class BatchEstimator {
+
+    private static final int ROWS_PER_TASK = 1 << 14;
+    private static final double LN2 = 0.6931471805599453;
+    private static final double INV_LN2 = 1.4426950408889634;
+    // log2 reduction picks the exponent so the mantissa lands in [0.705, 1.41); see log2
+    private static final long LOG_OFFSET = 0x3FE6955500000000L;
+    private static final double ROUND_SHIFT = 0x1.8p52;
+
+    public static EstimationBatch locBased(double[] loc) {
+        return locBased(loc, new LocBasedModel().defaultCalibration());
+    }
+
+    public static EstimationBatch functionPointsBased(double[] fp) {
+        return functionPointsBased(fp, new FunctionPointModel().defaultCalibration());
+    }
+
+    public static EstimationBatch cocomoBased(double[] loc) {
+        return cocomoBased(loc, new BasicCocomoModel().defaultCalibration());
+    }
+
+    // With the registry's current calibrations, so batch runs agree with EstimationModels.estimate.
+    public static EstimationBatch locBased(EstimationModels models, double[] loc) {
+        return locBased(loc, models.calibration("LOC-Based"));
+    }
+
+    public static EstimationBatch functionPointsBased(EstimationModels models, double[] fp) {
+        return functionPointsBased(fp, models.calibration("Function Points-Based"));
+    }
+
+    public static EstimationBatch cocomoBased(EstimationModels models, double[] loc) {
+        return cocomoBased(loc, models.calibration("COCOMO-Based"));
+    }
+
+    // The LOC and FP models never calibrate their exponent, so only the coefficient is taken.
+    public static EstimationBatch locBased(double[] loc, Calibration calibration) {
+        EstimationBatch out = new EstimationBatch("LOC-Based", loc);
+        run(out, (batch, from, to) -> locRange(batch, from, to, calibration.coefficient));
+        return out;
+    }
+
+    public static EstimationBatch functionPointsBased(double[] fp, Calibration calibration) {
+        EstimationBatch out = new EstimationBatch("Function Points-Based", fp);
+        run(out, (batch, from, to) -> fpRange(batch, from, to, calibration.coefficient));
+        return out;
+    }
+
+    public static EstimationBatch cocomoBased(double[] loc, Calibration calibration) {
+        EstimationBatch out = new EstimationBatch("COCOMO-Based", loc);
+        run(out, (batch, from, to) -> cocomoRange(batch, from, to, calibration.coefficient, calibration.exponent));
+        return out;
+    }
+
+    static void locRange(EstimationBatch out, int from, int to, double effortPerKloc) {
+        double[] size = out.size;
+        double[] effort = out.effort;
+        double[] cost = out.cost;
+        double[] duration = out.duration;
+        double perLoc = effortPerKloc / 1000;
+        double perTeam = 1 / Estimation.LOC_TEAM_SIZE;
+        for (int i = from; i < to; i++) {
+            double e = size[i] * perLoc;
+            effort[i] = e;
+            cost[i] = e * Estimation.LOC_COST_PER_PM;
+            duration[i] = e * perTeam;
+        }
+    }
+
+    static void fpRange(EstimationBatch out, int from, int to, double effortPerFp) {
+        double[] size = out.size;
+        double[] effort = out.effort;
+        double[] cost = out.cost;
+        double[] duration = out.duration;
+        double perTeam = 1 / Estimation.FP_TEAM_SIZE;
+        for (int i = from; i < to; i++) {
+            double e = size[i] * effortPerFp;
+            effort[i] = e;
+            cost[i] = e * Estimation.FP_COST_PER_PM;
+            duration[i] = e * perTeam;
+        }
+    }
+
+    // duration = C * effort^D = C * a^D * (KLOC)^(b * D), so one log2 of the size feeds both exp2 calls
+    // and the per-row work is one log and two exponentials instead of two full powers. Rows whose
+    // exponents leave exp2's normal range (-1022, 1023) take the Math.pow path, as in fastPow.
+    static void cocomoRange(EstimationBatch out, int from, int to, double a, double b) {
+        double[] size = out.size;
+        double[] effort = out.effort;
+        double[] cost = out.cost;
+        double[] duration = out.duration;
+        double bd = b * Estimation.COCOMO_D;
+        double durationScale = Estimation.COCOMO_C * Math.pow(a, Estimation.COCOMO_D);
+        for (int i = from; i < to; i++) {
+            double kloc = size[i] / 1000;
+            double l = kloc >= Double.MIN_NORMAL && kloc <= Double.MAX_VALUE ? log2(kloc) : Double.NaN;
+            double y = b * l;
+            double yd = bd * l;
+            double e;
+            double d;
+            if (y > -1022 && y < 1023 && yd > -1022 && yd < 1023) {
+                e = a * exp2(y);
+                d = durationScale * exp2(yd);
+            } else {
+                e = a * Math.pow(kloc, b);
+                d = Estimation.COCOMO_C * Math.pow(e, Estimation.COCOMO_D);
+            }
+            effort[i] = e;
+            cost[i] = e * Estimation.COCOMO_COST_PER_PM;
+            duration[i] = d;
+        }
+    }
+
+    @FunctionalInterface
+    interface RangeKernel {
+        void apply(EstimationBatch out, int from, int to);
+    }
+
+    private static void run(EstimationBatch out, RangeKernel kernel) {
+        if (out.size() <= ROWS_PER_TASK) {
+            kernel.apply(out, 0, out.size());
+        } else {
+            ForkJoinPool.commonPool().invoke(new Range(out, kernel, 0, out.size()));
+        }
+    }
+
+    private static final class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final EstimationBatch out;
+        private final RangeKernel kernel;
+        private final int from;
+        private final int to;
+
+        Range(EstimationBatch out, RangeKernel kernel, int from, int to) {
+            this.out = out;
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                kernel.apply(out, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Range(out, kernel, from, mid), new Range(out, kernel, mid, to));
+        }
+    }
+
+    // x^b as exp2(b * log2(x)), accurate to about 1e-12 relative. Zero, negative, subnormal and
+    // non-finite inputs, and results outside the normal range, take the Math.pow path.
+    static double fastPow(double x, double b) {
+        if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE)) {
+            return Math.pow(x, b);
+        }
+        double y = b * log2(x);
+        if (!(y > -1022 && y < 1023)) {
+            return Math.pow(x, b);
+        }
+        return exp2(y);
+    }
+
+    // Splits x into 2^k * z with z in [0.705, 1.41) by shifting the exponent bits, then takes ln z
+    // from the atanh series 2 * (s + s^3/3 + s^5/5 + ...), s = (z - 1) / (z + 1). |s| < 0.18, so
+    // seven terms are enough for double precision.
+    static double log2(double x) {
+        long bits = Double.doubleToRawLongBits(x);
+        long shifted = bits - LOG_OFFSET;
+        long k = shifted >> 52;
+        double z = Double.longBitsToDouble(bits - (shifted & 0xFFF0000000000000L));
+        double s = (z - 1) / (z + 1);
+        double s2 = s * s;
+        double series = 1.0 / 13;
+        series = series * s2 + 1.0 / 11;
+        series = series * s2 + 1.0 / 9;
+        series = series * s2 + 1.0 / 7;
+        series = series * s2 + 1.0 / 5;
+        series = series * s2 + 1.0 / 3;
+        series = series * s2 + 1;
+        return k + 2 * s * series * INV_LN2;
+    }
+
+    // 2^y = 2^n * e^(f ln 2) with n = round(y), |f| <= 0.5. Rounding adds and subtracts 1.5 * 2^52,
+    // and e^t comes from a Taylor series centred on 0, |t| <= 0.347, through t^12 / 12!.
+    static double exp2(double y) {
+        double rounded = (y + ROUND_SHIFT) - ROUND_SHIFT;
+        long n = (long) rounded;
+        double t = (y - rounded) * LN2;
+        double p = 1.0 / 479001600;
+        p = p * t + 1.0 / 39916800;
+        p = p * t + 1.0 / 3628800;
+        p = p * t + 1.0 / 362880;
+        p = p * t + 1.0 / 40320;
+        p = p * t + 1.0 / 5040;
+        p = p * t + 1.0 / 720;
+        p = p * t + 1.0 / 120;
+        p = p * t + 1.0 / 24;
+        p = p * t + 1.0 / 6;
+        p = p * t + 0.5;
+        p = p * t + 1;
+        p = p * t + 1;
+        return p * Double.longBitsToDouble((n + 1023) << 52);
+    }
+
+    // Rough comparison of the per-object path and the batch path; the first rounds are warm-up.
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        SplittableRandom random = new SplittableRandom(42);
+        double[] sizes = new double[n];
+        for (int i = 0; i < n; i++) {
+            sizes[i] = 1000 + random.nextDouble() * 2_000_000;
+        }
+
+        double maxError = 0;
+        EstimationBatch check = cocomoBased(sizes);
+        for (int i = 0; i < n; i++) {
+            Estimation single = Estimation.cocomoBased(sizes[i]);
+            maxError = Math.max(maxError, Math.abs(check.effort[i] - single.getEffort()) / single.getEffort());
+            maxError = Math.max(maxError, Math.abs(check.duration[i] - single.getDuration()) / single.getDuration());
+        }
+        System.out.println("COCOMO max relative error vs Math.pow: " + maxError);
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            double sink = 0;
+            for (double size : sizes) {
+                sink += Estimation.cocomoBased(size).getDuration();
+            }
+            long single = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            EstimationBatch batch = new EstimationBatch("COCOMO-Based", sizes);
+            cocomoRange(batch, 0, n, Estimation.COCOMO_A, Estimation.COCOMO_B);
+            long serial = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            batch = cocomoBased(sizes);
+            long parallel = System.nanoTime() - start;
+            sink += batch.duration[n - 1];
+
+            start = System.nanoTime();
+            EstimationBatch loc = locBased(sizes);
+            long linear = System.nanoTime() - start;
+            sink += loc.duration[n - 1];
+
+            System.out.println("Round " + round +
+                               ": per-object " + String.format("%.1f", single / (double) n) + " ns/estimate" +
+                               ", batch " + String.format("%.1f", serial / (double) n) +
+                               ", batch parallel " + String.format("%.1f", parallel / (double) n) +
+                               ", LOC batch parallel " + String.format("%.2f", linear / (double) n) +
+                               (sink == 42 ? "!" : ""));
+        }
+    }
+}
@@ -0,0 +1,270 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.*;
+
+// A CSV file with a header row, read one record at a time so an import holds only the chunk it is
+// writing. Fields may be quoted ("..."), with "" for a literal quote, and a quoted field may span lines.
+class CsvTable implements Closeable {
+    final List<String> header;
+    private final BufferedReader in;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private IOException failure;
+
+    private CsvTable(List<String> header, BufferedReader in) {
+        this.header = header;
+        this.in = in;
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    boolean has(String column) {
+        return columns.containsKey(column.toLowerCase(Locale.ROOT));
+    }
+
+    // The named field of a row, trimmed; null when it is empty, the file has no such column or the row is short.
+    String get(String[] row, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        if (index == null || index >= row.length) {
+            return null;
+        }
+        String value = row[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Reads the header row; the data rows are read by rows().
+    static CsvTable open(Path file) throws IOException {
+        BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            String[] header = readRecord(in);
+            if (header == null) {
+                throw new IOException(file + " is empty; the first line must name the columns");
+            }
+            if (header[0].startsWith("\uFEFF")) {
+                header[0] = header[0].substring(1); // byte order mark written by spreadsheet exports
+            }
+            return new CsvTable(Arrays.asList(header), in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // The data rows, without blank lines, read as they are iterated. A read error ends the rows
+    // early and is kept for failure(), since an Iterator cannot throw it.
+    Iterator<String[]> rows() {
+        return new Iterator<String[]>() {
+            private String[] next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && !done) {
+                    try {
+                        String[] record = readRecord(in);
+                        if (record == null) {
+                            done = true;
+                        } else if (record.length > 1 || !record[0].trim().isEmpty()) {
+                            next = record;
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                        done = true;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String[] row = next;
+                next = null;
+                return row;
+            }
+        };
+    }
+
+    IOException failure() {
+        return failure;
+    }
+
+    // One record, or null at the end of the file.
+    private static String[] readRecord(BufferedReader in) throws IOException {
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                } else {
+                    in.mark(1);
+                    if (in.read() == '"') {
+                        field.append('"');
+                    } else {
+                        in.reset();
+                        quoted = false;
+                    }
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        record.add(field.toString());
+        return record.toArray(new String[0]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
+
+// Nightly bulk import of tracker exports. Each target names a table and its columns; the CSV header
+// must contain every required column (in any order, case-insensitive). Rows go through BulkInserter,
+// so a malformed row fails only its own chunk and is listed in the report.
+//
+//   java BulkImport <tasks|risks|quality-defects|test-cases|test-defects> <file.csv> [--batch N]
+//
+// The apps' "Import CSV" buttons use the same targets and then refresh their in-memory state.
+public final class BulkImport {
+
+    enum Target {
+        TASKS("ProjectScheduling", "Tasks", "id", "name", "duration:int", "dependencies?", "assignedResource?"),
+        RISKS("RiskManagement", "Risks", "id", "description", "probability:double", "impact:double", "mitigationPlan?"),
+        QUALITY_DEFECTS("QualityManagement", "Defects", "id", "description", "severity:int", "priority:int", "status",
+                        "module?"),
+        TEST_CASES("TestingSystem", "TestCases", "testName", "testType", "inputData?", "expectedOutput?",
+                   "actualOutput?", "result?", "defects:int?", "target?"),
+        TEST_DEFECTS("TestingSystem", "Defects", "testName", "severity:int", "description", "resolutionStatus");
+
+        final String database;
+        final String table;
+        // "name[:int|:double][?]"; a trailing ? marks a column the file may leave out
+        final String[] columns;
+
+        Target(String database, String table, String... columns) {
+            this.database = database;
+            this.table = table;
+            this.columns = columns;
+        }
+
+        static Target of(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+
+        String commandName() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private BulkImport() {
+    }
+
+    // Rows are read from the file as the chunks are written. Chunks committed before a read error stay
+    // written; the error is thrown with the number of rows that made it.
+    public static BulkResult importFile(Target target, Path file, int batchSize) throws IOException {
+        try (CsvTable csv = CsvTable.open(file)) {
+            BulkResult result = importTable(target, csv, batchSize);
+            if (csv.failure() != null) {
+                throw new IOException("Reading " + file + " failed after " + result.rowsWritten + " rows were written",
+                                      csv.failure());
+            }
+            return result;
+        }
+    }
+
+    public static BulkResult importTable(Target target, CsvTable csv, int batchSize) {
+        StringJoiner names = new StringJoiner(", ");
+        StringJoiner marks = new StringJoiner(", ");
+        for (String column : target.columns) {
+            String name = columnName(column);
+            if (!column.endsWith("?") && !csv.has(name)) {
+                throw new IllegalArgumentException("CSV for " + target.table + " has no '" + name + "' column");
+            }
+            names.add(name);
+            marks.add("?");
+        }
+        String sql = "INSERT INTO " + target.table + " (" + names + ") VALUES (" + marks + ")";
+        BulkInserter<String[]> inserter = new BulkInserter<>(target.database, sql,
+                (pstmt, row) -> bind(pstmt, target, csv, row), batchSize);
+        if (target == Target.TASKS) {
+            // the scheduler reads dependencies from the TaskDependencies edge table, not the text column
+            inserter.withDependents("INSERT IGNORE INTO TaskDependencies (taskId, dependsOn) VALUES (?, ?)", (pstmt, row) -> {
+                for (String dependency : TaskGraph.parseDependencies(csv.get(row, "dependencies"))) {
+                    pstmt.setString(1, csv.get(row, "id"));
+                    pstmt.setString(2, dependency);
+                    pstmt.addBatch();
+                }
+            });
+        }
+        return inserter.insertAll(csv.rows());
+    }
+
+    private static void bind(PreparedStatement pstmt, Target target, CsvTable csv, String[] row) throws SQLException {
+        for (int i = 0; i < target.columns.length; i++) {
+            String column = target.columns[i];
+            String value = csv.get(row, columnName(column));
+            if (value == null && !column.endsWith("?")) {
+                throw new SQLException("Missing value for " + columnName(column));
+            }
+            if (column.contains(":int")) {
+                pstmt.setInt(i + 1, value == null ? 0 : Integer.parseInt(value));
+            } else if (column.contains(":double")) {
+                pstmt.setDouble(i + 1, Double.parseDouble(value));
+            } else {
+                pstmt.setString(i + 1, value);
+            }
+        }
+    }
+
+    static String columnName(String column) {
+        int end = column.length();
+        for (int i = 0; i < column.length(); i++) {
+            if (column.charAt(i) == ':' || column.charAt(i) == '?') {
+                end = i;
+                break;
+            }
+        }
+        return column.substring(0, end);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 && !(args.length == 4 && args[2].equals("--batch"))) {
+            StringJoiner targets = new StringJoiner("|");
+            for (Target target : Target.values()) {
+                targets.add(target.commandName());
+            }
+            System.err.println("Usage: java BulkImport <" + targets + "> <file.csv> [--batch N]");
+            System.exit(2);
+        }
+        Target target = Target.of(args[0]);
+        int batchSize = args.length == 4 ? Integer.parseInt(args[3]) : BulkInserter.DEFAULT_BATCH_SIZE;
+        BulkResult result = importFile(target, Paths.get(args[1]), batchSize);
+        System.out.println(target.table + ": " + result);
+        result.errors.forEach(System.err::println);
+        System.exit(result.hasErrors() ? 1 : 0);
+    }
+}
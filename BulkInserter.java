@@ -0,0 +1,174 @@
+import java.sql.*;
+import java.util.*;
+
+@FunctionalInterface
+interface RowBinder<T> {
+    void bind(PreparedStatement pstmt, T row) throws SQLException;
+}
+
+class ChunkError {
+    final int chunkIndex;
+    final int firstRow;
+    final int rowCount;
+    final SQLException cause;
+
+    ChunkError(int chunkIndex, int firstRow, int rowCount, SQLException cause) {
+        this.chunkIndex = chunkIndex;
+        this.firstRow = firstRow;
+        this.rowCount = rowCount;
+        this.cause = cause;
+    }
+
+    @Override
+    public String toString() {
+        return "Chunk " + chunkIndex + " (rows " + firstRow + "-" + (firstRow + rowCount - 1) + "): " +
+               cause.getMessage();
+    }
+}
+
+class BulkResult {
+    final int rowsWritten;
+    final int chunksCommitted;
+    final List<ChunkError> errors;
+    final long elapsedNanos;
+
+    BulkResult(int rowsWritten, int chunksCommitted, List<ChunkError> errors, long elapsedNanos) {
+        this.rowsWritten = rowsWritten;
+        this.chunksCommitted = chunksCommitted;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsWritten * 1e9 / elapsedNanos;
+    }
+
+    // The summary line followed by one line per failed chunk.
+    public List<String> report() {
+        List<String> lines = new ArrayList<>(errors.size() + 1);
+        lines.add(toString());
+        for (ChunkError error : errors) {
+            lines.add(error.toString());
+        }
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return "Rows Written: " + rowsWritten +
+               ", Chunks Committed: " + chunksCommitted +
+               ", Failed Chunks: " + errors.size() +
+               ", Throughput: " + String.format("%.0f", rowsPerSecond()) + " rows/s";
+    }
+}
+
+// Writes rows with addBatch/executeBatch, committing one transaction per chunk of batchSize rows.
+// A failing chunk is rolled back and reported in the result; the remaining chunks still go through,
+// unless the rollback itself fails, which ends the run.
+// That includes a binder throwing a RuntimeException for a malformed row, reported as an SQLException.
+public class BulkInserter<T> {
+
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("db.bulk.batchSize", 1000);
+
+    private final String database;
+    private final String sql;
+    private final RowBinder<T> binder;
+    private final int batchSize;
+    private String dependentSql;
+    private RowBinder<T> dependentBinder;
+
+    public BulkInserter(String database, String sql, RowBinder<T> binder) {
+        this(database, sql, binder, DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkInserter(String database, String sql, RowBinder<T> binder, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.database = database;
+        this.sql = sql;
+        this.binder = binder;
+        this.batchSize = batchSize;
+    }
+
+    // Rows of a second table that belong to each row, such as a task's dependency edges. They are
+    // written in the same chunk transaction, so a chunk lands or rolls back as a whole; the binder
+    // calls addBatch itself, once per dependent row.
+    public BulkInserter<T> withDependents(String sql, RowBinder<T> binder) {
+        this.dependentSql = sql;
+        this.dependentBinder = binder;
+        return this;
+    }
+
+    public BulkResult insertAll(Iterable<T> rows) {
+        return insertAll(rows.iterator());
+    }
+
+    public BulkResult insertAll(Iterator<T> rows) {
+        long start = System.nanoTime();
+        List<ChunkError> errors = new ArrayList<>();
+        int rowsWritten = 0;
+        int chunksCommitted = 0;
+        int chunkIndex = 0;
+        int rowIndex = 0;
+
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             PreparedStatement dependents = dependentSql == null ? null : conn.prepareStatement(dependentSql)) {
+            conn.setAutoCommit(false);
+            while (rows.hasNext()) {
+                int firstRow = rowIndex;
+                int chunkRows = 0;
+                try {
+                    while (chunkRows < batchSize && rows.hasNext()) {
+                        T row = rows.next();
+                        chunkRows++;
+                        rowIndex++;
+                        binder.bind(pstmt, row);
+                        pstmt.addBatch();
+                        if (dependents != null) {
+                            dependentBinder.bind(dependents, row);
+                        }
+                    }
+                    pstmt.executeBatch();
+                    if (dependents != null) {
+                        dependents.executeBatch();
+                    }
+                    conn.commit();
+                    rowsWritten += chunkRows;
+                    chunksCommitted++;
+                } catch (SQLException | RuntimeException e) {
+                    SQLException cause = e instanceof SQLException ? (SQLException) e
+                            : new SQLException("Row " + (rowIndex - 1) + " could not be bound: " + e, e);
+                    // skip whatever is left of the broken chunk so the next one starts on a boundary
+                    while (chunkRows < batchSize && rows.hasNext()) {
+                        rows.next();
+                        chunkRows++;
+                        rowIndex++;
+                    }
+                    pstmt.clearBatch();
+                    if (dependents != null) {
+                        dependents.clearBatch();
+                    }
+                    try {
+                        conn.rollback();
+                    } catch (SQLException rollbackFailure) {
+                        // the chunk may be half written; stop before a later commit makes it permanent
+                        cause.addSuppressed(rollbackFailure);
+                        errors.add(new ChunkError(chunkIndex, firstRow, chunkRows, cause));
+                        break;
+                    }
+                    errors.add(new ChunkError(chunkIndex, firstRow, chunkRows, cause));
+                }
+                chunkIndex++;
+            }
+        } catch (SQLException e) {
+            errors.add(new ChunkError(chunkIndex, rowIndex, 0, e));
+        }
+        return new BulkResult(rowsWritten, chunksCommitted, errors, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,300 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+class PoolMetrics {
+    final int maxSize;
+    final int activeCount;
+    final int idleCount;
+    final long borrowCount;
+    final long createdCount;
+    final long evictedCount;
+    final long leakCount;
+    final double averageWaitMillis;
+    final double maxWaitMillis;
+    final double averageBorrowMillis;
+
+    PoolMetrics(int maxSize, int activeCount, int idleCount, long borrowCount, long createdCount, long evictedCount,
+                long leakCount, double averageWaitMillis, double maxWaitMillis, double averageBorrowMillis) {
+        this.maxSize = maxSize;
+        this.activeCount = activeCount;
+        this.idleCount = idleCount;
+        this.borrowCount = borrowCount;
+        this.createdCount = createdCount;
+        this.evictedCount = evictedCount;
+        this.leakCount = leakCount;
+        this.averageWaitMillis = averageWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.averageBorrowMillis = averageBorrowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Active: " + activeCount + "/" + maxSize +
+               ", Idle: " + idleCount +
+               ", Borrows: " + borrowCount +
+               ", Created: " + createdCount +
+               ", Evicted: " + evictedCount +
+               ", Leaks: " + leakCount +
+               ", Avg Wait: " + String.format("%.3f", averageWaitMillis) + " ms" +
+               ", Max Wait: " + String.format("%.3f", maxWaitMillis) + " ms" +
+               ", Avg Borrow: " + String.format("%.3f", averageBorrowMillis) + " ms";
+    }
+}
+
+// Shared JDBC connection pool used by every app instead of DriverManager.getConnection per call.
+// Settings come from system properties (db.url, db.user, db.password, db.pool.*).
+public class ConnectionPool {
+
+    // Rows per round trip for statements that stream large results. Connector/J only honours
+    // setFetchSize with useCursorFetch=true, which the default URL options turn on.
+    public static final int FETCH_SIZE = Integer.getInteger("db.fetchSize", 200);
+
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService HOUSEKEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "connection-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final Deque<PooledEntry> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalBorrowNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private ScheduledFuture<?> housekeeping;
+
+    private static class PooledEntry {
+        final Connection physical;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    private ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMillis,
+                   long idleTimeoutMillis, long leakThresholdMillis, int validationTimeoutSeconds) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public static ConnectionPool forDatabase(String database) {
+        return POOLS.computeIfAbsent(database, ConnectionPool::create);
+    }
+
+    public static Connection getConnection(String database) throws SQLException {
+        return forDatabase(database).getConnection();
+    }
+
+    private static ConnectionPool create(String database) {
+        // rewriteBatchedStatements lets Connector/J turn executeBatch() into multi-row INSERTs;
+        // useCursorFetch makes it read results FETCH_SIZE rows at a time instead of all at once
+        String url = System.getProperty("db.url", "jdbc:mysql://localhost:3306/") + database +
+                     System.getProperty("db.urlOptions", "?rewriteBatchedStatements=true&useCursorFetch=true");
+        ConnectionPool pool = new ConnectionPool(url,
+                System.getProperty("db.user", "root"),
+                System.getProperty("db.password", "password"),
+                Integer.getInteger("db.pool.maxSize", 10),
+                Long.getLong("db.pool.borrowTimeoutMillis", 30_000L),
+                Long.getLong("db.pool.idleTimeoutMillis", 600_000L),
+                Long.getLong("db.pool.leakThresholdMillis", 60_000L),
+                Integer.getInteger("db.pool.validationTimeoutSeconds", 2));
+        pool.startHousekeeping();
+        return pool;
+    }
+
+    // Scheduled only once the pool is fully constructed, so the housekeeper never sees it half built.
+    private synchronized void startHousekeeping() {
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeping = HOUSEKEEPER.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        long startNanos = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis +
+                        " ms waiting for a connection to " + url + " (" + metrics() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection to " + url, e);
+        }
+        long waitNanos = System.nanoTime() - startNanos;
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+        try {
+            PooledEntry entry = takeValidIdle();
+            if (entry == null) {
+                entry = new PooledEntry(DriverManager.getConnection(url, user, password));
+                createdCount.increment();
+            }
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.borrowSite = new Throwable("Connection borrowed here");
+            entry.leakReported = false;
+            borrowed.add(entry);
+            borrowCount.increment();
+            totalBorrowNanos.add(System.nanoTime() - startNanos);
+            return lease(entry);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledEntry takeValidIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            try {
+                if (entry.physical.isValid(validationTimeoutSeconds)) {
+                    return entry;
+                }
+            } catch (SQLException e) {
+                // fall through and discard the broken connection
+            }
+            discard(entry);
+        }
+        return null;
+    }
+
+    private Connection lease(PooledEntry entry) {
+        InvocationHandler handler = new InvocationHandler() {
+            private final AtomicBoolean closed = new AtomicBoolean();
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (closed.compareAndSet(false, true)) {
+                            release(entry);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed.get() || entry.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled" + entry.physical;
+                    default:
+                        if (closed.get()) {
+                            throw new SQLException("Connection has already been returned to the pool");
+                        }
+                        try {
+                            return method.invoke(entry.physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private void release(PooledEntry entry) {
+        borrowed.remove(entry);
+        try {
+            if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            entry.physical.clearWarnings();
+            entry.lastReturnedAt = System.currentTimeMillis();
+            entry.borrowSite = null;
+            idle.offerFirst(entry);
+        } catch (SQLException e) {
+            discard(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        evictedCount.increment();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledEntry> it = idle.iterator();
+        while (it.hasNext()) {
+            PooledEntry entry = it.next();
+            if (now - entry.lastReturnedAt > idleTimeoutMillis && idle.remove(entry)) {
+                discard(entry);
+            }
+        }
+        for (PooledEntry entry : borrowed) {
+            Throwable site = entry.borrowSite;
+            if (!entry.leakReported && site != null && now - entry.borrowedAt > leakThresholdMillis) {
+                entry.leakReported = true;
+                leakCount.increment();
+                System.err.println("Possible connection leak: " + url + " held for " +
+                        (now - entry.borrowedAt) + " ms");
+                site.printStackTrace();
+            }
+        }
+    }
+
+    public PoolMetrics metrics() {
+        long borrows = borrowCount.sum();
+        return new PoolMetrics(maxSize, borrowed.size(), idle.size(), borrows, createdCount.sum(),
+                evictedCount.sum(), leakCount.sum(),
+                borrows == 0 ? 0 : totalWaitNanos.sum() / 1e6 / borrows,
+                maxWaitNanos.get() / 1e6,
+                borrows == 0 ? 0 : totalBorrowNanos.sum() / 1e6 / borrows);
+    }
+
+    public void close() {
+        synchronized (this) {
+            if (housekeeping != null) {
+                housekeeping.cancel(false);
+                housekeeping = null;
+            }
+        }
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+import java.util.*;
+
+// Dependency graph over int task indexes. Predecessors and successors are stored in CSR form
+// (offsets + flat index arrays) so a pass over the graph never touches a map or a boxed value.
+class TaskGraph {
+    final String[] ids;
+    final int[] duration;
+    final int[] predOffsets;
+    final int[] preds;
+    final int[] succOffsets;
+    final int[] succs;
+    private Map<String, Integer> indexById;
+
+    TaskGraph(String[] ids, int[] duration, int[] predOffsets, int[] preds) {
+        this(ids, duration, predOffsets, preds, null);
+    }
+
+    private TaskGraph(String[] ids, int[] duration, int[] predOffsets, int[] preds, Map<String, Integer> indexById) {
+        this.ids = ids;
+        this.duration = duration;
+        this.predOffsets = predOffsets;
+        this.preds = preds;
+        this.indexById = indexById;
+
+        int n = ids.length;
+        succOffsets = new int[n + 1];
+        for (int edge = 0; edge < preds.length; edge++) {
+            succOffsets[preds[edge] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            succOffsets[i + 1] += succOffsets[i];
+        }
+        succs = new int[preds.length];
+        int[] cursor = Arrays.copyOf(succOffsets, n);
+        for (int v = 0; v < n; v++) {
+            for (int edge = predOffsets[v]; edge < predOffsets[v + 1]; edge++) {
+                succs[cursor[preds[edge]]++] = v;
+            }
+        }
+    }
+
+    static TaskGraph fromTasks(List<Task> tasks) {
+        int n = tasks.size();
+        String[] ids = new String[n];
+        int[] duration = new int[n];
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            Task task = tasks.get(i);
+            ids[i] = task.getId();
+            duration[i] = task.getDuration();
+            if (index.put(task.getId(), i) != null) {
+                throw new IllegalArgumentException("Duplicate task id: " + task.getId());
+            }
+        }
+
+        int[] predOffsets = new int[n + 1];
+        int[] preds = new int[16];
+        int edges = 0;
+        for (int i = 0; i < n; i++) {
+            List<String> dependencies = tasks.get(i).getDependencies();
+            if (dependencies != null) {
+                for (String dependency : dependencies) {
+                    Integer pred = index.get(dependency.trim());
+                    if (pred == null) {
+                        continue; // unknown ids were ignored by the old scheduler as well
+                    }
+                    if (edges == preds.length) {
+                        preds = Arrays.copyOf(preds, edges * 2);
+                    }
+                    preds[edges++] = pred;
+                }
+            }
+            predOffsets[i + 1] = edges;
+        }
+        return new TaskGraph(ids, duration, predOffsets, Arrays.copyOf(preds, edges), index);
+    }
+
+    // Splits a comma-separated id list, as typed into the form or stored in Tasks.dependencies,
+    // without regex or empty entries.
+    static List<String> parseDependencies(String text) {
+        List<String> dependencies = new ArrayList<>();
+        if (text == null) {
+            return dependencies;
+        }
+        int start = 0;
+        int length = text.length();
+        while (start <= length) {
+            int comma = text.indexOf(',', start);
+            int end = comma < 0 ? length : comma;
+            String id = text.substring(start, end).trim();
+            if (!id.isEmpty()) {
+                dependencies.add(id);
+            }
+            start = end + 1;
+        }
+        return dependencies;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    int indexOf(String id) {
+        if (indexById == null) {
+            Map<String, Integer> index = new HashMap<>(ids.length * 2);
+            for (int i = 0; i < ids.length; i++) {
+                index.put(ids[i], i);
+            }
+            indexById = index;
+        }
+        Integer index = indexById.get(id);
+        return index == null ? -1 : index;
+    }
+}
+
+class ScheduleResult {
+    final TaskGraph graph;
+    final int[] order;
+    final int[] earliestStart;
+    final int[] earliestFinish;
+    final int[] latestStart;
+    final int[] latestFinish;
+    final int projectDuration;
+
+    ScheduleResult(TaskGraph graph, int[] order, int[] earliestStart, int[] earliestFinish,
+                   int[] latestStart, int[] latestFinish, int projectDuration) {
+        this.graph = graph;
+        this.order = order;
+        this.earliestStart = earliestStart;
+        this.earliestFinish = earliestFinish;
+        this.latestStart = latestStart;
+        this.latestFinish = latestFinish;
+        this.projectDuration = projectDuration;
+    }
+
+    int slack(int task) {
+        return latestStart[task] - earliestStart[task];
+    }
+
+    boolean isCritical(int task) {
+        return latestStart[task] == earliestStart[task];
+    }
+
+    // Walks back from a critical task that finishes last through critical predecessors that end
+    // exactly when it starts; returns task indexes in execution order.
+    int[] criticalPath() {
+        int n = graph.size();
+        int current = -1;
+        for (int i = 0; i < n; i++) {
+            if (earliestFinish[i] == projectDuration && isCritical(i)) {
+                current = i;
+                break;
+            }
+        }
+        int[] path = new int[16];
+        int length = 0;
+        while (current >= 0) {
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = current;
+            int next = -1;
+            for (int edge = graph.predOffsets[current]; edge < graph.predOffsets[current + 1]; edge++) {
+                int pred = graph.preds[edge];
+                if (isCritical(pred) && earliestFinish[pred] == earliestStart[current]) {
+                    next = pred;
+                    break;
+                }
+            }
+            current = next;
+        }
+        int[] ordered = new int[length];
+        for (int i = 0; i < length; i++) {
+            ordered[i] = path[length - 1 - i];
+        }
+        return ordered;
+    }
+}
+
+// Critical path method over a TaskGraph: Kahn topological sort, then a forward pass for earliest
+// start/finish and a backward pass for latest start/finish. All days are offsets from project start.
+public class CriticalPathScheduler {
+
+    public static ScheduleResult schedule(TaskGraph graph) {
+        int n = graph.size();
+        int[] duration = graph.duration;
+        int[] order = topologicalOrder(graph);
+
+        int[] earliestStart = new int[n];
+        int[] earliestFinish = new int[n];
+        int projectDuration = 0;
+        for (int v : order) {
+            int start = 0;
+            for (int edge = graph.predOffsets[v]; edge < graph.predOffsets[v + 1]; edge++) {
+                int predFinish = earliestFinish[graph.preds[edge]];
+                if (predFinish > start) {
+                    start = predFinish;
+                }
+            }
+            earliestStart[v] = start;
+            earliestFinish[v] = start + duration[v];
+            if (earliestFinish[v] > projectDuration) {
+                projectDuration = earliestFinish[v];
+            }
+        }
+
+        int[] latestStart = new int[n];
+        int[] latestFinish = new int[n];
+        for (int k = n - 1; k >= 0; k--) {
+            int v = order[k];
+            int finish = projectDuration;
+            for (int edge = graph.succOffsets[v]; edge < graph.succOffsets[v + 1]; edge++) {
+                int succStart = latestStart[graph.succs[edge]];
+                if (succStart < finish) {
+                    finish = succStart;
+                }
+            }
+            latestFinish[v] = finish;
+            latestStart[v] = finish - duration[v];
+        }
+        return new ScheduleResult(graph, order, earliestStart, earliestFinish, latestStart, latestFinish, projectDuration);
+    }
+
+    static int[] topologicalOrder(TaskGraph graph) {
+        int n = graph.size();
+        int[] inDegree = new int[n];
+        int[] order = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            inDegree[v] = graph.predOffsets[v + 1] - graph.predOffsets[v];
+            if (inDegree[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = order[head];
+            for (int edge = graph.succOffsets[v]; edge < graph.succOffsets[v + 1]; edge++) {
+                int succ = graph.succs[edge];
+                if (--inDegree[succ] == 0) {
+                    order[tail++] = succ;
+                }
+            }
+        }
+        if (tail < n) {
+            throw new IllegalStateException(describeCycle(graph, inDegree, n - tail));
+        }
+        return order;
+    }
+
+    // Every task left with a positive in-degree has an unscheduled predecessor, so following those
+    // predecessors must eventually revisit a task; that loop is the cycle reported to the user.
+    private static String describeCycle(TaskGraph graph, int[] inDegree, int blocked) {
+        int n = graph.size();
+        int[] step = new int[n];
+        Arrays.fill(step, -1);
+        int[] walk = new int[n];
+        int length = 0;
+        int current = 0;
+        while (inDegree[current] == 0) {
+            current++;
+        }
+        while (step[current] < 0) {
+            step[current] = length;
+            walk[length++] = current;
+            int next = -1;
+            for (int edge = graph.predOffsets[current]; edge < graph.predOffsets[current + 1]; edge++) {
+                if (inDegree[graph.preds[edge]] > 0) {
+                    next = graph.preds[edge];
+                    break;
+                }
+            }
+            current = next;
+        }
+        StringBuilder cycle = new StringBuilder();
+        for (int i = length - 1; i >= step[current]; i--) {
+            cycle.append(graph.ids[walk[i]]).append(" -> ");
+        }
+        cycle.append(graph.ids[walk[length - 1]]);
+        return "Dependency cycle detected: " + cycle + " (" + blocked + " tasks cannot be scheduled)";
+    }
+}
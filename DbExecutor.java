@@ -0,0 +1,160 @@
+import javafx.application.Platform;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Log2-bucketed latency histogram: bucket i counts samples below 2^i microseconds.
+class LatencyHistogram {
+    private static final int BUCKETS = 48;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    // Upper bound, in milliseconds, of the bucket holding the given percentile (0-100).
+    double percentileMillis(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min((1L << i) / 1000.0, maxNanos.get() / 1e6);
+            }
+        }
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        long total = count.sum();
+        return "Count: " + total +
+               ", Mean: " + String.format("%.2f", total == 0 ? 0 : totalNanos.sum() / 1e6 / total) + " ms" +
+               ", P50: " + String.format("%.2f", percentileMillis(50)) + " ms" +
+               ", P90: " + String.format("%.2f", percentileMillis(90)) + " ms" +
+               ", P99: " + String.format("%.2f", percentileMillis(99)) + " ms" +
+               ", Max: " + String.format("%.2f", maxNanos.get() / 1e6) + " ms";
+    }
+}
+
+// Runs database work off the JavaFX Application Thread. Work runs on virtual threads when the JDK
+// provides them (falling back to a cached daemon pool), results are handed back through
+// Platform.runLater, and every operation name gets its own latency histogram.
+public class DbExecutor {
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<?>> LATEST = new ConcurrentHashMap<>();
+
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "db-executor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    public static <T> CompletableFuture<T> supply(String operation, Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        LatencyHistogram histogram = histogram(operation);
+        Future<?> task = EXECUTOR.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                result.complete(work.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    public static CompletableFuture<Void> run(String operation, Runnable work) {
+        return supply(operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Like supply, but a newer request under the same operation name cancels the one still running,
+    // so e.g. a second "View" click supersedes the first instead of racing it.
+    public static <T> CompletableFuture<T> supplyLatest(String operation, Callable<T> work) {
+        return supplyLatest(operation, operation, work);
+    }
+
+    // Supersedes by key rather than operation name, for work such as page fetches where requests for
+    // different keys must not cancel each other but share one latency histogram.
+    public static <T> CompletableFuture<T> supplyLatest(String operation, String key, Callable<T> work) {
+        CompletableFuture<T> future = supply(operation, work);
+        CompletableFuture<?> previous = LATEST.put(key, future);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        future.whenComplete((value, error) -> LATEST.remove(key, future));
+        return future;
+    }
+
+    public static <T> void deliver(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        deliver(future, onSuccess, Throwable::printStackTrace);
+    }
+
+    // Hands the outcome to the FX thread; cancelled (superseded) requests are silently dropped.
+    public static <T> void deliver(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((value, error) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            Platform.runLater(() -> {
+                if (cause == null) {
+                    onSuccess.accept(value);
+                } else {
+                    onError.accept(cause);
+                }
+            });
+        });
+    }
+
+    public static LatencyHistogram histogram(String operation) {
+        return HISTOGRAMS.computeIfAbsent(operation, name -> new LatencyHistogram());
+    }
+
+    public static Map<String, LatencyHistogram> histograms() {
+        return new TreeMap<>(HISTOGRAMS);
+    }
+}
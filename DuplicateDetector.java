@@ -0,0 +1,389 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32C;
+
+class DuplicatePair {
+    final int firstId;
+    final int secondId;
+    final double similarity; // estimated Jaccard similarity of the descriptions' shingle sets
+
+    DuplicatePair(int firstId, int secondId, double similarity) {
+        this.firstId = firstId;
+        this.secondId = secondId;
+        this.similarity = similarity;
+    }
+
+    @Override
+    public String toString() {
+        return "ID " + firstId + " ~ ID " + secondId + " (" + Math.round(similarity * 100) + "% similar)";
+    }
+}
+
+// Near-duplicate requirement descriptions by MinHash and locality-sensitive hashing. Descriptions
+// are cut into word-bigram shingles (the same tokens RequirementIndex uses) and summarised by
+// 128 min-hashes; the signature is split into 16 bands of 8 and two requirements become a
+// candidate pair when any band matches exactly, which for 16 x 8 puts the 50% detection point
+// near a Jaccard similarity of 0.7. Candidates are then kept if their signatures agree on at
+// least the threshold fraction of positions. Finding every pair costs one pass over the buckets
+// instead of comparing all n^2 pairs.
+//
+// Signatures are cached per requirement id in RequirementSignatures with a hash of the description
+// they were computed from, so on open only new or edited requirements are shingled again, in
+// parallel over the fork-join pool.
+public class DuplicateDetector {
+
+    private static final int HASHES = 128;
+    private static final int BANDS = 16;
+    private static final int ROWS = HASHES / BANDS;
+    private static final int SIGNATURE_VERSION = 1; // bump when the shingling or hashing changes
+    private static final int ROWS_PER_TASK = 256;
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_D0C5L);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    private static final class IdList {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final String database;
+    private final double threshold;
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    private final Map<Long, IdList> buckets = new HashMap<>();
+
+    public DuplicateDetector(String database, double threshold) {
+        this.database = database;
+        this.threshold = threshold;
+    }
+
+    public static double defaultThreshold() {
+        return Double.parseDouble(System.getProperty("requirements.duplicateThreshold", "0.7"));
+    }
+
+    // Indexes every requirement, reusing cached signatures whose description hash still matches.
+    public void open() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        List<int[]> cached = new ArrayList<>();
+        String sql = "SELECT r.id, r.description, s.descriptionHash, s.signature FROM Requirements r " +
+                     "LEFT JOIN RequirementSignatures s ON s.requirementId = r.id";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    String description = rs.getString("description");
+                    byte[] stored = rs.getBytes("signature");
+                    boolean current = stored != null && stored.length == HASHES * 4
+                                      && rs.getLong("descriptionHash") == descriptionHash(description);
+                    ids.add(rs.getInt("id"));
+                    descriptions.add(description);
+                    cached.add(current ? decode(stored) : null);
+                }
+            }
+        }
+
+        int[][] computed = new int[ids.size()][];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (cached.get(i) == null) {
+                missing.add(i);
+            } else {
+                computed[i] = cached.get(i);
+            }
+        }
+        ForkJoinPool.commonPool().invoke(new SignatureRange(descriptions, missing, computed, 0, missing.size()));
+
+        synchronized (this) {
+            for (int i = 0; i < ids.size(); i++) {
+                unindex(ids.get(i));
+                index(ids.get(i), computed[i]);
+            }
+        }
+
+        store(missing, ids, descriptions, computed);
+    }
+
+    // Indexes a new (or edited) requirement and returns the existing ones it likely duplicates,
+    // most similar first.
+    public List<DuplicatePair> add(int requirementId, String description) throws SQLException {
+        int[] signature = signature(description);
+        List<DuplicatePair> matches;
+        synchronized (this) {
+            unindex(requirementId);
+            matches = matches(requirementId, signature);
+            index(requirementId, signature);
+        }
+        store(Collections.singletonList(0), Collections.singletonList(requirementId),
+              Collections.singletonList(description), new int[][]{signature});
+        return matches;
+    }
+
+    public synchronized void remove(int requirementId) {
+        unindex(requirementId);
+    }
+
+    // Existing requirements likely to duplicate the given description, without indexing it.
+    public synchronized List<DuplicatePair> similarTo(String description) {
+        return matches(0, signature(description));
+    }
+
+    // Every likely duplicate pair, most similar first. Requirements with identical signatures are
+    // collapsed onto the lowest id first: the others are each paired with it once, and only it is
+    // compared with the rest of its buckets, so a bucket of identical boilerplate costs linear work.
+    public synchronized List<DuplicatePair> findAll() {
+        Map<IntBuffer, Integer> lowestBySignature = new HashMap<>(); // IntBuffer compares by content
+        for (Map.Entry<Integer, int[]> entry : signatures.entrySet()) {
+            lowestBySignature.merge(IntBuffer.wrap(entry.getValue()), entry.getKey(), Math::min);
+        }
+        List<DuplicatePair> pairs = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> entry : signatures.entrySet()) {
+            int lowest = lowestBySignature.get(IntBuffer.wrap(entry.getValue()));
+            if (lowest != entry.getKey()) {
+                pairs.add(new DuplicatePair(lowest, entry.getKey(), 1.0));
+            }
+        }
+        Set<Long> seen = new HashSet<>();
+        int[] distinct = new int[16];
+        for (IdList bucket : buckets.values()) {
+            int count = 0;
+            for (int i = 0; i < bucket.size; i++) {
+                int id = bucket.ids[i];
+                if (lowestBySignature.get(IntBuffer.wrap(signatures.get(id))) == id) {
+                    if (count == distinct.length) {
+                        distinct = Arrays.copyOf(distinct, count * 2);
+                    }
+                    distinct[count++] = id;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    int first = Math.min(distinct[i], distinct[j]);
+                    int second = Math.max(distinct[i], distinct[j]);
+                    if (!seen.add(((long) first << 32) | second)) {
+                        continue;
+                    }
+                    double similarity = similarity(signatures.get(first), signatures.get(second));
+                    if (similarity >= threshold) {
+                        pairs.add(new DuplicatePair(first, second, similarity));
+                    }
+                }
+            }
+        }
+        pairs.sort(BY_SIMILARITY);
+        return pairs;
+    }
+
+    public synchronized int size() {
+        return signatures.size();
+    }
+
+    private static final Comparator<DuplicatePair> BY_SIMILARITY = (x, y) -> x.similarity != y.similarity
+            ? Double.compare(y.similarity, x.similarity)
+            : x.firstId != y.firstId ? Integer.compare(x.firstId, y.firstId) : Integer.compare(x.secondId, y.secondId);
+
+    private List<DuplicatePair> matches(int requirementId, int[] signature) {
+        Set<Integer> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            IdList bucket = buckets.get(bandKey(signature, band));
+            if (bucket != null) {
+                for (int i = 0; i < bucket.size; i++) {
+                    candidates.add(bucket.ids[i]);
+                }
+            }
+        }
+        List<DuplicatePair> matches = new ArrayList<>();
+        for (int candidate : candidates) {
+            double similarity = similarity(signature, signatures.get(candidate));
+            if (candidate != requirementId && similarity >= threshold) {
+                matches.add(new DuplicatePair(candidate, requirementId, similarity));
+            }
+        }
+        matches.sort(BY_SIMILARITY);
+        return matches;
+    }
+
+    private void index(int requirementId, int[] signature) {
+        signatures.put(requirementId, signature);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bandKey(signature, band), k -> new IdList()).add(requirementId);
+        }
+    }
+
+    private void unindex(int requirementId) {
+        int[] signature = signatures.remove(requirementId);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(signature, band);
+            IdList bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(requirementId);
+                if (bucket.size == 0) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    // Upserts the signatures at the given positions in one batched pass.
+    private void store(List<Integer> positions, List<Integer> ids, List<String> descriptions, int[][] computed)
+            throws SQLException {
+        if (positions.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO RequirementSignatures (requirementId, descriptionHash, signature) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE descriptionHash = VALUES(descriptionHash), signature = VALUES(signature)";
+        BulkResult result = new BulkInserter<Integer>(database, sql, (pstmt, i) -> {
+            pstmt.setInt(1, ids.get(i));
+            pstmt.setLong(2, descriptionHash(descriptions.get(i)));
+            pstmt.setBytes(3, encode(computed[i]));
+        }).insertAll(positions);
+        if (result.hasErrors()) {
+            throw result.errors.get(0).cause;
+        }
+    }
+
+    private final class SignatureRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> descriptions;
+        private final List<Integer> positions;
+        private final int[][] out;
+        private final int from;
+        private final int to;
+
+        SignatureRange(List<String> descriptions, List<Integer> positions, int[][] out, int from, int to) {
+            this.descriptions = descriptions;
+            this.positions = positions;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    int position = positions.get(i);
+                    out[position] = signature(descriptions.get(position));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SignatureRange(descriptions, positions, out, from, mid),
+                      new SignatureRange(descriptions, positions, out, mid, to));
+        }
+    }
+
+    // Word bigrams, or the single word of a one-word description; an empty description has an
+    // all-max signature that only matches other empty ones.
+    static long[] shingles(String description) {
+        List<String> tokens = RequirementIndex.tokenize(description);
+        if (tokens.size() < 2) {
+            long[] single = new long[tokens.size()];
+            for (int i = 0; i < single.length; i++) {
+                single[i] = mix(tokens.get(i).hashCode());
+            }
+            return single;
+        }
+        long[] shingles = new long[tokens.size() - 1];
+        for (int i = 0; i < shingles.length; i++) {
+            shingles[i] = mix(((long) tokens.get(i).hashCode() << 32) ^ (tokens.get(i + 1).hashCode() & 0xFFFFFFFFL));
+        }
+        Arrays.sort(shingles);
+        int unique = 0;
+        for (int i = 0; i < shingles.length; i++) {
+            if (i == 0 || shingles[i] != shingles[i - 1]) {
+                shingles[unique++] = shingles[i];
+            }
+        }
+        return Arrays.copyOf(shingles, unique);
+    }
+
+    static int[] signature(String description) {
+        long[] shingles = shingles(description);
+        int[] signature = new int[HASHES];
+        for (int h = 0; h < HASHES; h++) {
+            long seed = SEEDS[h];
+            long min = Long.MAX_VALUE;
+            for (long shingle : shingles) {
+                min = Math.min(min, mix(shingle ^ seed));
+            }
+            signature[h] = (int) (min >>> 32);
+        }
+        return signature;
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / HASHES;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int r = band * ROWS; r < (band + 1) * ROWS; r++) {
+            key = mix(key * 31 + signature[r]);
+        }
+        return key;
+    }
+
+    // SplitMix64 finalizer.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static long descriptionHash(String description) {
+        CRC32C crc = new CRC32C();
+        if (description != null) {
+            crc.update(description.getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue() | ((long) SIGNATURE_VERSION << 32);
+    }
+
+    private static byte[] encode(int[] signature) {
+        ByteBuffer bytes = ByteBuffer.allocate(HASHES * 4);
+        bytes.asIntBuffer().put(signature);
+        return bytes.array();
+    }
+
+    private static int[] decode(byte[] bytes) {
+        int[] signature = new int[HASHES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+}
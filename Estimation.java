@@ -25,6 +25,60 @@ class Estimation {
         this.duration = duration;
     }
 
+    // Coefficients shared by the single-estimate methods below and BatchEstimator.
+    static final double LOC_EFFORT_PER_KLOC = 2.4;
+    static final double LOC_COST_PER_PM = 5000;
+    static final double LOC_TEAM_SIZE = 4;
+    static final double FP_EFFORT_PER_FP = 1.5;
+    static final double FP_COST_PER_PM = 5000;
+    static final double FP_TEAM_SIZE = 3;
+    static final double COCOMO_A = 2.5;
+    static final double COCOMO_B = 1.05;
+    static final double COCOMO_C = 2.5;
+    static final double COCOMO_D = 0.38;
+    static final double COCOMO_COST_PER_PM = 6000;
+
+    static Estimation locBased(double loc) {
+        double effort = loc / 1000 * LOC_EFFORT_PER_KLOC; // Example formula: Effort = LOC / 1000 * Coefficient
+        double cost = effort * LOC_COST_PER_PM; // Example cost per person-month
+        double duration = effort / LOC_TEAM_SIZE; // Example duration assuming 4 people per team
+        return new Estimation("LOC-Based", loc, effort, cost, duration);
+    }
+
+    static Estimation functionPointsBased(double fp) {
+        double effort = fp * FP_EFFORT_PER_FP; // Example formula: Effort = FP * Coefficient
+        double cost = effort * FP_COST_PER_PM; // Example cost per person-month
+        double duration = effort / FP_TEAM_SIZE; // Example duration assuming 3 people per team
+        return new Estimation("Function Points-Based", fp, effort, cost, duration);
+    }
+
+    static Estimation cocomoBased(double loc) {
+        double effort = COCOMO_A * Math.pow(loc / 1000, COCOMO_B); // Basic COCOMO formula
+        double cost = effort * COCOMO_COST_PER_PM; // Example cost per person-month
+        double duration = COCOMO_C * Math.pow(effort, COCOMO_D); // Basic COCOMO formula
+        return new Estimation("COCOMO-Based", loc, effort, cost, duration);
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public double getSize() {
+        return size;
+    }
+
+    public double getEffort() {
+        return effort;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public double getDuration() {
+        return duration;
+    }
+
     @Override
     public String toString() {
         return "Model: " + modelName +
@@ -37,51 +91,62 @@ class Estimation {
 
 public class EstimationApp extends Application {
 
+    private Estimation currentEstimation;
+    private final EstimationModels estimationModels = EstimationModels.standard("EstimationSystem");
+
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/EstimationSystem", "root", "password");
+            return ConnectionPool.getConnection("EstimationSystem");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    private void saveEstimationToDatabase(String projectName, Estimation estimation, String details) {
-        String sql = "INSERT INTO Estimations (projectName, estimationModel, size, effort, cost, duration, inputDetails) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    // Returns the generated id, or -1 if the row could not be written.
+    private int saveEstimationToDatabase(String projectName, Estimation estimation, String details, Double actualEffort) {
+        String sql = "INSERT INTO Estimations (projectName, estimationModel, size, effort, cost, duration, inputDetails, actualEffort) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         try (Connection conn = connectDB();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, projectName);
-            pstmt.setString(2, estimation.modelName);
-            pstmt.setDouble(3, estimation.size);
-            pstmt.setDouble(4, estimation.effort);
-            pstmt.setDouble(5, estimation.cost);
-            pstmt.setDouble(6, estimation.duration);
+            pstmt.setString(2, estimation.getModelName());
+            pstmt.setDouble(3, estimation.getSize());
+            pstmt.setDouble(4, estimation.getEffort());
+            pstmt.setDouble(5, estimation.getCost());
+            pstmt.setDouble(6, estimation.getDuration());
             pstmt.setString(7, details);
+            if (actualEffort == null) {
+                pstmt.setNull(8, Types.DOUBLE);
+            } else {
+                pstmt.setDouble(8, actualEffort);
+            }
             pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : -1;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
+            return -1;
         }
     }
 
-    private Estimation calculateLOCBasedEstimation(double loc) {
-        double effort = loc / 1000 * 2.4; // Example formula: Effort = LOC / 1000 * Coefficient
-        double cost = effort * 5000; // Example cost per person-month
-        double duration = effort / 4; // Example duration assuming 4 people per team
-        return new Estimation("LOC-Based", loc, effort, cost, duration);
-    }
-
-    private Estimation calculateFunctionPointsEstimation(double fp) {
-        double effort = fp * 1.5; // Example formula: Effort = FP * Coefficient
-        double cost = effort * 5000; // Example cost per person-month
-        double duration = effort / 3; // Example duration assuming 3 people per team
-        return new Estimation("Function Points-Based", fp, effort, cost, duration);
-    }
-
-    private Estimation calculateCOCOMOEstimation(double loc) {
-        double effort = 2.5 * Math.pow(loc / 1000, 1.05); // Basic COCOMO formula
-        double cost = effort * 6000; // Example cost per person-month
-        double duration = 2.5 * Math.pow(effort, 0.38); // Basic COCOMO formula
-        return new Estimation("COCOMO-Based", loc, effort, cost, duration);
+    private void saveQuantilesToDatabase(int estimationId, UncertaintyResult result) {
+        String sql = "INSERT INTO EstimationQuantiles (estimationId, quantile, effort, cost, duration) VALUES (?, ?, ?, ?, ?)";
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < UncertaintyResult.QUANTILES.length; i++) {
+            indexes.add(i);
+        }
+        BulkResult saved = new BulkInserter<Integer>("EstimationSystem", sql, (pstmt, i) -> {
+            Estimation estimation = result.atQuantile[i];
+            pstmt.setInt(1, estimationId);
+            pstmt.setDouble(2, UncertaintyResult.QUANTILES[i]);
+            pstmt.setDouble(3, estimation.getEffort());
+            pstmt.setDouble(4, estimation.getCost());
+            pstmt.setDouble(5, estimation.getDuration());
+        }).insertAll(indexes);
+        if (saved.hasErrors()) {
+            saved.errors.get(0).cause.printStackTrace();
+        }
     }
 
     private void showEstimationChart(Stage primaryStage, Estimation estimation) {
@@ -94,10 +159,10 @@ public class EstimationApp extends Application {
         BarChart<String, Number> barChart = new BarChart<>(xAxis, yAxis);
 
         BarChart.Series<String, Number> series = new BarChart.Series<>();
-        series.setName(estimation.modelName);
-        series.getData().add(new BarChart.Data<>("Effort", estimation.effort));
-        series.getData().add(new BarChart.Data<>("Cost", estimation.cost));
-        series.getData().add(new BarChart.Data<>("Duration", estimation.duration));
+        series.setName(estimation.getModelName());
+        series.getData().add(new BarChart.Data<>("Effort", estimation.getEffort()));
+        series.getData().add(new BarChart.Data<>("Cost", estimation.getCost()));
+        series.getData().add(new BarChart.Data<>("Duration", estimation.getDuration()));
 
         barChart.getData().add(series);
 
@@ -109,6 +174,38 @@ public class EstimationApp extends Application {
         chartStage.show();
     }
 
+    private void showUncertaintyChart(UncertaintyResult result) {
+        CategoryAxis xAxis = new CategoryAxis();
+        xAxis.setLabel("Effort (person-months)");
+
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setLabel("Share of samples (%)");
+
+        BarChart<String, Number> barChart = new BarChart<>(xAxis, yAxis);
+        barChart.setCategoryGap(0);
+        barChart.setBarGap(0);
+        barChart.setAnimated(false);
+
+        StreamingHistogram histogram = result.effort;
+        int bars = 40;
+        long[] counts = histogram.rebin(bars);
+        double width = (histogram.max - histogram.min) / bars;
+        BarChart.Series<String, Number> series = new BarChart.Series<>();
+        series.setName(result.distribution + " " + result.modelName);
+        for (int i = 0; i < bars; i++) {
+            String label = String.format("%.1f", histogram.min + (i + 0.5) * width);
+            series.getData().add(new BarChart.Data<>(label, 100.0 * counts[i] / histogram.total()));
+        }
+        barChart.getData().add(series);
+
+        VBox vbox = new VBox(barChart);
+        Scene scene = new Scene(vbox, 800, 400);
+        Stage chartStage = new Stage();
+        chartStage.setTitle("Effort Distribution");
+        chartStage.setScene(scene);
+        chartStage.show();
+    }
+
     @Override
     public void start(Stage primaryStage) {
         VBox vbox = new VBox();
@@ -117,38 +214,97 @@ public class EstimationApp extends Application {
         TextField sizeField = new TextField();
         sizeField.setPromptText("Size (LOC or FP)");
         ComboBox<String> modelComboBox = new ComboBox<>();
-        modelComboBox.getItems().addAll("LOC-Based", "Function Points-Based", "COCOMO-Based");
+        modelComboBox.getItems().addAll(estimationModels.names());
         modelComboBox.setPromptText("Estimation Model");
+        TextField driversField = new TextField();
+        driversField.setPromptText("Cost Drivers (e.g. RELY=H, CPLX=VH, MODE=embedded)");
+        TextField actualEffortField = new TextField();
+        actualEffortField.setPromptText("Actual Effort in person-months (optional)");
 
         Button calculateButton = new Button("Calculate Estimation");
         Button chartButton = new Button("Show Metrics Chart");
+        Button calibrateButton = new Button("Calibrate Models");
+        TextField optimisticField = new TextField();
+        optimisticField.setPromptText("Optimistic Size (three-point)");
+        TextField pessimisticField = new TextField();
+        pessimisticField.setPromptText("Pessimistic Size (three-point)");
+        ComboBox<UncertaintyEstimator.Distribution> distributionComboBox = new ComboBox<>();
+        distributionComboBox.getItems().addAll(UncertaintyEstimator.Distribution.values());
+        distributionComboBox.setValue(UncertaintyEstimator.Distribution.PERT);
+        Button simulateButton = new Button("Simulate Uncertainty");
 
         ListView<String> resultListView = new ListView<>();
-        Estimation currentEstimation = null;
 
         calculateButton.setOnAction(e -> {
             String projectName = projectNameField.getText();
             double size = Double.parseDouble(sizeField.getText());
             String model = modelComboBox.getValue();
-            String details = "Project: " + projectName + ", Model: " + model + ", Size: " + size;
-
-            switch (model) {
-                case "LOC-Based":
-                    currentEstimation = calculateLOCBasedEstimation(size);
-                    break;
-                case "Function Points-Based":
-                    currentEstimation = calculateFunctionPointsEstimation(size);
-                    break;
-                case "COCOMO-Based":
-                    currentEstimation = calculateCOCOMOEstimation(size);
-                    break;
-                default:
-                    resultListView.getItems().add("Invalid model selected.");
-                    return;
+            String driversText = driversField.getText().trim();
+            String actualText = actualEffortField.getText().trim();
+            Double actualEffort = actualText.isEmpty() ? null : Double.parseDouble(actualText);
+            if (model == null) {
+                resultListView.getItems().add("Invalid model selected.");
+                return;
+            }
+            String details = "Project: " + projectName + ", Model: " + model + ", Size: " + size +
+                             (driversText.isEmpty() ? "" : ", Drivers: " + driversText);
+
+            CostDrivers drivers;
+            try {
+                drivers = CostDrivers.parse(driversText);
+                currentEstimation = estimationModels.estimate(model, size, drivers);
+            } catch (IllegalArgumentException ex) {
+                resultListView.getItems().add(ex.getMessage());
+                return;
             }
 
-            resultListView.getItems().add(currentEstimation.toString());
-            saveEstimationToDatabase(projectName, currentEstimation, details);
+            Estimation estimation = currentEstimation;
+            resultListView.getItems().add(estimation.toString());
+            resultListView.getItems().addAll(estimationModels.get(model).breakdown(estimation, drivers));
+            DbExecutor.run("saveEstimation", () -> saveEstimationToDatabase(projectName, estimation, details, actualEffort));
+        });
+
+        simulateButton.setOnAction(e -> {
+            String projectName = projectNameField.getText();
+            double optimistic = Double.parseDouble(optimisticField.getText());
+            double mostLikely = Double.parseDouble(sizeField.getText());
+            double pessimistic = Double.parseDouble(pessimisticField.getText());
+            String model = modelComboBox.getValue();
+            UncertaintyEstimator.Distribution distribution = distributionComboBox.getValue();
+            String driversText = driversField.getText().trim();
+            if (model == null) {
+                resultListView.getItems().add("Invalid model selected.");
+                return;
+            }
+            long samples = UncertaintyEstimator.defaultSamples();
+            long seed = System.nanoTime();
+            String details = "Project: " + projectName + ", Model: " + model + ", Size: " + mostLikely +
+                             ", Three-point: " + optimistic + "/" + mostLikely + "/" + pessimistic +
+                             ", Distribution: " + distribution + ", Samples: " + samples + ", Seed: " + seed +
+                             (driversText.isEmpty() ? "" : ", Drivers: " + driversText);
+
+            DbExecutor.deliver(DbExecutor.supplyLatest("simulateUncertainty", () -> UncertaintyEstimator.simulate(
+                    estimationModels.get(model), estimationModels.calibration(model), CostDrivers.parse(driversText),
+                    optimistic, mostLikely, pessimistic, distribution, samples, seed)), result -> {
+                currentEstimation = result.quantile(0.50);
+                resultListView.getItems().addAll(result.summary());
+                showUncertaintyChart(result);
+                Estimation median = currentEstimation;
+                DbExecutor.run("saveEstimation", () -> {
+                    int id = saveEstimationToDatabase(projectName, median, details, null);
+                    if (id > 0) {
+                        saveQuantilesToDatabase(id, result);
+                    }
+                });
+            }, error -> resultListView.getItems().add(error.getMessage()));
+        });
+
+        calibrateButton.setOnAction(e -> {
+            DbExecutor.deliver(DbExecutor.supplyLatest("calibrateModels", estimationModels::calibrate), fitted -> {
+                for (Map.Entry<String, Calibration> entry : fitted.entrySet()) {
+                    resultListView.getItems().add(entry.getKey() + ": " + entry.getValue());
+                }
+            }, error -> resultListView.getItems().add("Calibration failed: " + error.getMessage()));
         });
 
         chartButton.setOnAction(e -> {
@@ -162,9 +318,16 @@ public class EstimationApp extends Application {
             }
         });
 
-        vbox.getChildren().addAll(projectNameField, sizeField, modelComboBox, calculateButton, chartButton, resultListView);
+        vbox.getChildren().addAll(projectNameField, sizeField, modelComboBox, driversField, actualEffortField,
+                calculateButton, chartButton, calibrateButton, optimisticField, pessimisticField,
+                distributionComboBox, simulateButton, resultListView);
+
+        DbExecutor.deliver(DbExecutor.supply("loadCalibrations", () -> {
+            estimationModels.loadCalibrations();
+            return null;
+        }), loaded -> { });
 
-        Scene scene = new Scene(vbox, 400, 600);
+        Scene scene = new Scene(vbox, 400, 700);
         primaryStage.setTitle("Software Estimation System");
         primaryStage.setScene(scene);
         primaryStage.show();
@@ -10,5 +10,28 @@ CREATE TABLE Estimations (
     effort DOUBLE,
     cost DOUBLE,
     duration DOUBLE,
-    inputDetails TEXT
+    inputDetails TEXT,
+    actualEffort DOUBLE -- Person-months actually spent, when known; used for calibration
+);
+
+CREATE TABLE ModelCalibrations (
+    modelName VARCHAR(50) PRIMARY KEY,
+    coefficient DOUBLE,
+    exponent DOUBLE,
+    samples INT,
+    rSquared DOUBLE,
+    sourceRows INT, -- Estimations rows with an actual effort when fitted
+    sourceMaxId INT,
+    fittedAt TIMESTAMP
+);
+
+-- Percentiles of a three-point simulation; the Estimations row holds the median (P50).
+CREATE TABLE EstimationQuantiles (
+    estimationId INT,
+    quantile DOUBLE,
+    effort DOUBLE,
+    cost DOUBLE,
+    duration DOUBLE,
+    PRIMARY KEY (estimationId, quantile),
+    FOREIGN KEY (estimationId) REFERENCES Estimations(id)
 );
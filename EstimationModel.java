@@ -0,0 +1,506 @@
+import java.util.*;
+
+// Cost drivers and other model inputs typed as "RELY=H, CPLX=VH, MODE=embedded". Ratings use the
+// COCOMO abbreviations VL, L, N, H, VH and XH; unset drivers are Nominal.
+class CostDrivers {
+    static final double NA = Double.NaN;
+    static final String[] RATINGS = {"VL", "L", "N", "H", "VH", "XH"};
+    static final CostDrivers NONE = new CostDrivers(Collections.emptyMap(), "");
+
+    private final Map<String, String> values;
+    private final String text;
+
+    private CostDrivers(Map<String, String> values, String text) {
+        this.values = values;
+        this.text = text;
+    }
+
+    static CostDrivers parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return NONE;
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String entry : text.split("[,;]")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected NAME=VALUE but found '" + entry.trim() + "'");
+            }
+            values.put(entry.substring(0, eq).trim().toUpperCase(), entry.substring(eq + 1).trim());
+        }
+        return new CostDrivers(values, text.trim());
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    String value(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    double number(String name, double defaultValue) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number but was '" + value + "'");
+        }
+    }
+
+    // Index into RATINGS, Nominal when unset.
+    int rating(String name) {
+        String value = values.get(name);
+        if (value == null) {
+            return 2;
+        }
+        for (int i = 0; i < RATINGS.length; i++) {
+            if (RATINGS[i].equalsIgnoreCase(value)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(name + " rating must be one of " + String.join(", ", RATINGS) +
+                                           " but was '" + value + "'");
+    }
+
+    // Product of the multipliers selected by each driver's rating; a table row lists VL..XH with
+    // NaN where the rating is not defined.
+    double product(Map<String, double[]> table) {
+        double product = 1;
+        for (Map.Entry<String, double[]> driver : table.entrySet()) {
+            product *= pick(driver.getKey(), driver.getValue());
+        }
+        return product;
+    }
+
+    double sum(Map<String, double[]> table) {
+        double sum = 0;
+        for (Map.Entry<String, double[]> driver : table.entrySet()) {
+            sum += pick(driver.getKey(), driver.getValue());
+        }
+        return sum;
+    }
+
+    private double pick(String name, double[] byRating) {
+        int rating = rating(name);
+        if (rating >= byRating.length || Double.isNaN(byRating[rating])) {
+            throw new IllegalArgumentException(name + " has no " + RATINGS[rating] + " rating");
+        }
+        return byRating[rating];
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
+
+// Fitted or default coefficients of effort = coefficient * sizeDriver ^ (exponent + adjustment) * multiplier.
+class Calibration {
+    final double coefficient;
+    final double exponent;
+    final int samples; // 0 for the published defaults
+    final double rSquared;
+
+    Calibration(double coefficient, double exponent, int samples, double rSquared) {
+        this.coefficient = coefficient;
+        this.exponent = exponent;
+        this.samples = samples;
+        this.rSquared = rSquared;
+    }
+
+    static Calibration defaults(double coefficient, double exponent) {
+        return new Calibration(coefficient, exponent, 0, Double.NaN);
+    }
+
+    @Override
+    public String toString() {
+        return "a = " + String.format("%.4f", coefficient) +
+               ", b = " + String.format("%.4f", exponent) +
+               (samples == 0 ? " (default)" : " (" + samples + " samples, R^2 = " + String.format("%.3f", rSquared) + ")");
+    }
+}
+
+// An estimation model. Every model has the shape
+//
+//   effort = a * sizeDriver(size) ^ (b + exponentAdjustment) * effortMultiplier
+//
+// where a and b come from a Calibration (published defaults until fitted against actuals) and the
+// adjustment and multiplier come from the cost drivers. Implementations can be added to the
+// registry directly or listed under META-INF/services/EstimationModel.
+public interface EstimationModel {
+
+    String name();
+
+    Calibration defaultCalibration();
+
+    // Whether calibration may fit b; otherwise only a is fitted and b keeps its default.
+    boolean calibratesExponent();
+
+    double sizeDriver(double size, CostDrivers drivers);
+
+    default double exponentAdjustment(CostDrivers drivers) {
+        return 0;
+    }
+
+    default double effortMultiplier(CostDrivers drivers) {
+        return 1;
+    }
+
+    double duration(double effort, CostDrivers drivers, Calibration calibration);
+
+    double defaultCostPerPersonMonth();
+
+    // RATE overrides the model's cost per person-month.
+    default double costPerPersonMonth(CostDrivers drivers) {
+        return drivers.number("RATE", defaultCostPerPersonMonth());
+    }
+
+    default Estimation estimate(double size, CostDrivers drivers, Calibration calibration) {
+        double x = sizeDriver(size, drivers);
+        double effort = calibration.coefficient
+                * BatchEstimator.fastPow(x, calibration.exponent + exponentAdjustment(drivers))
+                * effortMultiplier(drivers);
+        double cost = effort * costPerPersonMonth(drivers);
+        return new Estimation(name(), size, effort, cost, duration(effort, drivers, calibration));
+    }
+
+    // Extra lines shown under an estimate, e.g. a phase split.
+    default List<String> breakdown(Estimation estimation, CostDrivers drivers) {
+        return Collections.emptyList();
+    }
+}
+
+// Effort per KLOC; duration spreads the effort over STAFF people (default 4).
+class LocBasedModel implements EstimationModel {
+    @Override
+    public String name() {
+        return "LOC-Based";
+    }
+
+    @Override
+    public Calibration defaultCalibration() {
+        return Calibration.defaults(Estimation.LOC_EFFORT_PER_KLOC, 1);
+    }
+
+    @Override
+    public boolean calibratesExponent() {
+        return false;
+    }
+
+    @Override
+    public double sizeDriver(double size, CostDrivers drivers) {
+        return size / 1000;
+    }
+
+    @Override
+    public double duration(double effort, CostDrivers drivers, Calibration calibration) {
+        return effort / drivers.number("STAFF", Estimation.LOC_TEAM_SIZE);
+    }
+
+    @Override
+    public double defaultCostPerPersonMonth() {
+        return Estimation.LOC_COST_PER_PM;
+    }
+}
+
+// Effort per function point, spread over STAFF people (default 3). With EI, EO, EQ, ILF and EIF
+// counts given as low/average/high (e.g. EI=6/4/1) the size is counted from the IFPUG complexity
+// weights, times the value adjustment factor 0.65 + 0.01 * TDI; otherwise the size typed in is
+// taken as function points.
+class FunctionPointModel implements EstimationModel {
+    private static final String[] TYPES = {"EI", "EO", "EQ", "ILF", "EIF"};
+    private static final int[][] WEIGHTS = {{3, 4, 6}, {4, 5, 7}, {3, 4, 6}, {7, 10, 15}, {5, 7, 10}};
+
+    @Override
+    public String name() {
+        return "Function Points-Based";
+    }
+
+    @Override
+    public Calibration defaultCalibration() {
+        return Calibration.defaults(Estimation.FP_EFFORT_PER_FP, 1);
+    }
+
+    @Override
+    public boolean calibratesExponent() {
+        return false;
+    }
+
+    @Override
+    public double sizeDriver(double size, CostDrivers drivers) {
+        double unadjusted = 0;
+        boolean counted = false;
+        for (int t = 0; t < TYPES.length; t++) {
+            if (!drivers.has(TYPES[t])) {
+                continue;
+            }
+            counted = true;
+            String[] counts = drivers.value(TYPES[t], "").split("/");
+            if (counts.length != 3) {
+                throw new IllegalArgumentException(TYPES[t] + " must be low/average/high counts, e.g. " + TYPES[t] + "=3/2/1");
+            }
+            for (int level = 0; level < 3; level++) {
+                try {
+                    unadjusted += Integer.parseInt(counts[level].trim()) * WEIGHTS[t][level];
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(TYPES[t] + " counts must be whole numbers");
+                }
+            }
+        }
+        if (!counted) {
+            return size;
+        }
+        double tdi = drivers.number("TDI", 35); // 35 gives a neutral adjustment of 1.0
+        if (tdi < 0 || tdi > 70) {
+            throw new IllegalArgumentException("TDI must be between 0 and 70");
+        }
+        return unadjusted * (0.65 + 0.01 * tdi);
+    }
+
+    @Override
+    public double duration(double effort, CostDrivers drivers, Calibration calibration) {
+        return effort / drivers.number("STAFF", Estimation.FP_TEAM_SIZE);
+    }
+
+    @Override
+    public double defaultCostPerPersonMonth() {
+        return Estimation.FP_COST_PER_PM;
+    }
+
+    @Override
+    public List<String> breakdown(Estimation estimation, CostDrivers drivers) {
+        for (String type : TYPES) {
+            if (drivers.has(type)) {
+                return Collections.singletonList("Counted size: " +
+                        String.format("%.1f", sizeDriver(estimation.getSize(), drivers)) + " adjusted FP");
+            }
+        }
+        return Collections.emptyList();
+    }
+}
+
+// Basic COCOMO (organic): effort = 2.5 * KLOC^1.05, duration = 2.5 * effort^0.38.
+class BasicCocomoModel implements EstimationModel {
+    @Override
+    public String name() {
+        return "COCOMO-Based";
+    }
+
+    @Override
+    public Calibration defaultCalibration() {
+        return Calibration.defaults(Estimation.COCOMO_A, Estimation.COCOMO_B);
+    }
+
+    @Override
+    public boolean calibratesExponent() {
+        return true;
+    }
+
+    @Override
+    public double sizeDriver(double size, CostDrivers drivers) {
+        return size / 1000;
+    }
+
+    @Override
+    public double duration(double effort, CostDrivers drivers, Calibration calibration) {
+        return Estimation.COCOMO_C * BatchEstimator.fastPow(effort, Estimation.COCOMO_D);
+    }
+
+    @Override
+    public double defaultCostPerPersonMonth() {
+        return Estimation.COCOMO_COST_PER_PM;
+    }
+}
+
+// Intermediate COCOMO 81: the development MODE (organic, semidetached, embedded) picks the
+// nominal coefficient and exponent, and the fifteen cost drivers multiply into the effort
+// adjustment factor. Calibration fits the organic coefficients; the other modes keep their
+// published offsets from them.
+class IntermediateCocomoModel implements EstimationModel {
+    static final Map<String, double[]> COST_DRIVERS = new LinkedHashMap<>();
+
+    static {
+        double NA = CostDrivers.NA;
+        //                                    VL    L     N     H     VH    XH
+        COST_DRIVERS.put("RELY", new double[]{0.75, 0.88, 1.00, 1.15, 1.40, NA});
+        COST_DRIVERS.put("DATA", new double[]{NA, 0.94, 1.00, 1.08, 1.16, NA});
+        COST_DRIVERS.put("CPLX", new double[]{0.70, 0.85, 1.00, 1.15, 1.30, 1.65});
+        COST_DRIVERS.put("TIME", new double[]{NA, NA, 1.00, 1.11, 1.30, 1.66});
+        COST_DRIVERS.put("STOR", new double[]{NA, NA, 1.00, 1.06, 1.21, 1.56});
+        COST_DRIVERS.put("VIRT", new double[]{NA, 0.87, 1.00, 1.15, 1.30, NA});
+        COST_DRIVERS.put("TURN", new double[]{NA, 0.87, 1.00, 1.07, 1.15, NA});
+        COST_DRIVERS.put("ACAP", new double[]{1.46, 1.19, 1.00, 0.86, 0.71, NA});
+        COST_DRIVERS.put("AEXP", new double[]{1.29, 1.13, 1.00, 0.91, 0.82, NA});
+        COST_DRIVERS.put("PCAP", new double[]{1.42, 1.17, 1.00, 0.86, 0.70, NA});
+        COST_DRIVERS.put("VEXP", new double[]{1.21, 1.10, 1.00, 0.90, NA, NA});
+        COST_DRIVERS.put("LEXP", new double[]{1.14, 1.07, 1.00, 0.95, NA, NA});
+        COST_DRIVERS.put("MODP", new double[]{1.24, 1.10, 1.00, 0.91, 0.82, NA});
+        COST_DRIVERS.put("TOOL", new double[]{1.24, 1.10, 1.00, 0.91, 0.83, NA});
+        COST_DRIVERS.put("SCED", new double[]{1.23, 1.08, 1.00, 1.04, 1.10, NA});
+    }
+
+    // organic, semidetached, embedded
+    private static final double[] A = {3.2, 3.0, 2.8};
+    private static final double[] B = {1.05, 1.12, 1.20};
+    private static final double[] D = {0.38, 0.35, 0.32};
+
+    static int mode(CostDrivers drivers) {
+        String mode = drivers.value("MODE", "organic").toLowerCase().replace("-", "");
+        switch (mode) {
+            case "organic": return 0;
+            case "semidetached": return 1;
+            case "embedded": return 2;
+            default: throw new IllegalArgumentException("MODE must be organic, semidetached or embedded");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "Intermediate COCOMO";
+    }
+
+    @Override
+    public Calibration defaultCalibration() {
+        return Calibration.defaults(A[0], B[0]);
+    }
+
+    @Override
+    public boolean calibratesExponent() {
+        return true;
+    }
+
+    @Override
+    public double sizeDriver(double size, CostDrivers drivers) {
+        return size / 1000;
+    }
+
+    @Override
+    public double exponentAdjustment(CostDrivers drivers) {
+        return B[mode(drivers)] - B[0];
+    }
+
+    @Override
+    public double effortMultiplier(CostDrivers drivers) {
+        return A[mode(drivers)] / A[0] * drivers.product(COST_DRIVERS);
+    }
+
+    @Override
+    public double duration(double effort, CostDrivers drivers, Calibration calibration) {
+        return 2.5 * BatchEstimator.fastPow(effort, D[mode(drivers)]);
+    }
+
+    @Override
+    public double defaultCostPerPersonMonth() {
+        return Estimation.COCOMO_COST_PER_PM;
+    }
+}
+
+// Detailed COCOMO: the intermediate estimate split over the lifecycle phases using Boehm's
+// distribution for a medium-size organic product (programming covers detailed design at 24% and
+// code and unit test at 38% of the effort).
+class DetailedCocomoModel extends IntermediateCocomoModel {
+    private static final String[] PHASES = {"Product Design", "Programming", "Integration and Test"};
+    private static final double[] EFFORT_SHARE = {0.16, 0.62, 0.22};
+    private static final double[] SCHEDULE_SHARE = {0.19, 0.55, 0.26};
+
+    @Override
+    public String name() {
+        return "Detailed COCOMO";
+    }
+
+    @Override
+    public List<String> breakdown(Estimation estimation, CostDrivers drivers) {
+        List<String> lines = new ArrayList<>(PHASES.length);
+        for (int p = 0; p < PHASES.length; p++) {
+            lines.add(PHASES[p] + ": " + String.format("%.2f", estimation.getEffort() * EFFORT_SHARE[p]) +
+                      " person-months over " + String.format("%.2f", estimation.getDuration() * SCHEDULE_SHARE[p]) +
+                      " months");
+        }
+        return lines;
+    }
+}
+
+// COCOMO II.2000 post-architecture: E = B + 0.01 * sum of the five scale factors, effort =
+// A * KSLOC^E * product of the seventeen effort multipliers, and schedule =
+// C * effort^(D + 0.2 * (E - B)).
+class CocomoIIModel implements EstimationModel {
+    static final Map<String, double[]> SCALE_FACTORS = new LinkedHashMap<>();
+    static final Map<String, double[]> EFFORT_MULTIPLIERS = new LinkedHashMap<>();
+
+    static {
+        double NA = CostDrivers.NA;
+        //                                     VL    L     N     H     VH    XH
+        SCALE_FACTORS.put("PREC", new double[]{6.20, 4.96, 3.72, 2.48, 1.24, 0.00});
+        SCALE_FACTORS.put("FLEX", new double[]{5.07, 4.05, 3.04, 2.03, 1.01, 0.00});
+        SCALE_FACTORS.put("RESL", new double[]{7.07, 5.65, 4.24, 2.83, 1.41, 0.00});
+        SCALE_FACTORS.put("TEAM", new double[]{5.48, 4.38, 3.29, 2.19, 1.10, 0.00});
+        SCALE_FACTORS.put("PMAT", new double[]{7.80, 6.24, 4.68, 3.12, 1.56, 0.00});
+
+        EFFORT_MULTIPLIERS.put("RELY", new double[]{0.82, 0.92, 1.00, 1.10, 1.26, NA});
+        EFFORT_MULTIPLIERS.put("DATA", new double[]{NA, 0.90, 1.00, 1.14, 1.28, NA});
+        EFFORT_MULTIPLIERS.put("CPLX", new double[]{0.73, 0.87, 1.00, 1.17, 1.34, 1.74});
+        EFFORT_MULTIPLIERS.put("RUSE", new double[]{NA, 0.95, 1.00, 1.07, 1.15, 1.24});
+        EFFORT_MULTIPLIERS.put("DOCU", new double[]{0.81, 0.91, 1.00, 1.11, 1.23, NA});
+        EFFORT_MULTIPLIERS.put("TIME", new double[]{NA, NA, 1.00, 1.11, 1.29, 1.63});
+        EFFORT_MULTIPLIERS.put("STOR", new double[]{NA, NA, 1.00, 1.05, 1.17, 1.46});
+        EFFORT_MULTIPLIERS.put("PVOL", new double[]{NA, 0.87, 1.00, 1.15, 1.30, NA});
+        EFFORT_MULTIPLIERS.put("ACAP", new double[]{1.42, 1.19, 1.00, 0.85, 0.71, NA});
+        EFFORT_MULTIPLIERS.put("PCAP", new double[]{1.34, 1.15, 1.00, 0.88, 0.76, NA});
+        EFFORT_MULTIPLIERS.put("PCON", new double[]{1.29, 1.12, 1.00, 0.90, 0.81, NA});
+        EFFORT_MULTIPLIERS.put("APEX", new double[]{1.22, 1.10, 1.00, 0.88, 0.81, NA});
+        EFFORT_MULTIPLIERS.put("PLEX", new double[]{1.19, 1.09, 1.00, 0.91, 0.85, NA});
+        EFFORT_MULTIPLIERS.put("LTEX", new double[]{1.20, 1.09, 1.00, 0.91, 0.84, NA});
+        EFFORT_MULTIPLIERS.put("TOOL", new double[]{1.17, 1.09, 1.00, 0.90, 0.78, NA});
+        EFFORT_MULTIPLIERS.put("SITE", new double[]{1.22, 1.09, 1.00, 0.93, 0.86, 0.80});
+        EFFORT_MULTIPLIERS.put("SCED", new double[]{1.43, 1.14, 1.00, 1.00, 1.00, NA});
+    }
+
+    private static final double C = 3.67;
+    private static final double D = 0.28;
+
+    @Override
+    public String name() {
+        return "COCOMO II";
+    }
+
+    @Override
+    public Calibration defaultCalibration() {
+        return Calibration.defaults(2.94, 0.91);
+    }
+
+    @Override
+    public boolean calibratesExponent() {
+        return true;
+    }
+
+    @Override
+    public double sizeDriver(double size, CostDrivers drivers) {
+        return size / 1000;
+    }
+
+    @Override
+    public double exponentAdjustment(CostDrivers drivers) {
+        return 0.01 * drivers.sum(SCALE_FACTORS);
+    }
+
+    @Override
+    public double effortMultiplier(CostDrivers drivers) {
+        return drivers.product(EFFORT_MULTIPLIERS);
+    }
+
+    @Override
+    public double duration(double effort, CostDrivers drivers, Calibration calibration) {
+        return C * BatchEstimator.fastPow(effort, D + 0.2 * exponentAdjustment(drivers));
+    }
+
+    @Override
+    public double defaultCostPerPersonMonth() {
+        return Estimation.COCOMO_COST_PER_PM;
+    }
+}
@@ -0,0 +1,234 @@
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Registry of estimation models and their current calibrations. Fitted coefficients are kept in
+// ModelCalibrations together with the number and highest id of the Estimations rows they were
+// fitted on, so a restart reuses them and only refits once new actuals have been recorded.
+public class EstimationModels {
+
+    private static final int MIN_SAMPLES = 3;
+
+    private final String database;
+    private final Map<String, EstimationModel> models = new LinkedHashMap<>();
+    private final Map<String, Calibration> calibrations = new ConcurrentHashMap<>();
+
+    public EstimationModels(String database) {
+        this.database = database;
+    }
+
+    // The built-in models followed by any provided through ServiceLoader.
+    public static EstimationModels standard(String database) {
+        EstimationModels registry = new EstimationModels(database);
+        registry.register(new LocBasedModel());
+        registry.register(new FunctionPointModel());
+        registry.register(new BasicCocomoModel());
+        registry.register(new IntermediateCocomoModel());
+        registry.register(new DetailedCocomoModel());
+        registry.register(new CocomoIIModel());
+        for (EstimationModel model : ServiceLoader.load(EstimationModel.class)) {
+            registry.register(model);
+        }
+        return registry;
+    }
+
+    public synchronized void register(EstimationModel model) {
+        if (models.putIfAbsent(model.name(), model) != null) {
+            throw new IllegalArgumentException("An estimation model named " + model.name() + " is already registered");
+        }
+    }
+
+    public synchronized List<String> names() {
+        return new ArrayList<>(models.keySet());
+    }
+
+    public synchronized EstimationModel get(String name) {
+        EstimationModel model = models.get(name);
+        if (model == null) {
+            throw new IllegalArgumentException("Unknown estimation model: " + name);
+        }
+        return model;
+    }
+
+    public Calibration calibration(String name) {
+        return calibrations.getOrDefault(name, get(name).defaultCalibration());
+    }
+
+    public Estimation estimate(String name, double size, CostDrivers drivers) {
+        return get(name).estimate(size, drivers, calibration(name));
+    }
+
+    // Loads the stored calibrations and refits only if actuals were added since they were fitted.
+    public void loadCalibrations() throws SQLException {
+        int[] source = historySignature();
+        boolean stale = false;
+        String sql = "SELECT modelName, coefficient, exponent, samples, rSquared, sourceRows, sourceMaxId FROM ModelCalibrations";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            boolean any = false;
+            while (rs.next()) {
+                any = true;
+                if (rs.getInt("sourceRows") != source[0] || rs.getInt("sourceMaxId") != source[1]) {
+                    stale = true;
+                }
+                calibrations.put(rs.getString("modelName"), new Calibration(rs.getDouble("coefficient"),
+                        rs.getDouble("exponent"), rs.getInt("samples"), rs.getDouble("rSquared")));
+            }
+            stale |= !any && source[0] > 0;
+        }
+        if (stale) {
+            calibrate();
+        }
+    }
+
+    // {rows with an actual effort, highest id among them}
+    private int[] historySignature() throws SQLException {
+        String sql = "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM Estimations WHERE actualEffort > 0 AND size > 0";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return new int[]{rs.getInt(1), rs.getInt(2)};
+        }
+    }
+
+    // Refits every model against the recorded actuals, one model per fork-join task, and stores the
+    // results. Models with fewer than MIN_SAMPLES usable rows keep their published defaults.
+    public Map<String, Calibration> calibrate() throws SQLException {
+        Map<String, List<double[]>> rowsByModel = new HashMap<>();
+        Map<String, List<String>> driversByModel = new HashMap<>();
+        String sql = "SELECT id, estimationModel, size, actualEffort, inputDetails FROM Estimations " +
+                     "WHERE actualEffort > 0 AND size > 0";
+        int count = 0;
+        int maxId = 0;
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    String model = rs.getString("estimationModel");
+                    count++;
+                    maxId = Math.max(maxId, rs.getInt("id"));
+                    rowsByModel.computeIfAbsent(model, m -> new ArrayList<>())
+                            .add(new double[]{rs.getDouble("size"), rs.getDouble("actualEffort")});
+                    driversByModel.computeIfAbsent(model, m -> new ArrayList<>())
+                            .add(driversOf(rs.getString("inputDetails")));
+                }
+            }
+        }
+        int[] source = {count, maxId};
+
+        List<String> names = names();
+        List<Callable<Calibration>> fits = new ArrayList<>();
+        for (String name : names) {
+            EstimationModel model = get(name);
+            List<double[]> rows = rowsByModel.getOrDefault(name, Collections.emptyList());
+            List<String> drivers = driversByModel.getOrDefault(name, Collections.emptyList());
+            fits.add(() -> fit(model, rows, drivers));
+        }
+        Map<String, Calibration> fitted = new LinkedHashMap<>();
+        List<Future<Calibration>> results = ForkJoinPool.commonPool().invokeAll(fits);
+        for (int i = 0; i < names.size(); i++) {
+            try {
+                fitted.put(names.get(i), results.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Calibration interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Calibration of " + names.get(i) + " failed", e.getCause());
+            }
+        }
+
+        Timestamp fittedAt = new Timestamp(System.currentTimeMillis());
+        String upsert = "INSERT INTO ModelCalibrations (modelName, coefficient, exponent, samples, rSquared, " +
+                        "sourceRows, sourceMaxId, fittedAt) VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                        "coefficient = VALUES(coefficient), exponent = VALUES(exponent), samples = VALUES(samples), " +
+                        "rSquared = VALUES(rSquared), sourceRows = VALUES(sourceRows), " +
+                        "sourceMaxId = VALUES(sourceMaxId), fittedAt = VALUES(fittedAt)";
+        BulkResult result = new BulkInserter<Map.Entry<String, Calibration>>(database, upsert, (pstmt, entry) -> {
+            Calibration calibration = entry.getValue();
+            pstmt.setString(1, entry.getKey());
+            pstmt.setDouble(2, calibration.coefficient);
+            pstmt.setDouble(3, calibration.exponent);
+            pstmt.setInt(4, calibration.samples);
+            pstmt.setDouble(5, Double.isNaN(calibration.rSquared) ? 0 : calibration.rSquared);
+            pstmt.setInt(6, source[0]);
+            pstmt.setInt(7, source[1]);
+            pstmt.setTimestamp(8, fittedAt);
+        }).insertAll(fitted.entrySet());
+        if (result.hasErrors()) {
+            throw result.errors.get(0).cause;
+        }
+        calibrations.putAll(fitted);
+        return fitted;
+    }
+
+    // Log-linear least squares: ln(actual / multiplier) - adjustment * ln(x) = ln(a) + b * ln(x).
+    // Models that do not calibrate the exponent fit ln(a) alone with b held at its default.
+    static Calibration fit(EstimationModel model, List<double[]> rows, List<String> driverTexts) {
+        Calibration defaults = model.defaultCalibration();
+        int n = 0;
+        double[] xs = new double[rows.size()];
+        double[] ys = new double[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                CostDrivers drivers = CostDrivers.parse(driverTexts.get(i));
+                double x = model.sizeDriver(rows.get(i)[0], drivers);
+                double effort = rows.get(i)[1] / model.effortMultiplier(drivers);
+                if (!(x > 0) || !(effort > 0)) {
+                    continue;
+                }
+                double lx = Math.log(x);
+                xs[n] = lx;
+                ys[n] = Math.log(effort) - model.exponentAdjustment(drivers) * lx;
+                n++;
+            } catch (IllegalArgumentException e) {
+                // rows whose stored drivers no longer parse are left out of the fit
+            }
+        }
+        if (n < MIN_SAMPLES) {
+            return defaults;
+        }
+
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += xs[i];
+            meanY += ys[i];
+        }
+        meanX /= n;
+        meanY /= n;
+        double sxx = 0;
+        double sxy = 0;
+        for (int i = 0; i < n; i++) {
+            sxx += (xs[i] - meanX) * (xs[i] - meanX);
+            sxy += (xs[i] - meanX) * (ys[i] - meanY);
+        }
+        double b = model.calibratesExponent() && sxx > 1e-12 ? sxy / sxx : defaults.exponent;
+        double lnA = meanY - b * meanX;
+
+        double ssRes = 0;
+        double ssTot = 0;
+        for (int i = 0; i < n; i++) {
+            double residual = ys[i] - (lnA + b * xs[i]);
+            ssRes += residual * residual;
+            ssTot += (ys[i] - meanY) * (ys[i] - meanY);
+        }
+        double rSquared = ssTot > 0 ? 1 - ssRes / ssTot : 1;
+        return new Calibration(Math.exp(lnA), b, n, rSquared);
+    }
+
+    // inputDetails ends with ", Drivers: <text>" when drivers were given.
+    static String driversOf(String details) {
+        if (details == null) {
+            return "";
+        }
+        int at = details.indexOf("Drivers: ");
+        return at < 0 ? "" : details.substring(at + "Drivers: ".length());
+    }
+}
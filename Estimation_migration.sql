@@ -0,0 +1,29 @@
+-- Upgrades a EstimationSystem database created by an older Estimation.sql, which itself creates the
+-- current schema on a fresh server. Run once: mysql < Estimation_migration.sql
+
+USE EstimationSystem;
+
+-- Actual effort for calibration, and the fitted coefficients per model.
+ALTER TABLE Estimations ADD COLUMN actualEffort DOUBLE;
+
+CREATE TABLE IF NOT EXISTS ModelCalibrations (
+    modelName VARCHAR(50) PRIMARY KEY,
+    coefficient DOUBLE,
+    exponent DOUBLE,
+    samples INT,
+    rSquared DOUBLE,
+    sourceRows INT,
+    sourceMaxId INT,
+    fittedAt TIMESTAMP
+);
+
+-- Percentiles of three-point simulations.
+CREATE TABLE IF NOT EXISTS EstimationQuantiles (
+    estimationId INT,
+    quantile DOUBLE,
+    effort DOUBLE,
+    cost DOUBLE,
+    duration DOUBLE,
+    PRIMARY KEY (estimationId, quantile),
+    FOREIGN KEY (estimationId) REFERENCES Estimations(id)
+);
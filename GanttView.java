@@ -0,0 +1,229 @@
+import javafx.geometry.Orientation;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+import java.time.LocalDate;
+import java.util.*;
+
+enum GanttZoom {
+    DAY(24, 1, 1),
+    WEEK(6, 1, 7),
+    MONTH(1.5, 8, 30),
+    QUARTER(0.4, 64, 90);
+
+    final double pixelsPerDay;
+    final int tasksPerRow; // rows are merged into one envelope bar when zoomed out
+    final int tickDays;
+
+    GanttZoom(double pixelsPerDay, int tasksPerRow, int tickDays) {
+        this.pixelsPerDay = pixelsPerDay;
+        this.tasksPerRow = tasksPerRow;
+        this.tickDays = tickDays;
+    }
+}
+
+// Canvas Gantt chart that only paints the rows and days inside the viewport. Data comes from the
+// schedule arrays; rows are ordered by start day and, at coarse zoom levels, several tasks are
+// drawn as one bar spanning the group's earliest start to latest finish.
+public class GanttView extends Region {
+
+    private static final double ROW_HEIGHT = 20;
+    private static final double HEADER_HEIGHT = 22;
+    private static final double LABEL_WIDTH = 140;
+
+    private final String[] ids;
+    private final int[] start;
+    private final int[] finish;
+    private final boolean[] critical;
+    private final int[] rowOrder;
+    private final int horizon;
+    private final LocalDate projectStart;
+
+    private final Map<GanttZoom, int[][]> rowsByZoom = new EnumMap<>(GanttZoom.class);
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar verticalBar = new ScrollBar();
+    private final ScrollBar horizontalBar = new ScrollBar();
+    private GanttZoom zoom = GanttZoom.DAY;
+
+    public GanttView(ScheduleResult schedule, LocalDate projectStart) {
+        this.ids = schedule.graph.ids;
+        this.start = schedule.earliestStart;
+        this.finish = schedule.earliestFinish;
+        this.projectStart = projectStart;
+        this.horizon = Math.max(1, schedule.projectDuration);
+        int n = ids.length;
+        this.critical = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            critical[i] = schedule.isCritical(i);
+        }
+
+        // sort rows by start day (then index) using a packed long key instead of boxed comparators
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) start[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        rowOrder = new int[n];
+        for (int i = 0; i < n; i++) {
+            rowOrder[i] = (int) keys[i];
+        }
+
+        verticalBar.setOrientation(Orientation.VERTICAL);
+        verticalBar.valueProperty().addListener((obs, oldValue, newValue) -> draw());
+        horizontalBar.valueProperty().addListener((obs, oldValue, newValue) -> draw());
+        getChildren().addAll(canvas, verticalBar, horizontalBar);
+
+        setOnScroll(e -> {
+            if (e.isControlDown()) {
+                setZoom(e.getDeltaY() > 0 ? zoomIn(zoom) : zoomOut(zoom));
+            } else if (e.isShiftDown() || e.getDeltaX() != 0) {
+                double delta = e.isShiftDown() ? e.getDeltaY() : e.getDeltaX();
+                horizontalBar.setValue(clamp(horizontalBar.getValue() - delta / zoom.pixelsPerDay,
+                        0, horizontalBar.getMax()));
+            } else {
+                verticalBar.setValue(clamp(verticalBar.getValue() - e.getDeltaY() / ROW_HEIGHT,
+                        0, verticalBar.getMax()));
+            }
+            e.consume();
+        });
+    }
+
+    public void setZoom(GanttZoom newZoom) {
+        if (newZoom == zoom) {
+            return;
+        }
+        double firstTask = verticalBar.getValue() * zoom.tasksPerRow;
+        zoom = newZoom;
+        updateScrollRanges();
+        verticalBar.setValue(clamp(firstTask / zoom.tasksPerRow, 0, verticalBar.getMax()));
+        draw();
+    }
+
+    public GanttZoom getZoom() {
+        return zoom;
+    }
+
+    private static GanttZoom zoomIn(GanttZoom zoom) {
+        return GanttZoom.values()[Math.max(0, zoom.ordinal() - 1)];
+    }
+
+    private static GanttZoom zoomOut(GanttZoom zoom) {
+        return GanttZoom.values()[Math.min(GanttZoom.values().length - 1, zoom.ordinal() + 1)];
+    }
+
+    // rows[0] = start, rows[1] = finish, rows[2] = 1 if any task in the row is critical
+    private int[][] rows(GanttZoom level) {
+        return rowsByZoom.computeIfAbsent(level, z -> {
+            int perRow = z.tasksPerRow;
+            int count = (rowOrder.length + perRow - 1) / perRow;
+            int[] rowStart = new int[count];
+            int[] rowFinish = new int[count];
+            int[] rowCritical = new int[count];
+            for (int r = 0; r < count; r++) {
+                int from = r * perRow;
+                int to = Math.min(rowOrder.length, from + perRow);
+                int s = Integer.MAX_VALUE;
+                int f = Integer.MIN_VALUE;
+                for (int k = from; k < to; k++) {
+                    int task = rowOrder[k];
+                    s = Math.min(s, start[task]);
+                    f = Math.max(f, finish[task]);
+                    if (critical[task]) {
+                        rowCritical[r] = 1;
+                    }
+                }
+                rowStart[r] = s;
+                rowFinish[r] = f;
+            }
+            return new int[][]{rowStart, rowFinish, rowCritical};
+        });
+    }
+
+    private String rowLabel(int row) {
+        int perRow = zoom.tasksPerRow;
+        int from = row * perRow;
+        if (perRow == 1) {
+            return ids[rowOrder[from]];
+        }
+        int to = Math.min(rowOrder.length, from + perRow) - 1;
+        return ids[rowOrder[from]] + " .. " + ids[rowOrder[to]] + " (" + (to - from + 1) + ")";
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double barSize = 14;
+        double width = getWidth();
+        double height = getHeight();
+        canvas.setWidth(Math.max(0, width - barSize));
+        canvas.setHeight(Math.max(0, height - barSize));
+        canvas.relocate(0, 0);
+        verticalBar.resizeRelocate(width - barSize, 0, barSize, height - barSize);
+        horizontalBar.resizeRelocate(0, height - barSize, width - barSize, barSize);
+        updateScrollRanges();
+        draw();
+    }
+
+    private void updateScrollRanges() {
+        int rowCount = rows(zoom)[0].length;
+        double visibleRows = Math.max(1, (canvas.getHeight() - HEADER_HEIGHT) / ROW_HEIGHT);
+        double visibleDays = Math.max(1, (canvas.getWidth() - LABEL_WIDTH) / zoom.pixelsPerDay);
+        verticalBar.setMax(Math.max(0, rowCount - visibleRows));
+        verticalBar.setVisibleAmount(visibleRows);
+        horizontalBar.setMax(Math.max(0, horizon - visibleDays));
+        horizontalBar.setVisibleAmount(visibleDays);
+        verticalBar.setValue(clamp(verticalBar.getValue(), 0, verticalBar.getMax()));
+        horizontalBar.setValue(clamp(horizontalBar.getValue(), 0, horizontalBar.getMax()));
+    }
+
+    private void draw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+
+        int[][] rows = rows(zoom);
+        double ppd = zoom.pixelsPerDay;
+        double firstDay = horizontalBar.getValue();
+        double lastDay = firstDay + (width - LABEL_WIDTH) / ppd;
+        int firstRow = (int) verticalBar.getValue();
+        int lastRow = Math.min(rows[0].length, firstRow + (int) Math.ceil((height - HEADER_HEIGHT) / ROW_HEIGHT) + 1);
+
+        g.setStroke(Color.LIGHTGRAY);
+        g.setFill(Color.DIMGRAY);
+        int firstTick = (int) (Math.ceil(firstDay / zoom.tickDays) * zoom.tickDays);
+        for (int day = firstTick; day <= lastDay; day += zoom.tickDays) {
+            double x = LABEL_WIDTH + (day - firstDay) * ppd;
+            g.strokeLine(x, HEADER_HEIGHT, x, height);
+            g.fillText(projectStart.plusDays(day).toString(), x + 2, HEADER_HEIGHT - 6);
+        }
+
+        for (int row = firstRow; row < lastRow; row++) {
+            double y = HEADER_HEIGHT + (row - firstRow) * ROW_HEIGHT;
+            g.setFill(Color.BLACK);
+            g.fillText(rowLabel(row), 4, y + ROW_HEIGHT - 6, LABEL_WIDTH - 8);
+
+            double barStart = Math.max(rows[0][row], firstDay);
+            double barEnd = Math.min(rows[1][row], lastDay);
+            if (barEnd < barStart) {
+                continue;
+            }
+            double x = LABEL_WIDTH + (barStart - firstDay) * ppd;
+            double w = Math.max(1, (barEnd - barStart) * ppd);
+            g.setFill(rows[2][row] == 1 ? Color.FIREBRICK : Color.STEELBLUE);
+            g.fillRect(x, y + 3, w, ROW_HEIGHT - 6);
+        }
+
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, LABEL_WIDTH, HEADER_HEIGHT);
+        g.setFill(Color.BLACK);
+        g.fillText("Zoom: " + zoom.name().charAt(0) + zoom.name().substring(1).toLowerCase(), 4, HEADER_HEIGHT - 6);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,59 @@
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Caches the result of a "SELECT label, COUNT(*) ... GROUP BY ..." query. Writers in this process
+// call invalidate(); a query that was already running when an invalidation happened is returned but
+// not cached. Rows written by other processes (BulkImport, TestRunner) are picked up once the cached
+// counts are older than TTL_MILLIS.
+public class GroupedCountCache {
+
+    static final long TTL_MILLIS = Long.getLong("counts.cacheTtlMillis", 30_000);
+
+    // Version and counts change together, so a query can only be cached against the version it read.
+    private static final class Snapshot {
+        final long version;
+        final Map<String, Integer> counts;
+        final long loadedAt;
+
+        Snapshot(long version, Map<String, Integer> counts, long loadedAt) {
+            this.version = version;
+            this.counts = counts;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final String database;
+    private final String sql;
+    private final AtomicReference<Snapshot> state = new AtomicReference<>(new Snapshot(0, null, 0));
+
+    public GroupedCountCache(String database, String sql) {
+        this.database = database;
+        this.sql = sql;
+    }
+
+    public Map<String, Integer> get() throws SQLException {
+        Snapshot seen = state.get();
+        long now = System.nanoTime();
+        if (seen.counts != null && now - seen.loadedAt < TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS)) {
+            return seen.counts;
+        }
+        Map<String, Integer> fresh = new LinkedHashMap<>();
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                fresh.put(String.valueOf(rs.getString(1)), rs.getInt(2));
+            }
+        }
+        fresh = Collections.unmodifiableMap(fresh);
+        // fails if invalidate() ran since seen was read, leaving the newer empty snapshot in place
+        state.compareAndSet(seen, new Snapshot(seen.version, fresh, now));
+        return fresh;
+    }
+
+    public void invalidate() {
+        state.updateAndGet(current -> new Snapshot(current.version + 1, null, 0));
+    }
+}
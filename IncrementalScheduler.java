@@ -0,0 +1,336 @@
+import java.util.*;
+
+// Keeps a schedule current as single tasks change. Edges live in per-task growable int lists so a
+// task's dependencies can be rewired in place; after a change only the task's downstream closure
+// is visited, and only tasks whose predecessors actually moved are recomputed. A dependency on an
+// id that has no task yet is kept waiting under that id and becomes an edge when the task is added,
+// so tasks can be entered in any order.
+public class IncrementalScheduler {
+
+    private String[] ids;
+    private int[] duration;
+    private int[][] preds;
+    private int[] predCount;
+    private int[][] succs;
+    private int[] succCount;
+    private int[] earliestStart;
+    private int[] earliestFinish;
+    private int size;
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private final Map<String, List<Integer>> waiting = new HashMap<>();
+
+    private int[] mark;
+    private int[] slot;
+    private int epoch;
+
+    // tasks are the ones the initial graph was built from, in the same order; TaskGraph drops their
+    // unknown dependencies, so they are read from here to be kept waiting.
+    public IncrementalScheduler(ScheduleResult initial, List<Task> tasks) {
+        TaskGraph graph = initial.graph;
+        int n = graph.size();
+        int capacity = Math.max(16, n + n / 4);
+        ids = Arrays.copyOf(graph.ids, capacity);
+        duration = Arrays.copyOf(graph.duration, capacity);
+        earliestStart = Arrays.copyOf(initial.earliestStart, capacity);
+        earliestFinish = Arrays.copyOf(initial.earliestFinish, capacity);
+        preds = new int[capacity][];
+        predCount = new int[capacity];
+        succs = new int[capacity][];
+        succCount = new int[capacity];
+        mark = new int[capacity];
+        slot = new int[capacity];
+        size = n;
+        for (int v = 0; v < n; v++) {
+            indexById.put(ids[v], v);
+            int from = graph.predOffsets[v];
+            predCount[v] = graph.predOffsets[v + 1] - from;
+            preds[v] = Arrays.copyOfRange(graph.preds, from, from + Math.max(predCount[v], 2));
+            from = graph.succOffsets[v];
+            succCount[v] = graph.succOffsets[v + 1] - from;
+            succs[v] = Arrays.copyOfRange(graph.succs, from, from + Math.max(succCount[v], 2));
+        }
+        for (int v = 0; v < n; v++) {
+            addWaiting(v, tasks.get(v).getDependencies());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String id) {
+        return indexById.containsKey(id);
+    }
+
+    public String idOf(int task) {
+        return ids[task];
+    }
+
+    public int earliestStart(int task) {
+        return earliestStart[task];
+    }
+
+    public int earliestFinish(int task) {
+        return earliestFinish[task];
+    }
+
+    // The current graph as a ScheduleResult for views that need latest dates and critical tasks too.
+    // It is computed in memory from this scheduler's edges; nothing is written and this stays in use.
+    public ScheduleResult snapshot() {
+        int[] predOffsets = new int[size + 1];
+        for (int v = 0; v < size; v++) {
+            predOffsets[v + 1] = predOffsets[v] + predCount[v];
+        }
+        int[] flatPreds = new int[predOffsets[size]];
+        for (int v = 0; v < size; v++) {
+            System.arraycopy(preds[v], 0, flatPreds, predOffsets[v], predCount[v]);
+        }
+        TaskGraph graph = new TaskGraph(Arrays.copyOf(ids, size), Arrays.copyOf(duration, size), predOffsets, flatPreds);
+        return CriticalPathScheduler.schedule(graph);
+    }
+
+    // Appends a task. Its only successors are the tasks that were waiting for its id, so only they
+    // and their downstream closure can need new dates.
+    public int[] addTask(String id, int taskDuration, List<String> dependencies) {
+        if (indexById.containsKey(id)) {
+            return updateTask(id, taskDuration, dependencies);
+        }
+        int[] newPreds = resolve(dependencies);
+        List<Integer> waiters = waiting.getOrDefault(id, Collections.emptyList());
+        checkAcyclic(id, waiters, newPreds);
+        waiting.remove(id);
+        if (size == ids.length) {
+            grow();
+        }
+        int v = size++;
+        ids[v] = id;
+        duration[v] = taskDuration;
+        preds[v] = new int[2];
+        succs[v] = new int[2];
+        indexById.put(id, v);
+        for (int pred : newPreds) {
+            addEdge(pred, v);
+        }
+        for (int waiter : waiters) {
+            addEdge(v, waiter);
+        }
+        addWaiting(v, dependencies);
+        return propagate(v);
+    }
+
+    // Applies a new duration and dependency list to one task and returns the indexes of every task
+    // whose start or finish moved as a result.
+    public int[] updateTask(String id, int taskDuration, List<String> dependencies) {
+        Integer index = indexById.get(id);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown task id: " + id);
+        }
+        int v = index;
+        int[] newPreds = resolve(dependencies);
+        checkAcyclic(v, newPreds);
+
+        for (int i = 0; i < predCount[v]; i++) {
+            removeSucc(preds[v][i], v);
+        }
+        predCount[v] = 0;
+        for (int pred : newPreds) {
+            addEdge(pred, v);
+        }
+        Iterator<List<Integer>> lists = waiting.values().iterator();
+        while (lists.hasNext()) {
+            List<Integer> waiters = lists.next();
+            waiters.remove(Integer.valueOf(v));
+            if (waiters.isEmpty()) {
+                lists.remove();
+            }
+        }
+        addWaiting(v, dependencies);
+        duration[v] = taskDuration;
+        return propagate(v);
+    }
+
+    // Throws exactly as updateTask would, without changing anything, so callers can reject a cycle
+    // before writing it anywhere.
+    public void checkUpdate(String id, List<String> dependencies) {
+        Integer index = indexById.get(id);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown task id: " + id);
+        }
+        checkAcyclic(index, resolve(dependencies));
+    }
+
+    // The same for addTask: a new task closes a cycle if a task waiting for it is upstream of it.
+    public void checkAdd(String id, List<String> dependencies) {
+        if (indexById.containsKey(id)) {
+            checkUpdate(id, dependencies);
+        } else {
+            checkAcyclic(id, waiting.getOrDefault(id, Collections.emptyList()), resolve(dependencies));
+        }
+    }
+
+    private void checkAcyclic(int v, int[] newPreds) {
+        checkAcyclic(ids[v], Collections.singletonList(v), newPreds);
+    }
+
+    private void checkAcyclic(String id, List<Integer> downstreamOf, int[] newPreds) {
+        markDownstream(downstreamOf);
+        for (int pred : newPreds) {
+            if (mark[pred] == epoch) {
+                throw new IllegalStateException("Dependency cycle detected: " + id + " cannot depend on " +
+                        ids[pred] + " because " + ids[pred] + " already depends on " + id);
+            }
+        }
+    }
+
+    // Remembers the dependencies of task v on ids that have no task yet; a task never waits for itself.
+    private void addWaiting(int v, List<String> dependencies) {
+        if (dependencies == null) {
+            return;
+        }
+        for (String dependency : dependencies) {
+            String key = dependency.trim();
+            if (!key.isEmpty() && !indexById.containsKey(key) && !key.equals(ids[v])) {
+                List<Integer> waiters = waiting.computeIfAbsent(key, k -> new ArrayList<>());
+                if (!waiters.contains(v)) {
+                    waiters.add(v);
+                }
+            }
+        }
+    }
+
+    private int[] resolve(List<String> dependencies) {
+        if (dependencies == null) {
+            return new int[0];
+        }
+        int[] resolved = new int[dependencies.size()];
+        int count = 0;
+        for (String dependency : dependencies) {
+            Integer pred = indexById.get(dependency.trim());
+            if (pred != null) {
+                resolved[count++] = pred;
+            }
+        }
+        return Arrays.copyOf(resolved, count);
+    }
+
+    // Marks the task and everything reachable through successor edges with the current epoch and
+    // returns the marked tasks.
+    private int[] markDownstream(int start) {
+        return markDownstream(Collections.singletonList(start));
+    }
+
+    private int[] markDownstream(List<Integer> starts) {
+        epoch++;
+        int[] queue = new int[Math.max(16, starts.size())];
+        int tail = 0;
+        for (int start : starts) {
+            if (mark[start] != epoch) {
+                mark[start] = epoch;
+                queue[tail++] = start;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int i = 0; i < succCount[v]; i++) {
+                int succ = succs[v][i];
+                if (mark[succ] != epoch) {
+                    mark[succ] = epoch;
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = succ;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    // Topologically orders the downstream closure (counting only in-closure predecessors) and
+    // recomputes a task only when it is the changed task or one of its predecessors now finishes
+    // on a different day.
+    private int[] propagate(int changed) {
+        int[] closure = markDownstream(changed);
+        int[] pending = new int[closure.length];
+        boolean[] dirty = new boolean[closure.length];
+        for (int i = 0; i < closure.length; i++) {
+            slot[closure[i]] = i;
+        }
+        for (int i = 0; i < closure.length; i++) {
+            int v = closure[i];
+            for (int k = 0; k < predCount[v]; k++) {
+                if (mark[preds[v][k]] == epoch) {
+                    pending[i]++;
+                }
+            }
+        }
+        dirty[slot[changed]] = true;
+
+        int[] queue = new int[closure.length];
+        int tail = 0;
+        queue[tail++] = changed;
+        int[] affected = new int[closure.length];
+        int affectedCount = 0;
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            boolean finishMoved = false;
+            if (dirty[slot[v]]) {
+                int start = 0;
+                for (int k = 0; k < predCount[v]; k++) {
+                    start = Math.max(start, earliestFinish[preds[v][k]]);
+                }
+                int finish = start + duration[v];
+                if (v == changed || start != earliestStart[v] || finish != earliestFinish[v]) {
+                    finishMoved = finish != earliestFinish[v];
+                    earliestStart[v] = start;
+                    earliestFinish[v] = finish;
+                    affected[affectedCount++] = v;
+                }
+            }
+            for (int k = 0; k < succCount[v]; k++) {
+                int succ = slot[succs[v][k]];
+                if (finishMoved) {
+                    dirty[succ] = true;
+                }
+                if (--pending[succ] == 0) {
+                    queue[tail++] = closure[succ];
+                }
+            }
+        }
+        return Arrays.copyOf(affected, affectedCount);
+    }
+
+    private void addEdge(int pred, int succ) {
+        if (predCount[succ] == preds[succ].length) {
+            preds[succ] = Arrays.copyOf(preds[succ], predCount[succ] * 2);
+        }
+        preds[succ][predCount[succ]++] = pred;
+        if (succCount[pred] == succs[pred].length) {
+            succs[pred] = Arrays.copyOf(succs[pred], succCount[pred] * 2);
+        }
+        succs[pred][succCount[pred]++] = succ;
+    }
+
+    private void removeSucc(int pred, int succ) {
+        int[] list = succs[pred];
+        for (int i = 0; i < succCount[pred]; i++) {
+            if (list[i] == succ) {
+                list[i] = list[--succCount[pred]];
+                return;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        duration = Arrays.copyOf(duration, capacity);
+        earliestStart = Arrays.copyOf(earliestStart, capacity);
+        earliestFinish = Arrays.copyOf(earliestFinish, capacity);
+        preds = Arrays.copyOf(preds, capacity);
+        predCount = Arrays.copyOf(predCount, capacity);
+        succs = Arrays.copyOf(succs, capacity);
+        succCount = Arrays.copyOf(succCount, capacity);
+        mark = Arrays.copyOf(mark, capacity);
+        slot = Arrays.copyOf(slot, capacity);
+    }
+}
@@ -0,0 +1,237 @@
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListView;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+@FunctionalInterface
+interface RowFormatter {
+    String format(ResultSet rs) throws SQLException;
+}
+
+// Read-only list for a ListView whose rows are fetched a page at a time as cells ask for them.
+// Pages are read with keyset pagination (WHERE key > lastKey ORDER BY key LIMIT n); jumping past
+// pages not yet seen first looks up the boundary key with an index-only OFFSET query. Only a
+// bounded number of formatted pages is kept; evicted pages are fetched again when scrolled back to.
+// A page that comes back short marks the end of the table, and the list shrinks to match. A page
+// that fails shows its error in every row and is not fetched again until a backoff has passed.
+public class LazyPagedList extends ObservableListBase<String> {
+
+    public static final int PAGE_SIZE = Integer.getInteger("ui.pageSize", 200);
+    public static final int FETCH_SIZE = ConnectionPool.FETCH_SIZE;
+    private static final int MAX_CACHED_PAGES = 64;
+    private static final String LOADING = "Loading...";
+    private static final long FIRST_RETRY_MILLIS = 1_000;
+    private static final long MAX_RETRY_MILLIS = 60_000;
+
+    private static final class PageFailure {
+        final String row;
+        final int attempts;
+        final long retryAt;
+
+        PageFailure(String row, int attempts, long retryAt) {
+            this.row = row;
+            this.attempts = attempts;
+            this.retryAt = retryAt;
+        }
+    }
+
+    private final String database;
+    private final String table;
+    private final String keyColumn;
+    private final String columns;
+    private final RowFormatter formatter;
+    private final int pageSize;
+    private final int fetchSize;
+
+    private int size;
+    private final Map<Integer, String[]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, Object> lastKeyOfPage = new HashMap<>();
+    private final Map<Integer, CompletableFuture<?>> pending = new HashMap<>();
+    private final Map<Integer, PageFailure> failures = new HashMap<>();
+    private boolean closed;
+
+    public LazyPagedList(String database, String table, String keyColumn, String columns, RowFormatter formatter) {
+        this(database, table, keyColumn, columns, formatter, PAGE_SIZE, FETCH_SIZE);
+    }
+
+    public LazyPagedList(String database, String table, String keyColumn, String columns, RowFormatter formatter,
+                         int pageSize, int fetchSize) {
+        this.database = database;
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.columns = columns;
+        this.formatter = formatter;
+        this.pageSize = pageSize;
+        this.fetchSize = fetchSize;
+    }
+
+    // Counts the rows off the FX thread; the list grows to that size once the count arrives and
+    // pages are only read when the ListView asks for their rows.
+    public LazyPagedList load() {
+        DbExecutor.deliver(DbExecutor.supplyLatest("count" + table, this::countRows), count -> {
+            if (closed) {
+                return;
+            }
+            int oldSize = size;
+            size = count;
+            beginChange();
+            if (oldSize > 0) {
+                nextRemove(0, new ArrayList<>(Collections.nCopies(oldSize, LOADING)));
+            }
+            nextAdd(0, count);
+            endChange();
+        });
+        return this;
+    }
+
+    // Cancels outstanding fetches and drops any result that still arrives.
+    public void close() {
+        closed = true;
+        pending.values().forEach(future -> future.cancel(true));
+        pending.clear();
+        pages.clear();
+        failures.clear();
+    }
+
+    // Closes the LazyPagedList a ListView was showing when its items are replaced, so pages of a
+    // list nobody can see any more are neither fetched nor kept.
+    public static void closeOnReplace(ListView<String> view) {
+        view.itemsProperty().addListener((observable, oldItems, newItems) -> {
+            if (oldItems instanceof LazyPagedList && oldItems != newItems) {
+                ((LazyPagedList) oldItems).close();
+            }
+        });
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int page = index / pageSize;
+        String[] rows = pages.get(page);
+        if (rows == null) {
+            PageFailure failure = failures.get(page);
+            if (failure != null && System.currentTimeMillis() < failure.retryAt) {
+                return failure.row;
+            }
+            requestPage(page);
+            return failure != null ? failure.row : LOADING;
+        }
+        int offset = index - page * pageSize;
+        return offset < rows.length ? rows[offset] : LOADING;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void requestPage(int page) {
+        if (closed || pending.containsKey(page)) {
+            return;
+        }
+        Object afterKey = page == 0 ? null : lastKeyOfPage.get(page - 1);
+        boolean knownBoundary = page == 0 || afterKey != null;
+        CompletableFuture<Object[]> future = DbExecutor.supplyLatest("page" + table, "page" + table + "#" + page,
+                () -> fetchPage(page, knownBoundary, afterKey));
+        pending.put(page, future);
+        DbExecutor.deliver(future, result -> {
+            if (closed) {
+                return;
+            }
+            pending.remove(page);
+            failures.remove(page);
+            String[] rows = (String[]) result[0];
+            pages.put(page, rows);
+            if (result[1] != null) {
+                lastKeyOfPage.put(page, result[1]);
+            }
+            int first = page * pageSize;
+            int end = first + rows.length;
+            beginChange();
+            for (int i = 0; i < rows.length && first + i < size; i++) {
+                nextSet(first + i, LOADING);
+            }
+            if (rows.length < pageSize && end < size) {
+                // rows were deleted since the count; nothing lies past this page, so stop showing Loading...
+                List<String> removed = new ArrayList<>(Collections.nCopies(size - end, LOADING));
+                size = end;
+                nextRemove(end, removed);
+                pages.keySet().removeIf(p -> p > page);
+                lastKeyOfPage.keySet().removeIf(p -> p > page);
+            }
+            endChange();
+        }, error -> {
+            if (closed) {
+                return;
+            }
+            pending.remove(page);
+            PageFailure previous = failures.get(page);
+            int attempts = previous == null ? 1 : previous.attempts + 1;
+            long delay = Math.min(MAX_RETRY_MILLIS, FIRST_RETRY_MILLIS << Math.min(attempts - 1, 16));
+            failures.put(page, new PageFailure("Error loading rows: " + error.getMessage(), attempts,
+                                               System.currentTimeMillis() + delay));
+            int first = page * pageSize;
+            beginChange();
+            for (int i = first; i < Math.min(first + pageSize, size); i++) {
+                nextSet(i, LOADING);
+            }
+            endChange();
+        });
+    }
+
+    private int countRows() throws SQLException {
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Returns {formatted rows, last key of the page}.
+    private Object[] fetchPage(int page, boolean knownBoundary, Object afterKey) throws SQLException {
+        try (Connection conn = ConnectionPool.getConnection(database)) {
+            if (!knownBoundary) {
+                String seek = "SELECT " + keyColumn + " FROM " + table + " ORDER BY " + keyColumn + " LIMIT 1 OFFSET ?";
+                try (PreparedStatement pstmt = conn.prepareStatement(seek)) {
+                    pstmt.setInt(1, page * pageSize - 1);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) {
+                            return new Object[]{new String[0], null};
+                        }
+                        afterKey = rs.getObject(1);
+                    }
+                }
+            }
+            String sql = "SELECT " + keyColumn + ", " + columns + " FROM " + table +
+                         (afterKey == null ? "" : " WHERE " + keyColumn + " > ?") +
+                         " ORDER BY " + keyColumn + " LIMIT ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int param = 1;
+                if (afterKey != null) {
+                    pstmt.setObject(param++, afterKey);
+                }
+                pstmt.setInt(param, pageSize);
+                pstmt.setFetchSize(fetchSize);
+                String[] rows = new String[pageSize];
+                int count = 0;
+                Object lastKey = null;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        lastKey = rs.getObject(1);
+                        rows[count++] = formatter.format(rs);
+                    }
+                }
+                return new Object[]{Arrays.copyOf(rows, count), lastKey};
+            }
+        }
+    }
+}
@@ -1,13 +1,23 @@
 import javafx.application.Application;
+import javafx.collections.FXCollections;
 import javafx.scene.Scene;
 import javafx.scene.chart.BarChart;
 import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 
+import java.io.File;
 import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 
 class Metrics {
@@ -27,6 +37,38 @@ class Metrics {
         this.totalTests = totalTests;
     }
 
+    static double defectDensity(int defects, int loc) {
+        return (double) defects / loc * 1000; // Defects per 1000 LOC
+    }
+
+    static double codeCoverage(int totalTests, int loc) {
+        return (double) totalTests / loc * 100; // Percentage coverage
+    }
+
+    public int getLoc() {
+        return loc;
+    }
+
+    public int getCyclomaticComplexity() {
+        return cyclomaticComplexity;
+    }
+
+    public double getCodeCoverage() {
+        return codeCoverage;
+    }
+
+    public double getDefectDensity() {
+        return defectDensity;
+    }
+
+    public int getDefects() {
+        return defects;
+    }
+
+    public int getTotalTests() {
+        return totalTests;
+    }
+
     @Override
     public String toString() {
         return "Lines of Code: " + loc +
@@ -40,9 +82,14 @@ class Metrics {
 
 public class MetricsManagementApp extends Application {
 
+    private static final int TREND_WIDTH = 800;
+
+    private final MetricsStore metricsStore = new MetricsStore("MetricsManagement");
+    private Metrics currentMetrics;
+
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/MetricsManagement", "root", "password");
+            return ConnectionPool.getConnection("MetricsManagement");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
@@ -50,25 +97,16 @@ public class MetricsManagementApp extends Application {
     }
 
     private void saveMetricsToDatabase(String projectName, Metrics metrics) {
-        String sql = "INSERT INTO Metrics (projectName, linesOfCode, cyclomaticComplexity, codeCoverage, defectDensity, defects, totalTests) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = connectDB();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, projectName);
-            pstmt.setInt(2, metrics.loc);
-            pstmt.setInt(3, metrics.cyclomaticComplexity);
-            pstmt.setDouble(4, metrics.codeCoverage);
-            pstmt.setDouble(5, metrics.defectDensity);
-            pstmt.setInt(6, metrics.defects);
-            pstmt.setInt(7, metrics.totalTests);
-            pstmt.executeUpdate();
+        try {
+            metricsStore.record(projectName, System.currentTimeMillis(), metrics);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     private Metrics calculateMetrics(int loc, int cyclomaticComplexity, int defects, int totalTests) {
-        double defectDensity = (double) defects / loc * 1000; // Defects per 1000 LOC
-        double codeCoverage = (double) totalTests / loc * 100; // Percentage coverage
+        double defectDensity = Metrics.defectDensity(defects, loc);
+        double codeCoverage = Metrics.codeCoverage(totalTests, loc);
         return new Metrics(loc, cyclomaticComplexity, codeCoverage, defectDensity, defects, totalTests);
     }
 
@@ -83,10 +121,10 @@ public class MetricsManagementApp extends Application {
 
         BarChart.Series<String, Number> series = new BarChart.Series<>();
         series.setName("Metrics Chart");
-        series.getData().add(new BarChart.Data<>("LOC", metrics.loc));
-        series.getData().add(new BarChart.Data<>("Cyclomatic Complexity", metrics.cyclomaticComplexity));
-        series.getData().add(new BarChart.Data<>("Code Coverage", metrics.codeCoverage));
-        series.getData().add(new BarChart.Data<>("Defect Density", metrics.defectDensity));
+        series.getData().add(new BarChart.Data<>("LOC", metrics.getLoc()));
+        series.getData().add(new BarChart.Data<>("Cyclomatic Complexity", metrics.getCyclomaticComplexity()));
+        series.getData().add(new BarChart.Data<>("Code Coverage", metrics.getCodeCoverage()));
+        series.getData().add(new BarChart.Data<>("Defect Density", metrics.getDefectDensity()));
 
         barChart.getData().add(series);
 
@@ -98,6 +136,65 @@ public class MetricsManagementApp extends Application {
         chartStage.show();
     }
 
+    // Line chart over a stored range. The series is decimated to two points per pixel of the plot
+    // area and decimated again from the in-memory columns when the window is resized.
+    private void showTrendChart(String projectName, TimeSeries series, long from, long to) {
+        NumberAxis xAxis = new NumberAxis(from, to, Math.max(1, (to - from) / 10));
+        xAxis.setLabel("Recorded At (" + series.resolution.name().toLowerCase() + ")");
+        xAxis.setTickLabelFormatter(new StringConverter<Number>() {
+            @Override
+            public String toString(Number millis) {
+                return Instant.ofEpochMilli(millis.longValue()).atZone(ZoneId.systemDefault()).toLocalDate().toString();
+            }
+
+            @Override
+            public Number fromString(String text) {
+                return LocalDate.parse(text).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+        });
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setLabel(series.field.label);
+
+        LineChart<Number, Number> lineChart = new LineChart<>(xAxis, yAxis);
+        lineChart.setCreateSymbols(false);
+        lineChart.setAnimated(false);
+        lineChart.setLegendVisible(false);
+        Runnable redraw = () -> {
+            int pixels = (int) Math.max(1, xAxis.getWidth() > 0 ? xAxis.getWidth() : TREND_WIDTH);
+            double[][] points = series.decimate(from, to, pixels);
+            List<XYChart.Data<Number, Number>> data = new ArrayList<>(points[0].length);
+            for (int i = 0; i < points[0].length; i++) {
+                data.add(new XYChart.Data<>(points[0][i], points[1][i]));
+            }
+            XYChart.Series<Number, Number> line = new XYChart.Series<>();
+            line.setName(series.field.label);
+            line.getData().setAll(data);
+            lineChart.getData().setAll(Collections.singletonList(line));
+        };
+        redraw.run();
+        xAxis.widthProperty().addListener((obs, oldWidth, newWidth) -> {
+            if (Math.abs(newWidth.doubleValue() - oldWidth.doubleValue()) >= 1) {
+                redraw.run();
+            }
+        });
+
+        VBox vbox = new VBox(lineChart);
+        VBox.setVgrow(lineChart, Priority.ALWAYS);
+        Scene scene = new Scene(vbox, TREND_WIDTH, 450);
+        Stage chartStage = new Stage();
+        chartStage.setTitle(projectName + " - " + series.field.label + " (" + series.size + " points)");
+        chartStage.setScene(scene);
+        chartStage.show();
+    }
+
+    private void showError(String title, String header, Throwable error) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText(header);
+        alert.setContentText(error.getMessage());
+        alert.showAndWait();
+    }
+
     @Override
     public void start(Stage primaryStage) {
         VBox vbox = new VBox();
@@ -114,9 +211,14 @@ public class MetricsManagementApp extends Application {
 
         Button calculateButton = new Button("Calculate Metrics");
         Button chartButton = new Button("Show Metrics Chart");
+        ComboBox<MetricField> metricBox = new ComboBox<>(FXCollections.observableArrayList(MetricField.values()));
+        metricBox.setValue(MetricField.DEFECT_DENSITY);
+        TextField daysField = new TextField();
+        daysField.setPromptText("Trend Range (days)");
+        Button trendButton = new Button("Show Trend");
+        Button collectButton = new Button("Collect From Source");
 
         ListView<String> resultListView = new ListView<>();
-        Metrics currentMetrics = null;
 
         calculateButton.setOnAction(e -> {
             String projectName = projectNameField.getText();
@@ -125,9 +227,10 @@ public class MetricsManagementApp extends Application {
             int defects = Integer.parseInt(defectsField.getText());
             int totalTests = Integer.parseInt(testsField.getText());
 
-            currentMetrics = calculateMetrics(loc, complexity, defects, totalTests);
-            resultListView.getItems().add(currentMetrics.toString());
-            saveMetricsToDatabase(projectName, currentMetrics);
+            Metrics metrics = calculateMetrics(loc, complexity, defects, totalTests);
+            currentMetrics = metrics;
+            resultListView.getItems().add(metrics.toString());
+            DbExecutor.run("saveMetrics", () -> saveMetricsToDatabase(projectName, metrics));
         });
 
         chartButton.setOnAction(e -> {
@@ -141,8 +244,46 @@ public class MetricsManagementApp extends Application {
             }
         });
 
+        trendButton.setOnAction(e -> {
+            String projectName = projectNameField.getText();
+            MetricField field = metricBox.getValue();
+            int days = daysField.getText().isEmpty() ? 30 : Integer.parseInt(daysField.getText());
+            long to = System.currentTimeMillis();
+            long from = to - days * Resolution.DAILY.bucketMillis;
+            DbExecutor.deliver(DbExecutor.supplyLatest("metricsTrend",
+                    () -> metricsStore.query(projectName, field, from, to)),
+                    series -> showTrendChart(projectName, series, from, to));
+        });
+
+        // Fills LOC and complexity from a source tree; defects and tests are taken from the fields when given.
+        collectButton.setOnAction(e -> {
+            DirectoryChooser chooser = new DirectoryChooser();
+            chooser.setTitle("Select Source Directory");
+            File directory = chooser.showDialog(primaryStage);
+            if (directory == null) {
+                return;
+            }
+            String projectName = projectNameField.getText().isEmpty() ? directory.getName() : projectNameField.getText();
+            int defects = defectsField.getText().isEmpty() ? 0 : Integer.parseInt(defectsField.getText());
+            int totalTests = testsField.getText().isEmpty() ? 0 : Integer.parseInt(testsField.getText());
+            DbExecutor.deliver(DbExecutor.supplyLatest("collectSourceMetrics",
+                    () -> new SourceMetricsCollector(directory.toPath()).collect()), source -> {
+                resultListView.getItems().add(source.toString());
+                if (source.linesOfCode == 0) {
+                    return;
+                }
+                locField.setText(String.valueOf(source.linesOfCode));
+                complexityField.setText(String.valueOf(source.cyclomaticComplexity));
+                Metrics metrics = calculateMetrics(source.linesOfCode, source.cyclomaticComplexity, defects, totalTests);
+                currentMetrics = metrics;
+                resultListView.getItems().add(metrics.toString());
+                DbExecutor.run("saveMetrics", () -> saveMetricsToDatabase(projectName, metrics));
+            }, error -> showError("Collection Failed", "Source metrics could not be collected", error));
+        });
+
         vbox.getChildren().addAll(projectNameField, locField, complexityField, defectsField, testsField,
-                                  calculateButton, chartButton, resultListView);
+                                  calculateButton, chartButton, metricBox, daysField, trendButton, collectButton,
+                                  resultListView);
 
         Scene scene = new Scene(vbox, 400, 600);
         primaryStage.setTitle("Metrics Management System");
@@ -5,6 +5,7 @@ USE MetricsManagement;
 CREATE TABLE Metrics (
     id INT AUTO_INCREMENT PRIMARY KEY,
     projectName VARCHAR(100),
+    recordedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
     linesOfCode INT,
     cyclomaticComplexity INT,
     codeCoverage DOUBLE,
@@ -12,3 +13,30 @@ CREATE TABLE Metrics (
     defects INT,
     totalTests INT
 );
+
+-- Range scans for one project's history.
+CREATE INDEX idx_metrics_project_time ON Metrics (projectName, recordedAt);
+
+-- Rollups per project, metric and UTC hour/day. Rows are incremented with
+-- INSERT ... ON DUPLICATE KEY UPDATE in the same transaction as the raw rows.
+CREATE TABLE MetricsHourly (
+    projectName VARCHAR(100) NOT NULL,
+    metric VARCHAR(30) NOT NULL,
+    bucketStart TIMESTAMP NOT NULL,
+    samples INT NOT NULL,
+    total DOUBLE NOT NULL,
+    minValue DOUBLE NOT NULL,
+    maxValue DOUBLE NOT NULL,
+    PRIMARY KEY (projectName, metric, bucketStart)
+);
+
+CREATE TABLE MetricsDaily (
+    projectName VARCHAR(100) NOT NULL,
+    metric VARCHAR(30) NOT NULL,
+    bucketStart TIMESTAMP NOT NULL,
+    samples INT NOT NULL,
+    total DOUBLE NOT NULL,
+    minValue DOUBLE NOT NULL,
+    maxValue DOUBLE NOT NULL,
+    PRIMARY KEY (projectName, metric, bucketStart)
+);
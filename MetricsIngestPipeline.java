@@ -0,0 +1,656 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Headless ingestion of CI metric files into MetricsManagement.
+//
+//   java MetricsIngestPipeline [--parsers N] [--writers N] [--batch N] [--queue N] <file-or-dir>...
+//
+// Accepts CSV (*.csv; optional header naming the columns, otherwise projectName, recordedAt,
+// linesOfCode, cyclomaticComplexity, defects, totalTests) and JSON lines (*.jsonl, *.json; one flat
+// object per line with the same keys). recordedAt is epoch millis or an ISO-8601 instant and
+// defaults to the time of ingestion.
+//
+// Files are parsed in parallel straight from bytes into reusable columnar MetricsBatch buffers;
+// full batches are handed to writer threads through a bounded queue. Parsers take empty batches
+// from a fixed pool, so when the database falls behind they block instead of buffering.
+public class MetricsIngestPipeline {
+
+    private static final int FIELD_PROJECT = 0;
+    private static final int FIELD_RECORDED_AT = 1;
+    private static final int FIELD_LOC = 2;
+    private static final int FIELD_COMPLEXITY = 3;
+    private static final int FIELD_DEFECTS = 4;
+    private static final int FIELD_TESTS = 5;
+    private static final int FIELD_UNKNOWN = -1;
+    private static final String[][] FIELD_NAMES = {
+            {"projectName", "project"},
+            {"recordedAt", "timestamp"},
+            {"linesOfCode", "loc"},
+            {"cyclomaticComplexity", "complexity"},
+            {"defects"},
+            {"totalTests", "tests"}
+    };
+    private static final byte[][][] FIELD_ALIASES = Arrays.stream(FIELD_NAMES)
+            .map(aliases -> Arrays.stream(aliases)
+                    .map(alias -> alias.toLowerCase().getBytes(StandardCharsets.US_ASCII))
+                    .toArray(byte[][]::new))
+            .toArray(byte[][][]::new);
+    private static final int[] DEFAULT_COLUMNS = {FIELD_PROJECT, FIELD_RECORDED_AT, FIELD_LOC, FIELD_COMPLEXITY,
+            FIELD_DEFECTS, FIELD_TESTS};
+    private static final int REQUIRED = (1 << FIELD_PROJECT) | (1 << FIELD_LOC) | (1 << FIELD_COMPLEXITY)
+            | (1 << FIELD_DEFECTS) | (1 << FIELD_TESTS);
+    private static final int MAX_REPORTED_REJECTS = 20;
+
+    private final MetricsStore store;
+    private final int parsers;
+    private final int writers;
+    private final BlockingQueue<MetricsBatch> freeBatches;
+    private final BlockingQueue<MetricsBatch> fullBatches;
+    private final MetricsBatch endOfInput = new MetricsBatch(0);
+
+    private final AtomicLong recordsParsed = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong recordsFailed = new AtomicLong();
+    private final AtomicLong recordsRejected = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    public MetricsIngestPipeline(MetricsStore store, int parsers, int writers, int batchSize, int queueDepth) {
+        this.store = store;
+        this.parsers = parsers;
+        this.writers = writers;
+        // every parser holds one batch it is filling, plus queueDepth waiting and one per writer in flight
+        int poolSize = parsers + writers + queueDepth;
+        this.freeBatches = new ArrayBlockingQueue<>(poolSize);
+        this.fullBatches = new ArrayBlockingQueue<>(poolSize + writers);
+        for (int i = 0; i < poolSize; i++) {
+            freeBatches.add(new MetricsBatch(batchSize));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int parsers = cores;
+        int writers = Math.max(1, Math.min(ConnectionPool.forDatabase("MetricsManagement").metrics().maxSize, cores));
+        int batchSize = BulkInserter.DEFAULT_BATCH_SIZE;
+        int queueDepth = 2 * cores;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--parsers": parsers = Integer.parseInt(args[++i]); break;
+                case "--writers": writers = Integer.parseInt(args[++i]); break;
+                case "--batch": batchSize = Integer.parseInt(args[++i]); break;
+                case "--queue": queueDepth = Integer.parseInt(args[++i]); break;
+                default: inputs.add(Paths.get(args[i]));
+            }
+        }
+        List<Path> files = findInputFiles(inputs);
+        if (files.isEmpty()) {
+            System.err.println("Usage: java MetricsIngestPipeline [--parsers N] [--writers N] [--batch N] [--queue N] <file-or-dir>...");
+            System.exit(2);
+        }
+        MetricsIngestPipeline pipeline = new MetricsIngestPipeline(new MetricsStore("MetricsManagement"),
+                parsers, writers, batchSize, queueDepth);
+        boolean clean = pipeline.run(files);
+        System.exit(clean ? 0 : 1);
+    }
+
+    static List<Path> findInputFiles(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> walk = Files.walk(input)) {
+                    walk.filter(Files::isRegularFile).filter(MetricsIngestPipeline::isSupported).sorted().forEach(files::add);
+                }
+            } else if (Files.isRegularFile(input)) {
+                files.add(input);
+            } else {
+                System.err.println("Skipping missing input: " + input);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isSupported(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".csv") || name.endsWith(".jsonl") || name.endsWith(".json");
+    }
+
+    // Returns true if every record was parsed and written.
+    public boolean run(List<Path> files) throws InterruptedException {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+
+        List<Thread> writerThreads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            Thread writer = new Thread(this::drain, "metrics-writer-" + i);
+            writer.start();
+            writerThreads.add(writer);
+        }
+
+        ExecutorService parserPool = Executors.newFixedThreadPool(parsers);
+        List<Future<?>> parsed = new ArrayList<>();
+        for (Path file : files) {
+            parsed.add(parserPool.submit(() -> {
+                parseFile(file, now);
+                return null;
+            }));
+        }
+        parserPool.shutdown();
+        for (int i = 0; i < parsed.size(); i++) {
+            try {
+                parsed.get(i).get();
+            } catch (ExecutionException e) {
+                filesFailed.incrementAndGet();
+                System.err.println("Failed to read " + files.get(i) + ": " + e.getCause());
+            }
+        }
+        for (int i = 0; i < writers; i++) {
+            fullBatches.put(endOfInput);
+        }
+        for (Thread writer : writerThreads) {
+            writer.join();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Files: " + files.size() +
+                           ", Unreadable: " + filesFailed.get() +
+                           ", Bytes: " + bytesRead.get() +
+                           ", Parsed: " + recordsParsed.get() +
+                           ", Written: " + recordsWritten.get() +
+                           ", Failed: " + recordsFailed.get() +
+                           ", Rejected: " + recordsRejected.get());
+        System.out.println("Elapsed: " + String.format("%.2f", seconds) + " s" +
+                           ", Throughput: " + String.format("%.0f", recordsWritten.get() / Math.max(seconds, 1e-9)) +
+                           " records/sec");
+        System.out.println("Batch writes: " + batchLatency);
+        return filesFailed.get() == 0 && recordsFailed.get() == 0 && recordsRejected.get() == 0;
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                MetricsBatch batch = fullBatches.take();
+                if (batch == endOfInput) {
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    store.write(batch);
+                    recordsWritten.addAndGet(batch.size);
+                } catch (SQLException | RuntimeException e) {
+                    recordsFailed.addAndGet(batch.size);
+                    System.err.println("Batch of " + batch.size + " records failed: " + e.getMessage());
+                } finally {
+                    batchLatency.record(System.nanoTime() - start);
+                    batch.clear();
+                    freeBatches.put(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void parseFile(Path file, long defaultTime) throws IOException, InterruptedException {
+        String name = file.getFileName().toString().toLowerCase();
+        try (InputStream in = Files.newInputStream(file)) {
+            RecordParser parser = new RecordParser(file, in, defaultTime);
+            try {
+                if (name.endsWith(".csv")) {
+                    parser.parseCsv();
+                } else {
+                    parser.parseJsonLines();
+                }
+            } finally {
+                // hand over what was parsed before a read error so the batch returns to the pool
+                parser.flush();
+            }
+        }
+    }
+
+    // Parses one file from a byte buffer into the shared batches. Field values are scanned in
+    // place; only project names become Strings, and the last one seen is reused while it repeats.
+    private final class RecordParser {
+        private final Path file;
+        private final InputStream in;
+        private final long defaultTime;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+        private boolean eof;
+        private int lastByte = '\n';
+
+        private byte[] token = new byte[256];
+        private int tokenLength;
+        private boolean tokenQuoted;
+        private byte[] lastProjectBytes = new byte[0];
+        private String lastProject;
+
+        private int lineNumber;
+        private int seen;
+        private boolean malformed;
+        private String project;
+        private long recordedAt;
+        private long loc;
+        private long complexity;
+        private long defects;
+        private long tests;
+        private MetricsBatch batch;
+
+        RecordParser(Path file, InputStream in, long defaultTime) {
+            this.file = file;
+            this.in = in;
+            this.defaultTime = defaultTime;
+        }
+
+        private int peek() throws IOException {
+            if (position == limit) {
+                if (eof) {
+                    return -1;
+                }
+                limit = in.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    eof = true;
+                    return -1;
+                }
+                bytesRead.addAndGet(limit);
+            }
+            return buffer[position] & 0xFF;
+        }
+
+        private int next() throws IOException {
+            int c = peek();
+            if (c >= 0) {
+                position++;
+            }
+            lastByte = c;
+            return c;
+        }
+
+        private void appendToken(int c) {
+            if (tokenLength == token.length) {
+                token = Arrays.copyOf(token, tokenLength * 2);
+            }
+            token[tokenLength++] = (byte) c;
+        }
+
+        void parseCsv() throws IOException, InterruptedException {
+            int[] columns = DEFAULT_COLUMNS;
+            boolean firstLine = true;
+            while (peek() >= 0) {
+                lineNumber++;
+                beginRecord();
+                int[] header = firstLine ? new int[8] : null;
+                int column = 0;
+                boolean blank = true;
+                while (true) {
+                    int end = readCsvField();
+                    if (tokenLength > 0 || tokenQuoted || end == ',') {
+                        blank = false;
+                    }
+                    if (header != null) {
+                        if (column == header.length) {
+                            header = Arrays.copyOf(header, column * 2);
+                        }
+                        header[column] = fieldOf(token, tokenLength);
+                    }
+                    if (column < columns.length) {
+                        setField(columns[column]);
+                    }
+                    column++;
+                    if (end != ',') {
+                        break;
+                    }
+                }
+                if (header != null) {
+                    firstLine = false;
+                    // a first line naming the LOC column is a header; anything else is data in the default order
+                    int[] named = Arrays.copyOf(header, column);
+                    if (Arrays.stream(named).anyMatch(field -> field == FIELD_LOC)) {
+                        columns = named;
+                        continue;
+                    }
+                }
+                if (!blank) {
+                    endRecord();
+                }
+            }
+        }
+
+        // Reads one field into token; returns the byte that ended it (',', '\n' or -1).
+        private int readCsvField() throws IOException {
+            tokenLength = 0;
+            tokenQuoted = false;
+            int c = next();
+            if (c == '"') {
+                tokenQuoted = true;
+                while ((c = next()) >= 0) {
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            next();
+                        } else {
+                            break;
+                        }
+                    }
+                    appendToken(c);
+                }
+                c = next();
+            }
+            while (c >= 0 && c != ',' && c != '\n') {
+                if (c != '\r') {
+                    appendToken(c);
+                }
+                c = next();
+            }
+            trimToken();
+            return c;
+        }
+
+        void parseJsonLines() throws IOException, InterruptedException {
+            while (peek() >= 0) {
+                lineNumber++;
+                beginRecord();
+                skipWhitespace();
+                int c = next();
+                if (c == '\n' || c < 0) {
+                    continue;
+                }
+                if (c != '{') {
+                    rejectLine("expected '{'");
+                    continue;
+                }
+                boolean ok = parseJsonObject();
+                if (!ok) {
+                    rejectLine("malformed JSON object");
+                    continue;
+                }
+                skipWhitespace();
+                c = next();
+                if (c >= 0 && c != '\n') {
+                    rejectLine("trailing characters after object");
+                    continue;
+                }
+                endRecord();
+            }
+        }
+
+        private boolean parseJsonObject() throws IOException {
+            skipWhitespace();
+            if (peek() == '}') {
+                next();
+                return true;
+            }
+            while (true) {
+                skipWhitespace();
+                if (next() != '"' || !readJsonString()) {
+                    return false;
+                }
+                int field = fieldOf(token, tokenLength);
+                skipWhitespace();
+                if (next() != ':') {
+                    return false;
+                }
+                skipWhitespace();
+                int c = peek();
+                if (c == '"') {
+                    next();
+                    if (!readJsonString()) {
+                        return false;
+                    }
+                    tokenQuoted = true;
+                } else if (c == '{' || c == '[') {
+                    return false;
+                } else {
+                    tokenLength = 0;
+                    tokenQuoted = false;
+                    while ((c = peek()) >= 0 && c != ',' && c != '}' && c != '\n' && c != ' ' && c != '\t' && c != '\r') {
+                        appendToken(next());
+                    }
+                    if (tokenLength == 4 && token[0] == 'n' && token[1] == 'u' && token[2] == 'l' && token[3] == 'l') {
+                        tokenLength = 0;
+                    }
+                }
+                if (field != FIELD_UNKNOWN && (tokenLength > 0 || tokenQuoted)) {
+                    setField(field);
+                }
+                skipWhitespace();
+                c = next();
+                if (c == '}') {
+                    return true;
+                }
+                if (c != ',') {
+                    return false;
+                }
+            }
+        }
+
+        // Reads the rest of a JSON string (opening quote already consumed) into token.
+        private boolean readJsonString() throws IOException {
+            tokenLength = 0;
+            int c;
+            while ((c = next()) >= 0 && c != '"' && c != '\n') {
+                if (c == '\\') {
+                    c = next();
+                    switch (c) {
+                        case 'n': c = '\n'; break;
+                        case 't': c = '\t'; break;
+                        case 'r': c = '\r'; break;
+                        case 'b': c = '\b'; break;
+                        case 'f': c = '\f'; break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(next(), 16);
+                                if (digit < 0) {
+                                    return false;
+                                }
+                                code = code * 16 + digit;
+                            }
+                            for (byte b : new String(Character.toChars(code)).getBytes(StandardCharsets.UTF_8)) {
+                                appendToken(b & 0xFF);
+                            }
+                            continue;
+                        case '"':
+                        case '\\':
+                        case '/':
+                            break;
+                        default:
+                            return false;
+                    }
+                }
+                appendToken(c);
+            }
+            return c == '"';
+        }
+
+        private void skipWhitespace() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\t' || c == '\r') {
+                next();
+            }
+        }
+
+        private void skipLine() throws IOException {
+            int c;
+            while ((c = next()) >= 0 && c != '\n') {
+                // discard the rest of a rejected line
+            }
+        }
+
+        private void trimToken() {
+            int from = 0;
+            while (from < tokenLength && token[from] == ' ') {
+                from++;
+            }
+            while (tokenLength > from && token[tokenLength - 1] == ' ') {
+                tokenLength--;
+            }
+            if (from > 0) {
+                System.arraycopy(token, from, token, 0, tokenLength - from);
+                tokenLength -= from;
+            }
+        }
+
+        private void beginRecord() {
+            seen = 0;
+            malformed = false;
+            recordedAt = defaultTime;
+        }
+
+        private void setField(int field) {
+            if (field == FIELD_UNKNOWN) {
+                return;
+            }
+            if (tokenLength == 0 && field != FIELD_PROJECT) {
+                return;
+            }
+            switch (field) {
+                case FIELD_PROJECT:
+                    project = projectName();
+                    break;
+                case FIELD_RECORDED_AT:
+                    recordedAt = parseTime();
+                    break;
+                case FIELD_LOC:
+                    loc = parseLong();
+                    break;
+                case FIELD_COMPLEXITY:
+                    complexity = parseLong();
+                    break;
+                case FIELD_DEFECTS:
+                    defects = parseLong();
+                    break;
+                default:
+                    tests = parseLong();
+            }
+            seen |= 1 << field;
+        }
+
+        private String projectName() {
+            if (lastProject != null && Arrays.equals(token, 0, tokenLength, lastProjectBytes, 0, lastProjectBytes.length)) {
+                return lastProject;
+            }
+            lastProjectBytes = Arrays.copyOf(token, tokenLength);
+            lastProject = new String(lastProjectBytes, StandardCharsets.UTF_8);
+            return lastProject;
+        }
+
+        private long parseLong() {
+            long value = 0;
+            int i = 0;
+            boolean negative = tokenLength > 0 && token[0] == '-';
+            if (negative) {
+                i++;
+            }
+            if (i == tokenLength) {
+                malformed = true;
+                return 0;
+            }
+            for (; i < tokenLength; i++) {
+                int digit = token[i] - '0';
+                if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                    malformed = true;
+                    return 0;
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        private long parseTime() {
+            boolean numeric = true;
+            for (int i = 0; i < tokenLength && numeric; i++) {
+                numeric = token[i] >= '0' && token[i] <= '9';
+            }
+            if (numeric) {
+                return parseLong();
+            }
+            try {
+                return Instant.parse(new String(token, 0, tokenLength, StandardCharsets.US_ASCII)).toEpochMilli();
+            } catch (DateTimeParseException e) {
+                malformed = true;
+                return 0;
+            }
+        }
+
+        private void endRecord() throws InterruptedException {
+            if (malformed || (seen & REQUIRED) != REQUIRED) {
+                reject(malformed ? "unparseable value" : "missing fields");
+                return;
+            }
+            if (loc <= 0 || loc > Integer.MAX_VALUE || complexity < 0 || complexity > Integer.MAX_VALUE
+                    || defects < 0 || defects > Integer.MAX_VALUE || tests < 0 || tests > Integer.MAX_VALUE) {
+                reject("value out of range");
+                return;
+            }
+            if (batch == null) {
+                batch = freeBatches.take();
+            }
+            int linesOfCode = (int) loc;
+            batch.add(project, recordedAt, linesOfCode, (int) complexity,
+                    Metrics.codeCoverage((int) tests, linesOfCode), Metrics.defectDensity((int) defects, linesOfCode),
+                    (int) defects, (int) tests);
+            recordsParsed.incrementAndGet();
+            if (batch.isFull()) {
+                fullBatches.put(batch);
+                batch = null;
+            }
+        }
+
+        void flush() throws InterruptedException {
+            if (batch != null) {
+                if (batch.size > 0) {
+                    fullBatches.put(batch);
+                } else {
+                    freeBatches.put(batch);
+                }
+                batch = null;
+            }
+        }
+
+        private void rejectLine(String reason) throws IOException {
+            if (lastByte != '\n' && lastByte >= 0) {
+                skipLine();
+            }
+            reject(reason);
+        }
+
+        private void reject(String reason) {
+            if (recordsRejected.incrementAndGet() <= MAX_REPORTED_REJECTS) {
+                System.err.println(file + ":" + lineNumber + ": rejected (" + reason + ")");
+            }
+        }
+    }
+
+    // Case-insensitive match of an ASCII field name against the known aliases, without decoding it.
+    private static int fieldOf(byte[] name, int length) {
+        for (int field = 0; field < FIELD_ALIASES.length; field++) {
+            for (byte[] alias : FIELD_ALIASES[field]) {
+                if (alias.length != length) {
+                    continue;
+                }
+                int i = 0;
+                while (i < length && Character.toLowerCase(name[i]) == alias[i]) {
+                    i++;
+                }
+                if (i == length) {
+                    return field;
+                }
+            }
+        }
+        return FIELD_UNKNOWN;
+    }
+}
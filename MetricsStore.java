@@ -0,0 +1,380 @@
+import java.sql.*;
+import java.util.*;
+
+enum MetricField {
+    LINES_OF_CODE("linesOfCode", "Lines of Code"),
+    CYCLOMATIC_COMPLEXITY("cyclomaticComplexity", "Cyclomatic Complexity"),
+    CODE_COVERAGE("codeCoverage", "Code Coverage"),
+    DEFECT_DENSITY("defectDensity", "Defect Density"),
+    DEFECTS("defects", "Defects"),
+    TOTAL_TESTS("totalTests", "Total Tests");
+
+    final String column;
+    final String label;
+
+    MetricField(String column, String label) {
+        this.column = column;
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
+
+enum Resolution {
+    RAW(0, "Metrics"),
+    HOURLY(3_600_000L, "MetricsHourly"),
+    DAILY(86_400_000L, "MetricsDaily");
+
+    final long bucketMillis;
+    final String table;
+
+    Resolution(long bucketMillis, String table) {
+        this.bucketMillis = bucketMillis;
+        this.table = table;
+    }
+
+    // Buckets are aligned to UTC hours and days.
+    long bucketStart(long millis) {
+        return Math.floorDiv(millis, bucketMillis) * bucketMillis;
+    }
+}
+
+// One metric of one project over time, held as parallel primitive columns in time order. Raw
+// points have min == max == mean; rollup points carry the bucket's extremes and average.
+class TimeSeries {
+    final MetricField field;
+    final Resolution resolution;
+    final int size;
+    final long[] times;
+    final double[] min;
+    final double[] max;
+    final double[] mean;
+
+    TimeSeries(MetricField field, Resolution resolution, int size, long[] times, double[] min, double[] max,
+               double[] mean) {
+        this.field = field;
+        this.resolution = resolution;
+        this.size = size;
+        this.times = times;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+    }
+
+    // Min/max decimation: the range is cut into one bucket per pixel and each bucket contributes its
+    // lowest and highest point in the order they occur, so spikes survive however many points share
+    // a pixel. Returns {x[], y[]} with at most 2 * pixels points.
+    double[][] decimate(long from, long to, int pixels) {
+        int first = lowerBound(from);
+        int last = lowerBound(to);
+        if (last - first <= 2 * pixels) {
+            double[] x = new double[last - first];
+            double[] y = new double[last - first];
+            for (int i = first; i < last; i++) {
+                x[i - first] = times[i];
+                y[i - first] = mean[i];
+            }
+            return new double[][]{x, y};
+        }
+        double[] x = new double[2 * pixels];
+        double[] y = new double[2 * pixels];
+        int count = 0;
+        double span = Math.max(1, to - from);
+        int i = first;
+        for (int pixel = 0; pixel < pixels && i < last; pixel++) {
+            long pixelEnd = from + (long) Math.ceil(span * (pixel + 1) / pixels);
+            int lowIndex = -1;
+            int highIndex = -1;
+            for (; i < last && (times[i] < pixelEnd || pixel == pixels - 1); i++) {
+                if (lowIndex < 0 || min[i] < min[lowIndex]) {
+                    lowIndex = i;
+                }
+                if (highIndex < 0 || max[i] > max[highIndex]) {
+                    highIndex = i;
+                }
+            }
+            if (lowIndex < 0) {
+                continue;
+            }
+            int firstPoint = Math.min(lowIndex, highIndex);
+            int secondPoint = Math.max(lowIndex, highIndex);
+            x[count] = times[firstPoint];
+            y[count++] = firstPoint == lowIndex ? min[firstPoint] : max[firstPoint];
+            if (secondPoint != firstPoint || min[lowIndex] != max[highIndex]) {
+                x[count] = times[secondPoint];
+                y[count++] = secondPoint == highIndex ? max[secondPoint] : min[secondPoint];
+            }
+        }
+        return new double[][]{Arrays.copyOf(x, count), Arrays.copyOf(y, count)};
+    }
+
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
+
+// A batch of metric records in columnar form, reused between flushes so ingesting does not
+// allocate an object per record.
+class MetricsBatch {
+    String[] projectNames;
+    long[] recordedAt;
+    int[] loc;
+    int[] complexity;
+    double[] coverage;
+    double[] defectDensity;
+    int[] defects;
+    int[] totalTests;
+    int size;
+
+    MetricsBatch(int capacity) {
+        projectNames = new String[capacity];
+        recordedAt = new long[capacity];
+        loc = new int[capacity];
+        complexity = new int[capacity];
+        coverage = new double[capacity];
+        defectDensity = new double[capacity];
+        defects = new int[capacity];
+        totalTests = new int[capacity];
+    }
+
+    int capacity() {
+        return recordedAt.length;
+    }
+
+    boolean isFull() {
+        return size == recordedAt.length;
+    }
+
+    void clear() {
+        Arrays.fill(projectNames, 0, size, null);
+        size = 0;
+    }
+
+    void add(String projectName, long time, Metrics metrics) {
+        add(projectName, time, metrics.getLoc(), metrics.getCyclomaticComplexity(), metrics.getCodeCoverage(),
+                metrics.getDefectDensity(), metrics.getDefects(), metrics.getTotalTests());
+    }
+
+    void add(String projectName, long time, int linesOfCode, int cyclomaticComplexity, double codeCoverage,
+             double density, int defectCount, int tests) {
+        int i = size++;
+        projectNames[i] = projectName == null ? "" : projectName;
+        recordedAt[i] = time;
+        loc[i] = linesOfCode;
+        complexity[i] = cyclomaticComplexity;
+        coverage[i] = codeCoverage;
+        defectDensity[i] = density;
+        defects[i] = defectCount;
+        totalTests[i] = tests;
+    }
+
+    double value(int i, MetricField field) {
+        switch (field) {
+            case LINES_OF_CODE: return loc[i];
+            case CYCLOMATIC_COMPLEXITY: return complexity[i];
+            case CODE_COVERAGE: return coverage[i];
+            case DEFECT_DENSITY: return defectDensity[i];
+            case DEFECTS: return defects[i];
+            default: return totalTests[i];
+        }
+    }
+}
+
+// Time-series storage for build metrics. Raw rows go to Metrics keyed by (projectName, recordedAt);
+// every write also folds the values into hourly and daily rollups (samples, total, min, max per
+// project, metric and bucket) in the same transaction. Range queries read from the finest table
+// whose row count for the range stays under MAX_POINTS.
+public class MetricsStore {
+
+    // Above this many points a range is served from the next coarser resolution.
+    private static final int MAX_POINTS = Integer.getInteger("metrics.maxPoints", 50_000);
+
+    private static final String INSERT_RAW = "INSERT INTO Metrics (projectName, recordedAt, linesOfCode, " +
+            "cyclomaticComplexity, codeCoverage, defectDensity, defects, totalTests) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_ROLLUP = " (projectName, metric, bucketStart, samples, total, minValue, maxValue) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE samples = samples + VALUES(samples), " +
+            "total = total + VALUES(total), minValue = LEAST(minValue, VALUES(minValue)), " +
+            "maxValue = GREATEST(maxValue, VALUES(maxValue))";
+
+    private final String database;
+
+    public MetricsStore(String database) {
+        this.database = database;
+    }
+
+    public void record(String projectName, long recordedAt, Metrics metrics) throws SQLException {
+        MetricsBatch batch = new MetricsBatch(1);
+        batch.add(projectName, recordedAt, metrics);
+        write(batch);
+    }
+
+    // Writes the raw rows and their rollup increments as one transaction.
+    public void write(MetricsBatch batch) throws SQLException {
+        if (batch.size == 0) {
+            return;
+        }
+        try (Connection conn = ConnectionPool.getConnection(database)) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement(INSERT_RAW)) {
+                    for (int i = 0; i < batch.size; i++) {
+                        pstmt.setString(1, batch.projectNames[i]);
+                        pstmt.setTimestamp(2, new Timestamp(batch.recordedAt[i]));
+                        pstmt.setInt(3, batch.loc[i]);
+                        pstmt.setInt(4, batch.complexity[i]);
+                        pstmt.setDouble(5, batch.coverage[i]);
+                        pstmt.setDouble(6, batch.defectDensity[i]);
+                        pstmt.setInt(7, batch.defects[i]);
+                        pstmt.setInt(8, batch.totalTests[i]);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                upsertRollup(conn, Resolution.HOURLY, batch);
+                upsertRollup(conn, Resolution.DAILY, batch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Pre-aggregates the batch per (project, metric, bucket) so each rollup row is touched once, and
+    // writes them in key order so concurrent writers lock rows in the same order.
+    private static void upsertRollup(Connection conn, Resolution resolution, MetricsBatch batch) throws SQLException {
+        TreeMap<RollupKey, double[]> buckets = new TreeMap<>();
+        MetricField[] fields = MetricField.values();
+        for (int i = 0; i < batch.size; i++) {
+            long bucket = resolution.bucketStart(batch.recordedAt[i]);
+            for (MetricField field : fields) {
+                double value = batch.value(i, field);
+                double[] agg = buckets.computeIfAbsent(new RollupKey(batch.projectNames[i], field, bucket),
+                        k -> new double[]{0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+                agg[0]++;
+                agg[1] += value;
+                agg[2] = Math.min(agg[2], value);
+                agg[3] = Math.max(agg[3], value);
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO " + resolution.table + UPSERT_ROLLUP)) {
+            for (Map.Entry<RollupKey, double[]> entry : buckets.entrySet()) {
+                RollupKey key = entry.getKey();
+                double[] agg = entry.getValue();
+                pstmt.setString(1, key.projectName);
+                pstmt.setString(2, key.field.column);
+                pstmt.setTimestamp(3, new Timestamp(key.bucketStart));
+                pstmt.setInt(4, (int) agg[0]);
+                pstmt.setDouble(5, agg[1]);
+                pstmt.setDouble(6, agg[2]);
+                pstmt.setDouble(7, agg[3]);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Raw rows if the range holds few enough of them, otherwise hourly, otherwise daily buckets.
+    public Resolution chooseResolution(String projectName, long from, long to) throws SQLException {
+        if ((to - from) / Resolution.HOURLY.bucketMillis <= MAX_POINTS
+                && countRaw(projectName, from, to) <= MAX_POINTS) {
+            return Resolution.RAW;
+        }
+        if ((to - from) / Resolution.HOURLY.bucketMillis <= MAX_POINTS) {
+            return Resolution.HOURLY;
+        }
+        return Resolution.DAILY;
+    }
+
+    private int countRaw(String projectName, long from, long to) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM Metrics WHERE projectName = ? AND recordedAt >= ? AND recordedAt < ?";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, projectName);
+            pstmt.setTimestamp(2, new Timestamp(from));
+            pstmt.setTimestamp(3, new Timestamp(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    public TimeSeries query(String projectName, MetricField field, long from, long to) throws SQLException {
+        return query(projectName, field, from, to, chooseResolution(projectName, from, to));
+    }
+
+    public TimeSeries query(String projectName, MetricField field, long from, long to, Resolution resolution)
+            throws SQLException {
+        String sql = resolution == Resolution.RAW
+                ? "SELECT recordedAt, " + field.column + ", " + field.column + ", " + field.column +
+                  " FROM Metrics WHERE projectName = ? AND recordedAt >= ? AND recordedAt < ? ORDER BY recordedAt"
+                : "SELECT bucketStart, minValue, maxValue, total / samples FROM " + resolution.table +
+                  " WHERE projectName = ? AND metric = '" + field.column + "' AND bucketStart >= ? AND bucketStart < ?" +
+                  " ORDER BY bucketStart";
+        long[] times = new long[1024];
+        double[] min = new double[1024];
+        double[] max = new double[1024];
+        double[] mean = new double[1024];
+        int size = 0;
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, projectName);
+            pstmt.setTimestamp(2, new Timestamp(resolution == Resolution.RAW ? from : resolution.bucketStart(from)));
+            pstmt.setTimestamp(3, new Timestamp(to));
+            pstmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (size == times.length) {
+                        int capacity = size * 2;
+                        times = Arrays.copyOf(times, capacity);
+                        min = Arrays.copyOf(min, capacity);
+                        max = Arrays.copyOf(max, capacity);
+                        mean = Arrays.copyOf(mean, capacity);
+                    }
+                    times[size] = rs.getTimestamp(1).getTime();
+                    min[size] = rs.getDouble(2);
+                    max[size] = rs.getDouble(3);
+                    mean[size] = rs.getDouble(4);
+                    size++;
+                }
+            }
+        }
+        return new TimeSeries(field, resolution, size, times, min, max, mean);
+    }
+
+    private static final class RollupKey implements Comparable<RollupKey> {
+        final String projectName;
+        final MetricField field;
+        final long bucketStart;
+
+        RollupKey(String projectName, MetricField field, long bucketStart) {
+            this.projectName = projectName;
+            this.field = field;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public int compareTo(RollupKey other) {
+            int c = projectName.compareTo(other.projectName);
+            if (c == 0) {
+                c = field.column.compareTo(other.field.column);
+            }
+            return c != 0 ? c : Long.compare(bucketStart, other.bucketStart);
+        }
+    }
+}
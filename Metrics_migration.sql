@@ -0,0 +1,83 @@
+-- Upgrades a MetricsManagement database created by an older Metrics.sql, which itself creates the
+-- current schema on a fresh server. Run once: mysql < Metrics_migration.sql
+
+USE MetricsManagement;
+
+-- Metrics as a time series with hourly and daily rollups. Rows recorded before this have no time
+-- of their own and are dated at the migration.
+ALTER TABLE Metrics ADD COLUMN recordedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) AFTER projectName;
+CREATE INDEX idx_metrics_project_time ON Metrics (projectName, recordedAt);
+
+CREATE TABLE IF NOT EXISTS MetricsHourly (
+    projectName VARCHAR(100) NOT NULL,
+    metric VARCHAR(30) NOT NULL,
+    bucketStart TIMESTAMP NOT NULL,
+    samples INT NOT NULL,
+    total DOUBLE NOT NULL,
+    minValue DOUBLE NOT NULL,
+    maxValue DOUBLE NOT NULL,
+    PRIMARY KEY (projectName, metric, bucketStart)
+);
+
+CREATE TABLE IF NOT EXISTS MetricsDaily (
+    projectName VARCHAR(100) NOT NULL,
+    metric VARCHAR(30) NOT NULL,
+    bucketStart TIMESTAMP NOT NULL,
+    samples INT NOT NULL,
+    total DOUBLE NOT NULL,
+    minValue DOUBLE NOT NULL,
+    maxValue DOUBLE NOT NULL,
+    PRIMARY KEY (projectName, metric, bucketStart)
+);
+
+-- The rows above all fall into the migration's hour and day; fold them into the rollups so ranges
+-- served from MetricsHourly and MetricsDaily include them.
+INSERT INTO MetricsHourly (projectName, metric, bucketStart, samples, total, minValue, maxValue)
+SELECT projectName, 'linesOfCode', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 3600) * 3600), COUNT(*),
+       SUM(linesOfCode), MIN(linesOfCode), MAX(linesOfCode)
+FROM Metrics WHERE linesOfCode IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'cyclomaticComplexity', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 3600) * 3600), COUNT(*),
+       SUM(cyclomaticComplexity), MIN(cyclomaticComplexity), MAX(cyclomaticComplexity)
+FROM Metrics WHERE cyclomaticComplexity IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'codeCoverage', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 3600) * 3600), COUNT(*),
+       SUM(codeCoverage), MIN(codeCoverage), MAX(codeCoverage)
+FROM Metrics WHERE codeCoverage IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'defectDensity', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 3600) * 3600), COUNT(*),
+       SUM(defectDensity), MIN(defectDensity), MAX(defectDensity)
+FROM Metrics WHERE defectDensity IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'defects', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 3600) * 3600), COUNT(*),
+       SUM(defects), MIN(defects), MAX(defects)
+FROM Metrics WHERE defects IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'totalTests', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 3600) * 3600), COUNT(*),
+       SUM(totalTests), MIN(totalTests), MAX(totalTests)
+FROM Metrics WHERE totalTests IS NOT NULL GROUP BY 1, 3;
+
+INSERT INTO MetricsDaily (projectName, metric, bucketStart, samples, total, minValue, maxValue)
+SELECT projectName, 'linesOfCode', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 86400) * 86400), COUNT(*),
+       SUM(linesOfCode), MIN(linesOfCode), MAX(linesOfCode)
+FROM Metrics WHERE linesOfCode IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'cyclomaticComplexity', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 86400) * 86400), COUNT(*),
+       SUM(cyclomaticComplexity), MIN(cyclomaticComplexity), MAX(cyclomaticComplexity)
+FROM Metrics WHERE cyclomaticComplexity IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'codeCoverage', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 86400) * 86400), COUNT(*),
+       SUM(codeCoverage), MIN(codeCoverage), MAX(codeCoverage)
+FROM Metrics WHERE codeCoverage IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'defectDensity', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 86400) * 86400), COUNT(*),
+       SUM(defectDensity), MIN(defectDensity), MAX(defectDensity)
+FROM Metrics WHERE defectDensity IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'defects', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 86400) * 86400), COUNT(*),
+       SUM(defects), MIN(defects), MAX(defects)
+FROM Metrics WHERE defects IS NOT NULL GROUP BY 1, 3
+UNION ALL
+SELECT projectName, 'totalTests', FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(recordedAt) / 86400) * 86400), COUNT(*),
+       SUM(totalTests), MIN(totalTests), MAX(totalTests)
+FROM Metrics WHERE totalTests IS NOT NULL GROUP BY 1, 3;
@@ -70,7 +70,7 @@ public class ProcessModelsApp extends Application {
 
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/ProcessModels", "root", "password");
+            return ConnectionPool.getConnection("ProcessModels");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
@@ -118,27 +118,6 @@ public class ProcessModelsApp extends Application {
         }
     }
 
-    private List<Phase> getPhasesFromDatabase() {
-        List<Phase> phases = new ArrayList<>();
-        String sql = "SELECT * FROM ProcessPhases";
-        try (Connection conn = connectDB();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Phase phase = new Phase(
-                        rs.getString("modelName"),
-                        rs.getString("phaseName"),
-                        rs.getDouble("progress"),
-                        rs.getString("status")
-                );
-                phases.add(phase);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return phases;
-    }
-
     @Override
     public void start(Stage primaryStage) {
         VBox vbox = new VBox();
@@ -155,6 +134,7 @@ public class ProcessModelsApp extends Application {
         Button viewPhasesButton = new Button("View Phases");
 
         ListView<String> resultListView = new ListView<>();
+        LazyPagedList.closeOnReplace(resultListView);
 
         addPhaseButton.setOnAction(e -> {
             String modelName = modelNameField.getText();
@@ -163,7 +143,7 @@ public class ProcessModelsApp extends Application {
             String status = statusField.getText();
 
             Phase phase = new Phase(modelName, phaseName, progress, status);
-            addPhaseToDatabase(phase);
+            DbExecutor.run("addPhase", () -> addPhaseToDatabase(phase));
 
             modelNameField.clear();
             phaseNameField.clear();
@@ -172,11 +152,14 @@ public class ProcessModelsApp extends Application {
         });
 
         viewPhasesButton.setOnAction(e -> {
-            resultListView.getItems().clear();
-            List<Phase> phases = getPhasesFromDatabase();
-            for (Phase phase : phases) {
-                resultListView.getItems().add(phase.toString());
-            }
+            resultListView.setItems(new LazyPagedList("ProcessModels", "ProcessPhases", "id",
+                    "modelName, phaseName, progress, status",
+                    rs -> new Phase(
+                            rs.getString("modelName"),
+                            rs.getString("phaseName"),
+                            rs.getDouble("progress"),
+                            rs.getString("status")
+                    ).toString()).load());
         });
 
         vbox.getChildren().addAll(modelNameField, phaseNameField, progressField, statusField, addPhaseButton,
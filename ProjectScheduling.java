@@ -1,10 +1,14 @@
 import javafx.application.Application;
 import javafx.scene.Scene;
-import javafx.scene.chart.*;
 import javafx.scene.control.*;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.*;
@@ -32,6 +36,22 @@ class Task {
         return id;
     }
 
+    public String getName() {
+        return name;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    public String getAssignedResource() {
+        return assignedResource;
+    }
+
     public LocalDate calculateEndDate(LocalDate startDate) {
         this.startDate = startDate;
         this.endDate = startDate.plusDays(duration);
@@ -50,45 +70,125 @@ class Task {
 
 public class ProjectSchedulingApp extends Application {
 
+    private IncrementalScheduler incrementalScheduler;
+    private LocalDate scheduleStartDate;
+
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/ProjectScheduling", "root", "password");
+            return ConnectionPool.getConnection("ProjectScheduling");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    private void addTaskToDatabase(String id, String name, int duration, String dependencies, String resource) {
+    private void insertDependencies(Connection conn, String id, List<String> dependencies) throws SQLException {
+        String sql = "INSERT IGNORE INTO TaskDependencies (taskId, dependsOn) VALUES (?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (String dependency : dependencies) {
+                pstmt.setString(1, id);
+                pstmt.setString(2, dependency);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private void addTaskToDatabase(String id, String name, int duration, String dependencies, String resource)
+            throws SQLException {
         String sql = "INSERT INTO Tasks (id, name, duration, dependencies, assignedResource, startDate, endDate) VALUES (?, ?, ?, ?, ?, null, null)";
-        try (Connection conn = connectDB();
+        try (Connection conn = ConnectionPool.getConnection("ProjectScheduling");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
             pstmt.setString(1, id);
             pstmt.setString(2, name);
             pstmt.setInt(3, duration);
             pstmt.setString(4, dependencies);
             pstmt.setString(5, resource);
             pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            insertDependencies(conn, id, TaskGraph.parseDependencies(dependencies));
+            conn.commit();
+        }
+    }
+
+    private void updateTaskInDatabase(String id, int duration, String dependencies) throws SQLException {
+        String sql = "UPDATE Tasks SET duration = ?, dependencies = ? WHERE id = ?";
+        try (Connection conn = ConnectionPool.getConnection("ProjectScheduling");
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             PreparedStatement deleteEdges = conn.prepareStatement("DELETE FROM TaskDependencies WHERE taskId = ?")) {
+            conn.setAutoCommit(false);
+            pstmt.setInt(1, duration);
+            pstmt.setString(2, dependencies);
+            pstmt.setString(3, id);
+            if (pstmt.executeUpdate() == 0) {
+                throw new SQLException("No task with id " + id);
+            }
+            deleteEdges.setString(1, id);
+            deleteEdges.executeUpdate();
+            insertDependencies(conn, id, TaskGraph.parseDependencies(dependencies));
+            conn.commit();
         }
     }
 
+    private BulkResult writeScheduleDates(int[] tasks) {
+        String sql = "UPDATE Tasks SET startDate = ?, endDate = ? WHERE id = ?";
+        BulkInserter<Integer> writer = new BulkInserter<>("ProjectScheduling", sql, (pstmt, task) -> {
+            pstmt.setDate(1, java.sql.Date.valueOf(scheduleStartDate.plusDays(incrementalScheduler.earliestStart(task))));
+            pstmt.setDate(2, java.sql.Date.valueOf(scheduleStartDate.plusDays(incrementalScheduler.earliestFinish(task))));
+            pstmt.setString(3, incrementalScheduler.idOf(task));
+        });
+        return writer.insertAll(Arrays.stream(tasks).boxed().iterator());
+    }
+
+    // The dates are derived from the in-memory schedule, which stays right, so a failed write is
+    // reported rather than undone; the next schedule run writes them again.
+    private static BulkResult requireWritten(BulkResult result) throws SQLException {
+        if (result.hasErrors()) {
+            throw result.errors.get(0).cause;
+        }
+        return result;
+    }
+
+    // Loads a tracker export through BulkImport; an existing schedule is rebuilt to take the new tasks in.
+    private BulkResult importTasks(Path file) throws IOException, SQLException {
+        BulkResult result = BulkImport.importFile(BulkImport.Target.TASKS, file, BulkInserter.DEFAULT_BATCH_SIZE);
+        synchronized (this) {
+            if (incrementalScheduler != null) {
+                scheduleTasks(getAllTasksFromDatabase());
+            }
+        }
+        return result;
+    }
+
+    // Dependencies come from the TaskDependencies edge table; the LEFT JOIN yields one row per edge,
+    // ordered by task so each task's edges arrive together.
     private List<Task> getAllTasksFromDatabase() {
         List<Task> tasks = new ArrayList<>();
-        String sql = "SELECT * FROM Tasks";
+        String sql = "SELECT t.id, t.name, t.duration, t.assignedResource, d.dependsOn " +
+                     "FROM Tasks t LEFT JOIN TaskDependencies d ON d.taskId = t.id ORDER BY t.id";
         try (Connection conn = connectDB();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
+            String currentId = null;
+            List<String> dependencies = null;
             while (rs.next()) {
-                Task task = new Task(
-                        rs.getString("id"),
-                        rs.getString("name"),
-                        rs.getInt("duration"),
-                        Arrays.asList(rs.getString("dependencies").split(",")),
-                        rs.getString("assignedResource")
-                );
-                tasks.add(task);
+                String id = rs.getString("id");
+                if (!id.equals(currentId)) {
+                    currentId = id;
+                    dependencies = new ArrayList<>();
+                    Task task = new Task(
+                            id,
+                            rs.getString("name"),
+                            rs.getInt("duration"),
+                            dependencies,
+                            rs.getString("assignedResource")
+                    );
+                    tasks.add(task);
+                }
+                String dependsOn = rs.getString("dependsOn");
+                if (dependsOn != null) {
+                    dependencies.add(dependsOn);
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -96,41 +196,150 @@ public class ProjectSchedulingApp extends Application {
         return tasks;
     }
 
-    private void scheduleTasks(List<Task> tasks) {
-        Map<String, LocalDate> schedule = new HashMap<>();
-        LocalDate projectStartDate = LocalDate.now();
-        for (Task task : tasks) {
-            LocalDate startDate = projectStartDate;
-            for (String dependency : task.dependencies) {
-                LocalDate dependencyEndDate = schedule.get(dependency);
-                if (dependencyEndDate != null && dependencyEndDate.isAfter(startDate)) {
-                    startDate = dependencyEndDate;
+    private List<String> getPredecessorsFromDatabase(String id) {
+        return queryTaskIds("SELECT dependsOn FROM TaskDependencies WHERE taskId = ?", id);
+    }
+
+    private List<String> getSuccessorsFromDatabase(String id) {
+        return queryTaskIds("SELECT taskId FROM TaskDependencies WHERE dependsOn = ?", id);
+    }
+
+    // UNION (not UNION ALL) stops the recursion on ids already visited, so a cycle cannot loop forever.
+    private List<String> getAllDependentsFromDatabase(String id) {
+        String sql = "WITH RECURSIVE downstream (taskId) AS (" +
+                     " SELECT taskId FROM TaskDependencies WHERE dependsOn = ?" +
+                     " UNION" +
+                     " SELECT d.taskId FROM TaskDependencies d JOIN downstream ds ON d.dependsOn = ds.taskId" +
+                     ") SELECT taskId FROM downstream";
+        return queryTaskIds(sql, id);
+    }
+
+    private List<String> getAllPrerequisitesFromDatabase(String id) {
+        String sql = "WITH RECURSIVE upstream (taskId) AS (" +
+                     " SELECT dependsOn FROM TaskDependencies WHERE taskId = ?" +
+                     " UNION" +
+                     " SELECT d.dependsOn FROM TaskDependencies d JOIN upstream us ON d.taskId = us.taskId" +
+                     ") SELECT taskId FROM upstream";
+        return queryTaskIds(sql, id);
+    }
+
+    private List<String> queryTaskIds(String sql, String id) {
+        List<String> ids = new ArrayList<>();
+        try (Connection conn = connectDB();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getString(1));
                 }
             }
-            LocalDate endDate = task.calculateEndDate(startDate);
-            schedule.put(task.getId(), endDate);
+        } catch (SQLException e) {
+            e.printStackTrace();
         }
-        System.out.println("--- Project Schedule ---");
+        return ids;
+    }
+
+    private ResourceCalendar[] getResourceCalendarsFromDatabase(LocalDate projectStartDate) {
+        List<ResourceCalendar> calendars = new ArrayList<>();
+        String sql = "SELECT id, availability FROM Resources";
+        try (Connection conn = connectDB();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                calendars.add(ResourceCalendar.parse(rs.getString("id"), rs.getString("availability"), projectStartDate));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return calendars.toArray(new ResourceCalendar[0]);
+    }
+
+    private LeveledSchedule levelResources(List<Task> tasks) {
+        LocalDate projectStartDate = LocalDate.now();
+        ResourceCalendar[] calendars = getResourceCalendarsFromDatabase(projectStartDate);
+        ScheduleResult cpm = CriticalPathScheduler.schedule(TaskGraph.fromTasks(tasks));
+        ResourceLevelingScheduler leveler = new ResourceLevelingScheduler(cpm,
+                ResourceLevelingScheduler.resolveResources(tasks, calendars), calendars);
+        LeveledSchedule best = leveler.bestOf(Arrays.asList(PriorityRules.values()));
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).calculateEndDate(projectStartDate.plusDays(best.start[i]));
+        }
+        System.out.println("--- Resource-Leveled Schedule (" + best + ", unconstrained: " + cpm.projectDuration + " days) ---");
         tasks.forEach(System.out::println);
+        return best;
     }
 
-    private void showGanttChart(Stage primaryStage, List<Task> tasks) {
-        CategoryAxis taskAxis = new CategoryAxis();
-        taskAxis.setLabel("Tasks");
+    // The scheduler only hears of a task once its row is committed, so a failed insert (a duplicate
+    // id, say) leaves memory and the database in step; a cycle is rejected before the insert.
+    private synchronized String addTask(String id, String name, int duration, String dependencies, String resource)
+            throws SQLException {
+        List<String> dependencyIds = TaskGraph.parseDependencies(dependencies);
+        if (incrementalScheduler != null) {
+            incrementalScheduler.checkAdd(id, dependencyIds);
+        }
+        addTaskToDatabase(id, name, duration, dependencies, resource);
+        if (incrementalScheduler == null) {
+            return "Added " + id;
+        }
+        int[] affected = incrementalScheduler.addTask(id, duration, dependencyIds);
+        return "Added " + id + ", rescheduled " + affected.length + " task(s): " + requireWritten(writeScheduleDates(affected));
+    }
 
-        NumberAxis timeAxis = new NumberAxis();
-        timeAxis.setLabel("Timeline (Days)");
+    // A cycle is rejected before anything is written; the scheduler is updated only after the commit.
+    private synchronized String rescheduleTask(String id, int duration, String dependencies) throws SQLException {
+        List<String> dependencyIds = TaskGraph.parseDependencies(dependencies);
+        if (incrementalScheduler == null || !incrementalScheduler.contains(id)) {
+            updateTaskInDatabase(id, duration, dependencies);
+            ScheduleResult result = scheduleTasks(getAllTasksFromDatabase());
+            return "Rescheduled all " + result.graph.size() + " task(s)";
+        }
+        incrementalScheduler.checkUpdate(id, dependencyIds);
+        updateTaskInDatabase(id, duration, dependencies);
+        int[] affected = incrementalScheduler.updateTask(id, duration, dependencyIds);
+        return "Rescheduled " + affected.length + " task(s): " + requireWritten(writeScheduleDates(affected));
+    }
 
-        GanttChart ganttChart = new GanttChart(taskAxis, timeAxis);
+    // Only the first chart schedules from the database; later ones read the incremental scheduler,
+    // which task edits keep current, so opening the chart never rewrites every task's dates.
+    private synchronized ScheduleResult currentOrFreshSchedule() throws SQLException {
+        if (incrementalScheduler == null) {
+            return scheduleTasks(getAllTasksFromDatabase());
+        }
+        return incrementalScheduler.snapshot();
+    }
 
-        for (Task task : tasks) {
-            LocalDate startDate = task.startDate != null ? task.startDate : LocalDate.now();
-            int startDays = (int) startDate.toEpochDay();
-            int endDays = (int) task.endDate.toEpochDay();
-            ganttChart.addData(task.getId(), startDays, endDays);
+    private synchronized ScheduleResult scheduleTasks(List<Task> tasks) throws SQLException {
+        TaskGraph graph = TaskGraph.fromTasks(tasks);
+        ScheduleResult result = CriticalPathScheduler.schedule(graph);
+        LocalDate projectStartDate = LocalDate.now();
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).calculateEndDate(projectStartDate.plusDays(result.earliestStart[i]));
+        }
+        System.out.println("--- Project Schedule ---");
+        tasks.forEach(System.out::println);
+        StringJoiner criticalPath = new StringJoiner(" -> ");
+        for (int task : result.criticalPath()) {
+            criticalPath.add(graph.ids[task]);
         }
+        System.out.println("Project Duration: " + result.projectDuration + " days");
+        System.out.println("Critical Path: " + criticalPath);
+
+        scheduleStartDate = projectStartDate;
+        incrementalScheduler = new IncrementalScheduler(result, tasks);
+        requireWritten(writeScheduleDates(result.order));
+        return result;
+    }
 
-        VBox vbox = new VBox(ganttChart);
+    private void showGanttChart(Stage primaryStage, ScheduleResult schedule) {
+        GanttView ganttView = new GanttView(schedule, scheduleStartDate);
+
+        ComboBox<GanttZoom> zoomBox = new ComboBox<>();
+        zoomBox.getItems().addAll(GanttZoom.values());
+        zoomBox.setValue(ganttView.getZoom());
+        zoomBox.setOnAction(e -> ganttView.setZoom(zoomBox.getValue()));
+
+        VBox vbox = new VBox(zoomBox, ganttView);
+        VBox.setVgrow(ganttView, Priority.ALWAYS);
         Scene scene = new Scene(vbox, 800, 600);
         Stage chartStage = new Stage();
         chartStage.setTitle("Project Schedule - Gantt Chart");
@@ -138,6 +347,25 @@ public class ProjectSchedulingApp extends Application {
         chartStage.show();
     }
 
+    private void showError(String title, String header, Throwable error) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText(header);
+        alert.setContentText(error.getMessage());
+        alert.showAndWait();
+    }
+
+    // The schedulers throw IllegalStateException only for a dependency cycle.
+    private static String schedulingFailureHeader(Throwable error) {
+        if (error instanceof IllegalStateException) {
+            return "Task dependencies contain a cycle";
+        }
+        if (error instanceof SQLException) {
+            return "Tasks could not be read from or saved to the database";
+        }
+        return "Tasks could not be scheduled";
+    }
+
     @Override
     public void start(Stage primaryStage) {
         VBox vbox = new VBox();
@@ -154,8 +382,12 @@ public class ProjectSchedulingApp extends Application {
 
         Button addTaskButton = new Button("Add Task");
         Button viewTasksButton = new Button("View Tasks");
+        Button updateTaskButton = new Button("Update Task");
         Button scheduleButton = new Button("Schedule Tasks");
+        Button levelButton = new Button("Level Resources");
+        Button dependencyButton = new Button("Show Dependencies");
         Button chartButton = new Button("Show Gantt Chart");
+        Button importButton = new Button("Import Tasks (CSV)");
 
         ListView<String> taskListView = new ListView<>();
 
@@ -165,7 +397,9 @@ public class ProjectSchedulingApp extends Application {
             int duration = Integer.parseInt(durationField.getText());
             String dependencies = dependenciesField.getText();
             String resource = resourceField.getText();
-            addTaskToDatabase(id, name, duration, dependencies, resource);
+            DbExecutor.deliver(DbExecutor.supply("addTask", () -> addTask(id, name, duration, dependencies, resource)),
+                    summary -> taskListView.getItems().add(summary),
+                    ex -> showError("Add Failed", "Task could not be added", ex));
             idField.clear();
             nameField.clear();
             durationField.clear();
@@ -175,24 +409,73 @@ public class ProjectSchedulingApp extends Application {
 
         viewTasksButton.setOnAction(e -> {
             taskListView.getItems().clear();
-            List<Task> tasks = getAllTasksFromDatabase();
-            for (Task task : tasks) {
-                taskListView.getItems().add(task.toString());
-            }
+            DbExecutor.deliver(DbExecutor.supplyLatest("viewTasks", this::getAllTasksFromDatabase), tasks -> {
+                for (Task task : tasks) {
+                    taskListView.getItems().add(task.toString());
+                }
+            });
+        });
+
+        updateTaskButton.setOnAction(e -> {
+            String id = idField.getText();
+            int duration = Integer.parseInt(durationField.getText());
+            String dependencies = dependenciesField.getText();
+            DbExecutor.deliver(DbExecutor.supply("updateTask", () -> rescheduleTask(id, duration, dependencies)),
+                    summary -> taskListView.getItems().add(summary),
+                    ex -> showError("Update Failed", "Task could not be rescheduled", ex));
         });
 
         scheduleButton.setOnAction(e -> {
-            List<Task> tasks = getAllTasksFromDatabase();
-            scheduleTasks(tasks);
+            DbExecutor.deliver(DbExecutor.supplyLatest("scheduleTasks", () -> scheduleTasks(getAllTasksFromDatabase())),
+                    result -> {}, ex -> showError("Scheduling Failed", schedulingFailureHeader(ex), ex));
+        });
+
+        levelButton.setOnAction(e -> {
+            DbExecutor.deliver(DbExecutor.supplyLatest("levelResources", () -> {
+                List<Task> tasks = getAllTasksFromDatabase();
+                LeveledSchedule best = levelResources(tasks);
+                List<String> lines = new ArrayList<>();
+                lines.add(best.toString());
+                for (Task task : tasks) {
+                    lines.add(task.toString());
+                }
+                return lines;
+            }), lines -> taskListView.getItems().setAll(lines),
+                    ex -> showError("Resource Leveling Failed", "Tasks could not be placed on the resource calendars", ex));
+        });
+
+        dependencyButton.setOnAction(e -> {
+            String id = idField.getText();
+            DbExecutor.deliver(DbExecutor.supplyLatest("showDependencies", () -> Arrays.asList(
+                    "Predecessors of " + id + ": " + getPredecessorsFromDatabase(id),
+                    "Successors of " + id + ": " + getSuccessorsFromDatabase(id),
+                    "All prerequisites of " + id + ": " + getAllPrerequisitesFromDatabase(id),
+                    "All dependents of " + id + ": " + getAllDependentsFromDatabase(id)
+            )), lines -> taskListView.getItems().setAll(lines));
         });
 
         chartButton.setOnAction(e -> {
-            List<Task> tasks = getAllTasksFromDatabase();
-            showGanttChart(primaryStage, tasks);
+            DbExecutor.deliver(DbExecutor.supplyLatest("ganttChart", this::currentOrFreshSchedule),
+                    schedule -> showGanttChart(primaryStage, schedule),
+                    ex -> showError("Scheduling Failed", schedulingFailureHeader(ex), ex));
+        });
+
+        importButton.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Import Tasks");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+            File file = chooser.showOpenDialog(primaryStage);
+            if (file == null) {
+                return;
+            }
+            DbExecutor.deliver(DbExecutor.supply("importTasks", () -> importTasks(file.toPath())),
+                    result -> taskListView.getItems().setAll(result.report()),
+                    ex -> showError("Import Failed", "Tasks could not be imported", ex));
         });
 
         vbox.getChildren().addAll(idField, nameField, durationField, dependenciesField, resourceField,
-                                  addTaskButton, viewTasksButton, scheduleButton, chartButton, taskListView);
+                                  addTaskButton, updateTaskButton, viewTasksButton, scheduleButton, levelButton,
+                                  dependencyButton, chartButton, importButton, taskListView);
 
         Scene scene = new Scene(vbox, 400, 600);
         primaryStage.setTitle("Project Scheduling System");
@@ -17,3 +17,11 @@ CREATE TABLE Resources (
     name TEXT,
     availability TEXT
 );
+
+CREATE TABLE TaskDependencies (
+    taskId VARCHAR(10) NOT NULL,
+    dependsOn VARCHAR(10) NOT NULL,
+    PRIMARY KEY (taskId, dependsOn), -- predecessors of a task
+    INDEX idx_taskdependencies_dependson (dependsOn, taskId), -- successors of a task
+    FOREIGN KEY (taskId) REFERENCES Tasks(id) ON DELETE CASCADE
+);
@@ -0,0 +1,21 @@
+-- Upgrades a ProjectScheduling database created by an older ProjectScheduling.sql, which itself
+-- creates the current schema on a fresh server. Run once: mysql < ProjectScheduling_migration.sql
+
+USE ProjectScheduling;
+
+-- Task dependencies as an indexed edge table, filled from the comma-separated Tasks.dependencies
+-- column (MySQL 8+ for JSON_TABLE). The text column is still written for display.
+CREATE TABLE IF NOT EXISTS TaskDependencies (
+    taskId VARCHAR(10) NOT NULL,
+    dependsOn VARCHAR(10) NOT NULL,
+    PRIMARY KEY (taskId, dependsOn), -- predecessors of a task
+    INDEX idx_taskdependencies_dependson (dependsOn, taskId), -- successors of a task
+    FOREIGN KEY (taskId) REFERENCES Tasks(id) ON DELETE CASCADE
+);
+
+INSERT IGNORE INTO TaskDependencies (taskId, dependsOn)
+SELECT t.id, TRIM(d.dependsOn)
+FROM Tasks t,
+     JSON_TABLE(CONCAT('["', REPLACE(t.dependencies, ',', '","'), '"]'), '$[*]'
+                COLUMNS (dependsOn VARCHAR(10) PATH '$')) d
+WHERE t.dependencies IS NOT NULL AND TRIM(d.dependsOn) <> '';
@@ -1,10 +1,15 @@
 import javafx.application.Application;
+import javafx.collections.FXCollections;
 import javafx.scene.Scene;
 import javafx.scene.chart.PieChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
 
@@ -25,6 +30,26 @@ class Defect {
         this.module = module;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getSeverity() {
+        return severity;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
     @Override
     public String toString() {
         return "ID: " + id + ", Description: " + description +
@@ -35,9 +60,12 @@ class Defect {
 
 public class QualityManagementApp extends Application {
 
+    private final GroupedCountCache defectStatusCounts = new GroupedCountCache("QualityManagement",
+            "SELECT status, COUNT(*) FROM Defects GROUP BY status");
+
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/QualityManagement", "root", "password");
+            return ConnectionPool.getConnection("QualityManagement");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
@@ -55,52 +83,109 @@ public class QualityManagementApp extends Application {
             pstmt.setString(5, status);
             pstmt.setString(6, module);
             pstmt.executeUpdate();
+            defectStatusCounts.invalidate();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    private List<Defect> getAllDefectsFromDatabase() {
-        List<Defect> defects = new ArrayList<>();
-        String sql = "SELECT * FROM Defects";
+    // Loads a tracker export through BulkImport.
+    private BulkResult importDefects(Path file) throws IOException {
+        BulkResult result = BulkImport.importFile(BulkImport.Target.QUALITY_DEFECTS, file, BulkInserter.DEFAULT_BATCH_SIZE);
+        defectStatusCounts.invalidate();
+        return result;
+    }
+
+    private void updateDefectStatus(String id, String newStatus) {
+        String sql = "UPDATE Defects SET status = ? WHERE id = ?";
         try (Connection conn = connectDB();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Defect defect = new Defect(
-                        rs.getString("id"),
-                        rs.getString("description"),
-                        rs.getInt("severity"),
-                        rs.getInt("priority"),
-                        rs.getString("status"),
-                        rs.getString("module")
-                );
-                defects.add(defect);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, newStatus);
+            pstmt.setString(2, id);
+            if (pstmt.executeUpdate() > 0) {
+                defectStatusCounts.invalidate();
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return defects;
     }
 
-    private void calculateQualityMetrics(int totalDefects, int linesOfCode, int defectsRemoved, int testCases) {
-        double defectDensity = (double) totalDefects / linesOfCode;
-        double defectRemovalEfficiency = (double) defectsRemoved / totalDefects * 100;
-        double testCoverage = (double) testCases / linesOfCode * 100;
+    // Sizes are the denominators of defect density and test coverage; lines of code can also be
+    // measured with java SourceMetricsCollector <source-dir> --module NAME.
+    private void setModuleSize(String module, int linesOfCode, int testCases) throws SQLException {
+        String sql = "INSERT INTO ModuleSizes (module, linesOfCode, testCases) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE linesOfCode = VALUES(linesOfCode), testCases = VALUES(testCases)";
+        try (Connection conn = connectDB();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, module);
+            pstmt.setInt(2, linesOfCode);
+            pstmt.setInt(3, testCases);
+            pstmt.executeUpdate();
+        }
+    }
 
-        System.out.println("--- Quality Metrics ---");
-        System.out.println("Defect Density: " + defectDensity + " defects/LOC");
-        System.out.println("Defect Removal Efficiency: " + defectRemovalEfficiency + "%");
-        System.out.println("Test Coverage: " + testCoverage + "%");
+    // module -> {linesOfCode, testCases}
+    private Map<String, int[]> getModuleSizesFromDatabase() throws SQLException {
+        Map<String, int[]> sizes = new HashMap<>();
+        String sql = "SELECT module, linesOfCode, testCases FROM ModuleSizes";
+        try (Connection conn = ConnectionPool.getConnection("QualityManagement");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                sizes.put(rs.getString(1), new int[]{rs.getInt(2), rs.getInt(3)});
+            }
+        }
+        return sizes;
     }
 
-    private void showDefectsPieChart(Stage primaryStage, List<Defect> defects) {
-        PieChart pieChart = new PieChart();
-        Map<String, Integer> defectStatusCount = new HashMap<>();
+    // Computes the metrics for every module from a fresh rollup and stores them as one time-stamped
+    // snapshot in QualityMetrics.
+    private List<ModuleQuality> calculateQualityMetrics() throws SQLException {
+        List<ModuleQuality> modules = QualityRollup.load("QualityManagement").snapshot(getModuleSizesFromDatabase());
+        Timestamp capturedAt = new Timestamp(System.currentTimeMillis());
+        String sql = "INSERT INTO QualityMetrics (capturedAt, module, totalDefects, linesOfCode, defectsRemoved, " +
+                     "testCases, defectDensity, removalEfficiency, testCoverage) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        BulkResult result = new BulkInserter<ModuleQuality>("QualityManagement", sql, (pstmt, module) -> {
+            pstmt.setTimestamp(1, capturedAt);
+            pstmt.setString(2, module.module);
+            pstmt.setInt(3, module.totalDefects);
+            pstmt.setInt(4, module.linesOfCode);
+            pstmt.setInt(5, module.defectsRemoved);
+            pstmt.setInt(6, module.testCases);
+            pstmt.setDouble(7, module.defectDensity());
+            pstmt.setDouble(8, module.defectRemovalEfficiency());
+            pstmt.setDouble(9, module.testCoverage());
+        }).insertAll(modules);
+        if (result.hasErrors()) {
+            throw result.errors.get(0).cause;
+        }
+        return modules;
+    }
 
-        for (Defect defect : defects) {
-            defectStatusCount.put(defect.status, defectStatusCount.getOrDefault(defect.status, 0) + 1);
+    // Stored snapshots for one module, oldest first.
+    private List<String> getQualityTrend(String module) throws SQLException {
+        List<String> trend = new ArrayList<>();
+        String sql = "SELECT capturedAt, totalDefects, defectsRemoved, defectDensity, removalEfficiency, testCoverage " +
+                     "FROM QualityMetrics WHERE module = ? ORDER BY capturedAt";
+        try (Connection conn = ConnectionPool.getConnection("QualityManagement");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, module);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    trend.add(rs.getTimestamp("capturedAt") +
+                              " - Defects: " + rs.getInt("totalDefects") +
+                              ", Removed: " + rs.getInt("defectsRemoved") +
+                              ", Defect Density: " + rs.getDouble("defectDensity") + " defects/LOC" +
+                              ", Defect Removal Efficiency: " + rs.getDouble("removalEfficiency") + "%" +
+                              ", Test Coverage: " + rs.getDouble("testCoverage") + "%");
+                }
+            }
         }
+        return trend;
+    }
+
+    private void showDefectsPieChart(Stage primaryStage, Map<String, Integer> defectStatusCount) {
+        PieChart pieChart = new PieChart();
 
         for (Map.Entry<String, Integer> entry : defectStatusCount.entrySet()) {
             pieChart.getData().add(new PieChart.Data(entry.getKey(), entry.getValue()));
@@ -129,13 +214,22 @@ public class QualityManagementApp extends Application {
         statusField.setPromptText("Status (Open, Closed, In Progress)");
         TextField moduleField = new TextField();
         moduleField.setPromptText("Module");
+        TextField locField = new TextField();
+        locField.setPromptText("Module Lines of Code");
+        TextField testCasesField = new TextField();
+        testCasesField.setPromptText("Module Test Cases");
 
         Button addButton = new Button("Add Defect");
         Button viewButton = new Button("View Defects");
         Button chartButton = new Button("Show Defect Chart");
         Button metricsButton = new Button("Calculate Metrics");
+        Button statusButton = new Button("Update Status");
+        Button trendButton = new Button("Show Metrics Trend");
+        Button importButton = new Button("Import Defects (CSV)");
+        Button sizeButton = new Button("Set Module Size");
 
         ListView<String> defectListView = new ListView<>();
+        LazyPagedList.closeOnReplace(defectListView);
 
         addButton.setOnAction(e -> {
             String id = idField.getText();
@@ -144,7 +238,7 @@ public class QualityManagementApp extends Application {
             int priority = Integer.parseInt(priorityField.getText());
             String status = statusField.getText();
             String module = moduleField.getText();
-            addDefectToDatabase(id, desc, severity, priority, status, module);
+            DbExecutor.run("addDefect", () -> addDefectToDatabase(id, desc, severity, priority, status, module));
             idField.clear();
             descField.clear();
             severityField.clear();
@@ -154,24 +248,77 @@ public class QualityManagementApp extends Application {
         });
 
         viewButton.setOnAction(e -> {
-            defectListView.getItems().clear();
-            List<Defect> defects = getAllDefectsFromDatabase();
-            for (Defect defect : defects) {
-                defectListView.getItems().add(defect.toString());
-            }
+            defectListView.setItems(new LazyPagedList("QualityManagement", "Defects", "id",
+                    "description, severity, priority, status, module",
+                    rs -> new Defect(
+                            rs.getString("id"),
+                            rs.getString("description"),
+                            rs.getInt("severity"),
+                            rs.getInt("priority"),
+                            rs.getString("status"),
+                            rs.getString("module")
+                    ).toString()).load());
         });
 
         chartButton.setOnAction(e -> {
-            List<Defect> defects = getAllDefectsFromDatabase();
-            showDefectsPieChart(primaryStage, defects);
+            DbExecutor.deliver(DbExecutor.supplyLatest("defectChart", defectStatusCounts::get),
+                    counts -> showDefectsPieChart(primaryStage, counts),
+                    ex -> defectListView.setItems(FXCollections.observableArrayList("Defect chart failed: " + ex.getMessage())));
         });
 
         metricsButton.setOnAction(e -> {
-            calculateQualityMetrics(50, 5000, 45, 200); // Example values for metrics
+            DbExecutor.deliver(DbExecutor.supplyLatest("qualityMetrics", this::calculateQualityMetrics), modules -> {
+                List<String> lines = new ArrayList<>();
+                for (ModuleQuality module : modules) {
+                    lines.add(module.toString());
+                }
+                defectListView.setItems(FXCollections.observableArrayList(lines));
+            });
+        });
+
+        statusButton.setOnAction(e -> {
+            String id = idField.getText();
+            String status = statusField.getText();
+            DbExecutor.run("updateDefectStatus", () -> updateDefectStatus(id, status));
+            idField.clear();
+            statusField.clear();
+        });
+
+        trendButton.setOnAction(e -> {
+            String module = moduleField.getText();
+            DbExecutor.deliver(DbExecutor.supplyLatest("qualityTrend", () -> getQualityTrend(module)),
+                    trend -> defectListView.setItems(FXCollections.observableArrayList(trend)));
+        });
+
+        sizeButton.setOnAction(e -> {
+            String module = moduleField.getText().trim();
+            int linesOfCode = Integer.parseInt(locField.getText().trim());
+            int testCases = Integer.parseInt(testCasesField.getText().trim());
+            DbExecutor.deliver(DbExecutor.supply("setModuleSize", () -> {
+                setModuleSize(module, linesOfCode, testCases);
+                return "Module " + module + ": " + linesOfCode + " lines of code, " + testCases + " test cases";
+            }), line -> defectListView.setItems(FXCollections.observableArrayList(line)),
+                    ex -> defectListView.setItems(FXCollections.observableArrayList("Module size not saved: " + ex.getMessage())));
+            locField.clear();
+            testCasesField.clear();
+        });
+
+        importButton.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Import Defects");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+            File file = chooser.showOpenDialog(primaryStage);
+            if (file == null) {
+                return;
+            }
+            DbExecutor.deliver(DbExecutor.supply("importDefects", () -> importDefects(file.toPath())),
+                    result -> defectListView.setItems(FXCollections.observableArrayList(result.report())),
+                    ex -> defectListView.setItems(FXCollections.observableArrayList("Import failed: " + ex.getMessage())));
         });
 
         vbox.getChildren().addAll(idField, descField, severityField, priorityField, statusField, moduleField,
-                                  addButton, viewButton, chartButton, metricsButton, defectListView);
+                                  addButton, viewButton, chartButton, metricsButton, statusButton, trendButton,
+                                  importButton, locField, testCasesField, sizeButton, defectListView);
 
         Scene scene = new Scene(vbox, 400, 500);
         primaryStage.setTitle("Quality Management System");
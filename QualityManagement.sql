@@ -8,12 +8,36 @@ CREATE TABLE Defects (
     severity INT,
     priority INT,
     status VARCHAR(20),
-    module VARCHAR(50)
+    module VARCHAR(50),
+    updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) -- polled by TraceabilityGraph.refresh()
 );
 
+CREATE INDEX idx_defects_updated ON Defects (updatedAt);
+
+CREATE TABLE ModuleSizes (
+    module VARCHAR(50) PRIMARY KEY,
+    linesOfCode INT,
+    testCases INT
+);
+
+-- One row per module per snapshot; rows sharing a capturedAt were taken together.
 CREATE TABLE QualityMetrics (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    capturedAt TIMESTAMP NOT NULL,
+    module VARCHAR(50),
     totalDefects INT,
     linesOfCode INT,
     defectsRemoved INT,
-    testCases INT
+    testCases INT,
+    defectDensity DOUBLE,
+    removalEfficiency DOUBLE,
+    testCoverage DOUBLE
 );
+
+CREATE INDEX idx_qualitymetrics_module ON QualityMetrics (module, capturedAt);
+
+-- Lets the status pie chart be answered from the index with GROUP BY status.
+CREATE INDEX idx_defects_status ON Defects (status);
+
+-- Lets every metrics snapshot count defects with GROUP BY module, status from the index alone.
+CREATE INDEX idx_defects_module_status ON Defects (module, status);
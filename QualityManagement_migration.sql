@@ -0,0 +1,31 @@
+-- Upgrades a QualityManagement database created by an older QualityManagement.sql, which itself
+-- creates the current schema on a fresh server. Run once: mysql < QualityManagement_migration.sql
+
+USE QualityManagement;
+
+-- Change feed polled by TraceabilityGraph.refresh().
+ALTER TABLE Defects ADD COLUMN updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+CREATE INDEX idx_defects_updated ON Defects (updatedAt);
+
+-- Per-module metric snapshots. QualityMetrics rows from before this were project-wide totals; they
+-- keep a NULL module and are dated at the migration.
+ALTER TABLE QualityMetrics
+    ADD COLUMN id INT AUTO_INCREMENT PRIMARY KEY FIRST,
+    ADD COLUMN capturedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP AFTER id,
+    ADD COLUMN module VARCHAR(50) AFTER capturedAt,
+    ADD COLUMN defectDensity DOUBLE,
+    ADD COLUMN removalEfficiency DOUBLE,
+    ADD COLUMN testCoverage DOUBLE;
+ALTER TABLE QualityMetrics ALTER COLUMN capturedAt DROP DEFAULT;
+CREATE INDEX idx_qualitymetrics_module ON QualityMetrics (module, capturedAt);
+
+CREATE TABLE IF NOT EXISTS ModuleSizes (
+    module VARCHAR(50) PRIMARY KEY,
+    linesOfCode INT,
+    testCases INT
+);
+
+CREATE INDEX idx_defects_module_status ON Defects (module, status);
+
+-- Lets the status pie chart be answered from the index with GROUP BY status.
+CREATE INDEX idx_defects_status ON Defects (status);
@@ -0,0 +1,93 @@
+import java.sql.*;
+import java.util.*;
+
+class ModuleQuality {
+    final String module;
+    final int totalDefects;
+    final int defectsRemoved;
+    final int linesOfCode;
+    final int testCases;
+
+    ModuleQuality(String module, int totalDefects, int defectsRemoved, int linesOfCode, int testCases) {
+        this.module = module;
+        this.totalDefects = totalDefects;
+        this.defectsRemoved = defectsRemoved;
+        this.linesOfCode = linesOfCode;
+        this.testCases = testCases;
+    }
+
+    double defectDensity() {
+        return linesOfCode == 0 ? 0 : (double) totalDefects / linesOfCode;
+    }
+
+    double defectRemovalEfficiency() {
+        return totalDefects == 0 ? 0 : (double) defectsRemoved / totalDefects * 100;
+    }
+
+    double testCoverage() {
+        return linesOfCode == 0 ? 0 : (double) testCases / linesOfCode * 100;
+    }
+
+    @Override
+    public String toString() {
+        return "Module: " + module +
+               ", Defects: " + totalDefects +
+               ", Removed: " + defectsRemoved +
+               ", Defect Density: " + defectDensity() + " defects/LOC" +
+               ", Defect Removal Efficiency: " + defectRemovalEfficiency() + "%" +
+               ", Test Coverage: " + testCoverage() + "%";
+    }
+}
+
+// Per-module defect counts folded from one GROUP BY module, status. They are read again for every
+// metrics snapshot rather than kept as counters: Defects is also written by other processes (other
+// app instances, java BulkImport quality-defects), whose rows would never reach counters held here,
+// and the query is answered from idx_defects_module_status alone.
+public class QualityRollup {
+
+    private static final int TOTAL = 0;
+    private static final int REMOVED = 1;
+
+    private final Map<String, int[]> counters;
+
+    private QualityRollup(Map<String, int[]> counters) {
+        this.counters = counters;
+    }
+
+    static boolean isRemoved(String status) {
+        return status != null && (status.equalsIgnoreCase("Closed") || status.equalsIgnoreCase("Resolved"));
+    }
+
+    // Adds count defects of the given module and status to a {total, removed} map.
+    static void accumulate(Map<String, int[]> counts, String module, String status, int count) {
+        int[] counter = counts.computeIfAbsent(module == null ? "" : module, m -> new int[2]);
+        counter[TOTAL] += count;
+        if (isRemoved(status)) {
+            counter[REMOVED] += count;
+        }
+    }
+
+    public static QualityRollup load(String database) throws SQLException {
+        Map<String, int[]> counts = new TreeMap<>();
+        String sql = "SELECT module, status, COUNT(*) FROM Defects GROUP BY module, status";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                accumulate(counts, rs.getString(1), rs.getString(2), rs.getInt(3));
+            }
+        }
+        return new QualityRollup(counts);
+    }
+
+    // sizes maps module -> {linesOfCode, testCases}; modules without a size row report zero LOC.
+    public List<ModuleQuality> snapshot(Map<String, int[]> sizes) {
+        List<ModuleQuality> modules = new ArrayList<>(counters.size());
+        for (Map.Entry<String, int[]> entry : counters.entrySet()) {
+            int[] size = sizes.getOrDefault(entry.getKey(), new int[2]);
+            modules.add(new ModuleQuality(entry.getKey(), entry.getValue()[TOTAL], entry.getValue()[REMOVED],
+                    size[0], size[1]));
+        }
+        return modules;
+    }
+}
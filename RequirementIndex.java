@@ -0,0 +1,584 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+
+// Restricts a search to requirements of one type and status and a priority range; null and the
+// Integer extremes mean "any".
+class RequirementFilter {
+    static final RequirementFilter ANY = new RequirementFilter(null, null, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    final String type;
+    final String status;
+    final int minPriority;
+    final int maxPriority;
+
+    RequirementFilter(String type, String status, int minPriority, int maxPriority) {
+        this.type = type;
+        this.status = status;
+        this.minPriority = minPriority;
+        this.maxPriority = maxPriority;
+    }
+}
+
+class SearchHit {
+    final int requirementId;
+    final double score;
+
+    SearchHit(int requirementId, double score) {
+        this.requirementId = requirementId;
+        this.score = score;
+    }
+}
+
+// In-memory inverted index over requirement descriptions, ranked with Okapi BM25. Terms live in a
+// TreeMap so a query word ending in '*' expands to every indexed term with that prefix; postings
+// are slot-ordered int arrays and type, status and priority are kept per slot so filtering costs
+// no database round trip. The index is saved to a memory-mapped file together with the newest
+// updatedAt it has indexed; open() and refresh() then only index the Requirements rows added
+// (id above the saved maximum) or changed since.
+public class RequirementIndex {
+
+    private static final int MAGIC = 0x52494458; // "RIDX"
+    private static final int VERSION = 2;
+    // rows this close to the newest updatedAt seen are read again, for updates that commit late
+    static final long REFRESH_OVERLAP_MILLIS = Long.getLong("requirements.indexOverlapMillis", 5000);
+    // refresh() writes a changed index at most this often; stop() saves the rest
+    static final long SAVE_INTERVAL_MILLIS = Long.getLong("requirements.indexSaveMillis", 60000);
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "and", "or", "of", "to", "in", "on", "for", "with", "by", "as", "at", "be",
+            "is", "are", "it", "its", "that", "this", "from", "into", "than", "then"));
+
+    private static final class Postings {
+        int[] slots = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+
+        void add(int slot, int frequency) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            slots[size] = slot;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+
+    private final String database;
+    private final Path file;
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private final List<String> statuses = new ArrayList<>();
+
+    // per slot, in insertion order; a replaced or removed requirement leaves a dead slot
+    private int[] ids = new int[1024];
+    private int[] lengths = new int[1024];
+    private int[] priorities = new int[1024];
+    private short[] typeCodes = new short[1024];
+    private short[] statusCodes = new short[1024];
+    private boolean[] dead = new boolean[1024];
+    private int slotCount;
+    private int liveCount;
+    private long totalLength;
+    private int maxId;
+    private long updatedMillis; // newest updatedAt indexed, 0 when none has been read yet
+    private long savedAt = System.nanoTime();
+    private boolean dirty;
+
+    public RequirementIndex(String database, Path file) {
+        this.database = database;
+        this.file = file;
+    }
+
+    public static Path defaultFile(String database) {
+        return Paths.get(System.getProperty("requirements.indexDir",
+                System.getProperty("user.home") + File.separator + ".requirements-index"), database + ".idx");
+    }
+
+    // Loads the saved index and catches up with rows added or changed since; rebuilds from scratch if
+    // the file is missing, unreadable or no longer matches the table (e.g. rows were deleted).
+    public synchronized void open() throws SQLException, IOException {
+        boolean loaded = false;
+        if (Files.isRegularFile(file)) {
+            try {
+                load();
+                loaded = liveCount == countRowsUpTo(maxId);
+            } catch (IOException | RuntimeException e) {
+                // a damaged index only costs a rebuild
+            }
+        }
+        if (!loaded) {
+            clear();
+        }
+        catchUp();
+        save();
+    }
+
+    // Re-indexes rows added or changed since the last catch-up and saves the index if it changed and
+    // SAVE_INTERVAL_MILLIS have passed since the last save. Returns the number of rows read.
+    public synchronized int refresh() throws SQLException, IOException {
+        int rows = catchUp();
+        if (dirty && System.nanoTime() - savedAt >= SAVE_INTERVAL_MILLIS * 1_000_000) {
+            save();
+        }
+        return rows;
+    }
+
+    private int catchUp() throws SQLException {
+        String sql = "SELECT id, type, description, priority, status, updatedAt FROM Requirements WHERE id > ?" +
+                     (updatedMillis > 0 ? " OR updatedAt >= ?" : "") + " ORDER BY id";
+        int rows = 0;
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            pstmt.setInt(1, maxId);
+            if (updatedMillis > 0) {
+                pstmt.setTimestamp(2, new Timestamp(updatedMillis - REFRESH_OVERLAP_MILLIS));
+            }
+            long newest = updatedMillis;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    add(new Requirement(rs.getInt("id"), rs.getString("type"), rs.getString("description"),
+                            rs.getInt("priority"), rs.getString("status")));
+                    newest = Math.max(newest, rs.getTimestamp("updatedAt").getTime());
+                    rows++;
+                }
+            }
+            if (newest != updatedMillis) {
+                updatedMillis = newest;
+                dirty = true;
+            }
+        }
+        return rows;
+    }
+
+    private int countRowsUpTo(int id) throws SQLException {
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM Requirements WHERE id <= ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // Indexes a requirement; one already indexed under the same id is replaced.
+    public synchronized void add(Requirement requirement) {
+        remove(requirement.getId());
+        Map<String, int[]> frequencies = new HashMap<>();
+        int length = 0;
+        for (String token : tokenize(requirement.getDescription())) {
+            frequencies.computeIfAbsent(token, t -> new int[1])[0]++;
+            length++;
+        }
+        if (slotCount == ids.length) {
+            int capacity = slotCount * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+            typeCodes = Arrays.copyOf(typeCodes, capacity);
+            statusCodes = Arrays.copyOf(statusCodes, capacity);
+            dead = Arrays.copyOf(dead, capacity);
+        }
+        int slot = slotCount++;
+        ids[slot] = requirement.getId();
+        lengths[slot] = length;
+        priorities[slot] = requirement.getPriority();
+        typeCodes[slot] = code(types, requirement.getType());
+        statusCodes[slot] = code(statuses, requirement.getStatus());
+        dead[slot] = false;
+        for (Map.Entry<String, int[]> term : frequencies.entrySet()) {
+            terms.computeIfAbsent(term.getKey(), t -> new Postings()).add(slot, term.getValue()[0]);
+        }
+        slotById.put(requirement.getId(), slot);
+        liveCount++;
+        totalLength += length;
+        maxId = Math.max(maxId, requirement.getId());
+        dirty = true;
+    }
+
+    // Postings of a removed requirement are skipped when scoring and dropped on the next save.
+    public synchronized void remove(int requirementId) {
+        Integer slot = slotById.remove(requirementId);
+        if (slot != null) {
+            dead[slot] = true;
+            liveCount--;
+            totalLength -= lengths[slot];
+            dirty = true;
+        }
+    }
+
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    // Best matches first, at most limit of them. An empty query lists the filtered requirements by id.
+    public synchronized List<SearchHit> search(String query, RequirementFilter filter, int limit) {
+        int typeCode = filter.type == null ? -1 : types.indexOf(normalize(filter.type));
+        int statusCode = filter.status == null ? -1 : statuses.indexOf(normalize(filter.status));
+        if ((filter.type != null && typeCode < 0) || (filter.status != null && statusCode < 0) || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> words = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        for (String part : query.trim().split("\\s+")) {
+            boolean prefix = part.endsWith("*");
+            int before = words.size();
+            for (String token : tokenize(prefix ? part.substring(0, part.length() - 1) : part)) {
+                words.add(token);
+                prefixes.add(false);
+            }
+            if (prefix && words.size() > before) {
+                prefixes.set(prefixes.size() - 1, true);
+            }
+        }
+        if (words.isEmpty()) {
+            List<SearchHit> hits = new ArrayList<>();
+            for (int slot = 0; slot < slotCount && hits.size() < limit; slot++) {
+                if (accepts(slot, filter, typeCode, statusCode)) {
+                    hits.add(new SearchHit(ids[slot], 0));
+                }
+            }
+            return hits;
+        }
+
+        double averageLength = liveCount == 0 ? 1 : Math.max(1, (double) totalLength / liveCount);
+        float[] scores = new float[slotCount];
+        float[] wordScores = new float[slotCount];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            Collection<Postings> matches = prefixes.get(w)
+                    ? terms.subMap(word, true, word + Character.MAX_VALUE, false).values()
+                    : Optional.ofNullable(terms.get(word)).map(Collections::singletonList)
+                              .orElse(Collections.emptyList());
+            // a prefix word counts once per requirement, with its best-scoring expansion
+            int[] wordTouched = new int[16];
+            int wordTouchedCount = 0;
+            for (Postings postings : matches) {
+                double idf = Math.log(1 + (liveCount - postings.size + 0.5) / (postings.size + 0.5));
+                for (int p = 0; p < postings.size; p++) {
+                    int slot = postings.slots[p];
+                    if (dead[slot]) {
+                        continue;
+                    }
+                    double tf = postings.frequencies[p];
+                    float score = (float) (idf * tf * (K1 + 1) /
+                                           (tf + K1 * (1 - B + B * lengths[slot] / averageLength)));
+                    if (wordScores[slot] == 0) {
+                        if (wordTouchedCount == wordTouched.length) {
+                            wordTouched = Arrays.copyOf(wordTouched, wordTouchedCount * 2);
+                        }
+                        wordTouched[wordTouchedCount++] = slot;
+                    }
+                    wordScores[slot] = Math.max(wordScores[slot], score);
+                }
+            }
+            for (int i = 0; i < wordTouchedCount; i++) {
+                int slot = wordTouched[i];
+                if (scores[slot] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = slot;
+                }
+                scores[slot] += wordScores[slot];
+                wordScores[slot] = 0;
+            }
+        }
+
+        // min-heap of the best limit slots seen so far
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, 1024) + 1, (x, y) -> scores[x] != scores[y]
+                ? Float.compare(scores[x], scores[y]) : Integer.compare(ids[y], ids[x]));
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            if (!accepts(slot, filter, typeCode, statusCode)) {
+                continue;
+            }
+            best.add(slot);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        SearchHit[] hits = new SearchHit[best.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            int slot = best.poll();
+            hits[i] = new SearchHit(ids[slot], scores[slot]);
+        }
+        return Arrays.asList(hits);
+    }
+
+    private boolean accepts(int slot, RequirementFilter filter, int typeCode, int statusCode) {
+        return !dead[slot]
+               && (typeCode < 0 || typeCodes[slot] == typeCode)
+               && (statusCode < 0 || statusCodes[slot] == statusCode)
+               && priorities[slot] >= filter.minPriority && priorities[slot] <= filter.maxPriority;
+    }
+
+    // Lower-cased runs of letters and digits, without a few English function words.
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                String word = token.toString();
+                if (!STOP_WORDS.contains(word)) {
+                    tokens.add(word);
+                }
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
+    }
+
+    private static short code(List<String> dictionary, String value) {
+        String key = normalize(value);
+        int code = dictionary.indexOf(key);
+        if (code < 0) {
+            code = dictionary.size();
+            dictionary.add(key);
+        }
+        return (short) code;
+    }
+
+    private void clear() {
+        terms.clear();
+        slotById.clear();
+        types.clear();
+        statuses.clear();
+        slotCount = 0;
+        liveCount = 0;
+        totalLength = 0;
+        maxId = 0;
+        updatedMillis = 0;
+        dirty = true;
+    }
+
+    // Writes live requirements only, so saving also compacts away dead slots. The file is sized
+    // exactly first, mapped, filled and then moved over the previous one.
+    // Does nothing when nothing changed since the last save or load.
+    public synchronized void save() throws IOException {
+        if (!dirty && Files.isRegularFile(file)) {
+            return;
+        }
+        int[] newSlot = new int[slotCount];
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            newSlot[slot] = dead[slot] ? -1 : live++;
+        }
+
+        long size = 4 + 4 + 4 + 8 + 4 + 8 + dictionarySize(types) + dictionarySize(statuses) + (long) live * 16 + 4;
+        for (Map.Entry<String, Postings> term : terms.entrySet()) {
+            long postingBytes = 0;
+            int count = 0;
+            int previous = -1;
+            Postings postings = term.getValue();
+            for (int p = 0; p < postings.size; p++) {
+                int slot = newSlot[postings.slots[p]];
+                if (slot >= 0) {
+                    postingBytes += varIntSize(slot - previous) + varIntSize(postings.frequencies[p]);
+                    previous = slot;
+                    count++;
+                }
+            }
+            if (count > 0) {
+                size += stringSize(term.getKey()) + varIntSize(count) + postingBytes;
+            }
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(maxId);
+            out.putLong(updatedMillis);
+            out.putInt(live);
+            out.putLong(totalLength);
+            putDictionary(out, types);
+            putDictionary(out, statuses);
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (!dead[slot]) {
+                    out.putInt(ids[slot]);
+                    out.putInt(lengths[slot]);
+                    out.putInt(priorities[slot]);
+                    out.putShort(typeCodes[slot]);
+                    out.putShort(statusCodes[slot]);
+                }
+            }
+            int termPosition = out.position();
+            out.putInt(0);
+            int termCount = 0;
+            for (Map.Entry<String, Postings> term : terms.entrySet()) {
+                Postings postings = term.getValue();
+                int count = 0;
+                for (int p = 0; p < postings.size; p++) {
+                    if (newSlot[postings.slots[p]] >= 0) {
+                        count++;
+                    }
+                }
+                if (count == 0) {
+                    continue;
+                }
+                putString(out, term.getKey());
+                putVarInt(out, count);
+                int previous = -1;
+                for (int p = 0; p < postings.size; p++) {
+                    int slot = newSlot[postings.slots[p]];
+                    if (slot >= 0) {
+                        putVarInt(out, slot - previous);
+                        putVarInt(out, postings.frequencies[p]);
+                        previous = slot;
+                    }
+                }
+                termCount++;
+            }
+            out.putInt(termPosition, termCount);
+            out.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedAt = System.nanoTime();
+        dirty = false;
+    }
+
+    private void load() throws IOException {
+        clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a requirement index: " + file);
+            }
+            maxId = in.getInt();
+            updatedMillis = in.getLong();
+            int live = in.getInt();
+            totalLength = in.getLong();
+            getDictionary(in, types);
+            getDictionary(in, statuses);
+            int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, live)) * 2);
+            ids = new int[capacity];
+            lengths = new int[capacity];
+            priorities = new int[capacity];
+            typeCodes = new short[capacity];
+            statusCodes = new short[capacity];
+            dead = new boolean[capacity];
+            for (int slot = 0; slot < live; slot++) {
+                ids[slot] = in.getInt();
+                lengths[slot] = in.getInt();
+                priorities[slot] = in.getInt();
+                typeCodes[slot] = in.getShort();
+                statusCodes[slot] = in.getShort();
+                slotById.put(ids[slot], slot);
+            }
+            slotCount = live;
+            liveCount = live;
+            int termCount = in.getInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = getString(in);
+                int count = getVarInt(in);
+                Postings postings = new Postings();
+                postings.slots = new int[count];
+                postings.frequencies = new int[count];
+                int slot = -1;
+                for (int p = 0; p < count; p++) {
+                    slot += getVarInt(in);
+                    postings.slots[p] = slot;
+                    postings.frequencies[p] = getVarInt(in);
+                }
+                postings.size = count;
+                terms.put(term, postings);
+            }
+        }
+        savedAt = System.nanoTime();
+        dirty = false;
+    }
+
+    private static long dictionarySize(List<String> dictionary) {
+        long size = 4;
+        for (String value : dictionary) {
+            size += stringSize(value);
+        }
+        return size;
+    }
+
+    private static void putDictionary(MappedByteBuffer out, List<String> dictionary) {
+        out.putInt(dictionary.size());
+        for (String value : dictionary) {
+            putString(out, value);
+        }
+    }
+
+    private static void getDictionary(MappedByteBuffer in, List<String> dictionary) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            dictionary.add(getString(in));
+        }
+    }
+
+    private static long stringSize(String value) {
+        int bytes = value.getBytes(StandardCharsets.UTF_8).length;
+        return varIntSize(bytes) + bytes;
+    }
+
+    private static void putString(MappedByteBuffer out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarInt(out, bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(MappedByteBuffer in) {
+        byte[] bytes = new byte[getVarInt(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarInt(MappedByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarInt(MappedByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
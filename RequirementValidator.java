@@ -0,0 +1,403 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// One check applied to a requirement. previousStatus is the status the requirement had when it was
+// last validated, or null the first time. Returns a problem description, or null if it passes.
+// Rules are called from several threads at once and must not keep per-call state.
+interface ValidationRule {
+    String name();
+
+    // Whatever besides the name changes what check() reports, so that changing it re-validates rows.
+    default String configuration() {
+        return "";
+    }
+
+    String check(Requirement requirement, String previousStatus);
+}
+
+class NonEmptyDescriptionRule implements ValidationRule {
+    @Override
+    public String name() {
+        return "non-empty description";
+    }
+
+    @Override
+    public String check(Requirement requirement, String previousStatus) {
+        return requirement.getDescription() == null || requirement.getDescription().trim().isEmpty()
+                ? "Description is empty" : null;
+    }
+}
+
+class PriorityRangeRule implements ValidationRule {
+    private final int min;
+    private final int max;
+
+    PriorityRangeRule(int min, int max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    @Override
+    public String name() {
+        return "priority " + min + "-" + max;
+    }
+
+    @Override
+    public String configuration() {
+        return min + "," + max;
+    }
+
+    @Override
+    public String check(Requirement requirement, String previousStatus) {
+        int priority = requirement.getPriority();
+        return priority < min || priority > max
+                ? "Priority " + priority + " is outside " + min + "-" + max : null;
+    }
+}
+
+// Status must be one of the lifecycle states and may only move to a neighbouring one since the
+// last validation: Elicited -> Analyzed -> Specified -> Validated, or one step back for rework.
+class StatusTransitionRule implements ValidationRule {
+    static final List<String> LIFECYCLE = Arrays.asList("Elicited", "Analyzed", "Specified", "Validated");
+
+    @Override
+    public String name() {
+        return "status transitions";
+    }
+
+    @Override
+    public String configuration() {
+        return String.join(",", LIFECYCLE);
+    }
+
+    @Override
+    public String check(Requirement requirement, String previousStatus) {
+        int to = indexOf(requirement.getStatus());
+        if (to < 0) {
+            return "Status '" + requirement.getStatus() + "' is not one of " + String.join(", ", LIFECYCLE);
+        }
+        int from = indexOf(previousStatus);
+        if (from >= 0 && Math.abs(to - from) > 1) {
+            return "Status cannot change from " + LIFECYCLE.get(from) + " to " + LIFECYCLE.get(to);
+        }
+        return null;
+    }
+
+    private static int indexOf(String status) {
+        if (status == null) {
+            return -1;
+        }
+        for (int i = 0; i < LIFECYCLE.size(); i++) {
+            if (LIFECYCLE.get(i).equalsIgnoreCase(status.trim())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
+
+// Flags vague wording. The lexicon holds single words and multi-word phrases, matched on the same
+// tokens RequirementIndex uses; requirements.ambiguousWords names a file with one entry per line
+// to replace the built-in list.
+class AmbiguousWordsRule implements ValidationRule {
+    static final List<String> DEFAULT_LEXICON = Arrays.asList(
+            "fast", "quickly", "quick", "easy", "easily", "simple", "user friendly", "flexible", "adequate",
+            "appropriate", "as appropriate", "efficient", "robust", "seamless", "intuitive", "sufficient",
+            "normally", "usually", "generally", "some", "several", "many", "etc", "and or", "minimal",
+            "maximize", "minimize", "if possible", "as needed", "approximately", "state of the art", "tbd",
+            "reasonable", "timely", "optimal");
+
+    private final Set<String> words = new HashSet<>();
+    private final List<List<String>> phrases = new ArrayList<>();
+
+    AmbiguousWordsRule(Collection<String> lexicon) {
+        for (String entry : lexicon) {
+            List<String> tokens = RequirementIndex.tokenize(entry);
+            if (tokens.size() == 1) {
+                words.add(tokens.get(0));
+            } else if (tokens.size() > 1) {
+                phrases.add(tokens);
+            }
+        }
+    }
+
+    static AmbiguousWordsRule standard() throws IOException {
+        String file = System.getProperty("requirements.ambiguousWords");
+        return new AmbiguousWordsRule(file == null ? DEFAULT_LEXICON
+                : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String name() {
+        return "ambiguous wording";
+    }
+
+    @Override
+    public String configuration() {
+        List<String> entries = new ArrayList<>(words);
+        for (List<String> phrase : phrases) {
+            entries.add(String.join(" ", phrase));
+        }
+        Collections.sort(entries);
+        return String.join(",", entries);
+    }
+
+    @Override
+    public String check(Requirement requirement, String previousStatus) {
+        List<String> tokens = RequirementIndex.tokenize(requirement.getDescription());
+        Set<String> found = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (words.contains(tokens.get(i))) {
+                found.add(tokens.get(i));
+            }
+            for (List<String> phrase : phrases) {
+                if (i + phrase.size() <= tokens.size() && tokens.subList(i, i + phrase.size()).equals(phrase)) {
+                    found.add(String.join(" ", phrase));
+                }
+            }
+        }
+        return found.isEmpty() ? null : "Ambiguous wording: " + String.join(", ", found);
+    }
+}
+
+class ValidationRun {
+    final int scanned;
+    final int checked;
+    final int approved;
+    final int rejected;
+    final long elapsedNanos;
+
+    ValidationRun(int scanned, int checked, int approved, int rejected, long elapsedNanos) {
+        this.scanned = scanned;
+        this.checked = checked;
+        this.approved = approved;
+        this.rejected = rejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        return "Scanned " + scanned + ", re-checked " + checked + " (" + (scanned - checked) + " unchanged)" +
+               ", approved " + approved + ", rejected " + rejected +
+               " in " + String.format("%.2f", seconds) + " s: " +
+               String.format("%.0f", scanned / seconds) + " requirements/sec scanned, " +
+               String.format("%.0f", checked / seconds) + " validated/sec";
+    }
+}
+
+// Runs a rule set over the Requirements table. Rows are streamed in chunks; each chunk is checked in
+// parallel on the fork-join pool and its ValidationReports and ValidationState rows are written in
+// one batch each. ValidationState keeps a hash of every requirement's content (and of the rule
+// set) as of its last validation, so a later run re-checks only requirements that changed.
+//
+//   java RequirementValidator [--full] [--chunk N]   validates the whole table and prints throughput
+public class RequirementValidator {
+
+    static final int DEFAULT_CHUNK = 10_000;
+    private static final int ROWS_PER_TASK = 512;
+
+    private final String database;
+    private final List<ValidationRule> rules;
+    private final long rulesHash;
+    private final int chunkSize;
+
+    public RequirementValidator(String database, List<ValidationRule> rules, int chunkSize) {
+        this.database = database;
+        this.rules = new ArrayList<>(rules);
+        this.chunkSize = chunkSize;
+        StringBuilder ruleSet = new StringBuilder();
+        for (ValidationRule rule : rules) {
+            ruleSet.append(rule.name()).append('\u0000').append(rule.configuration()).append('\n');
+        }
+        this.rulesHash = hash(ruleSet.toString());
+    }
+
+    public static List<ValidationRule> standardRules() throws IOException {
+        return Arrays.asList(new NonEmptyDescriptionRule(), new PriorityRangeRule(1, 10),
+                             new StatusTransitionRule(), AmbiguousWordsRule.standard());
+    }
+
+    // Problems found by the rule set, empty if the requirement passes.
+    public List<String> check(Requirement requirement, String previousStatus) {
+        List<String> problems = new ArrayList<>();
+        for (ValidationRule rule : rules) {
+            String problem = rule.check(requirement, previousStatus);
+            if (problem != null) {
+                problems.add(problem);
+            }
+        }
+        return problems;
+    }
+
+    // Validates every requirement whose content changed since its last validation, or all of them
+    // when full is set.
+    public ValidationRun validate(boolean full) throws SQLException {
+        long start = System.nanoTime();
+        int scanned = 0;
+        int approved = 0;
+        int rejected = 0;
+        int checked = 0;
+        List<Requirement> chunk = new ArrayList<>(chunkSize);
+        List<String> previous = new ArrayList<>(chunkSize);
+        String sql = "SELECT r.id, r.type, r.description, r.priority, r.status, v.contentHash, v.status AS validatedStatus " +
+                     "FROM Requirements r LEFT JOIN ValidationState v ON v.requirementId = r.id";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    scanned++;
+                    Requirement requirement = new Requirement(rs.getInt("id"), rs.getString("type"),
+                            rs.getString("description"), rs.getInt("priority"), rs.getString("status"));
+                    long stored = rs.getLong("contentHash");
+                    if (!full && !rs.wasNull() && stored == contentHash(requirement)) {
+                        continue;
+                    }
+                    chunk.add(requirement);
+                    previous.add(rs.getString("validatedStatus"));
+                    if (chunk.size() == chunkSize) {
+                        int passed = validateChunk(chunk, previous);
+                        checked += chunk.size();
+                        approved += passed;
+                        rejected += chunk.size() - passed;
+                        chunk.clear();
+                        previous.clear();
+                    }
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            int passed = validateChunk(chunk, previous);
+            checked += chunk.size();
+            approved += passed;
+            rejected += chunk.size() - passed;
+        }
+        return new ValidationRun(scanned, checked, approved, rejected, System.nanoTime() - start);
+    }
+
+    // Checks one chunk in parallel and writes its reports and state; returns how many passed.
+    private int validateChunk(List<Requirement> chunk, List<String> previous) throws SQLException {
+        String[] feedback = new String[chunk.size()];
+        ForkJoinPool.commonPool().invoke(new CheckRange(chunk, previous, feedback, 0, chunk.size()));
+
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        List<Integer> transitionsAccepted = new ArrayList<>(chunk.size());
+        int passed = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            positions.add(i);
+            if (feedback[i] == null) {
+                passed++;
+            }
+            if (transitionAccepted(chunk.get(i), previous.get(i))) {
+                transitionsAccepted.add(i);
+            }
+        }
+
+        String reportSql = "INSERT INTO ValidationReports (requirementId, validationStatus, feedback) VALUES (?, ?, ?)";
+        BulkResult reports = new BulkInserter<Integer>(database, reportSql, (pstmt, i) -> {
+            pstmt.setInt(1, chunk.get(i).getId());
+            pstmt.setString(2, feedback[i] == null ? "Approved" : "Rejected");
+            pstmt.setString(3, feedback[i] == null ? "All " + rules.size() + " rules passed" : feedback[i]);
+        }).insertAll(positions);
+        if (reports.hasErrors()) {
+            throw reports.errors.get(0).cause;
+        }
+
+        // A rejected status change must not become the baseline, so those rows keep their old hash
+        // and status and are checked against the same previous status on every run until fixed.
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        String stateSql = "INSERT INTO ValidationState (requirementId, contentHash, status, validatedAt) VALUES (?, ?, ?, ?) " +
+                          "ON DUPLICATE KEY UPDATE contentHash = VALUES(contentHash), status = VALUES(status), " +
+                          "validatedAt = VALUES(validatedAt)";
+        BulkResult state = new BulkInserter<Integer>(database, stateSql, (pstmt, i) -> {
+            Requirement requirement = chunk.get(i);
+            pstmt.setInt(1, requirement.getId());
+            pstmt.setLong(2, contentHash(requirement));
+            pstmt.setString(3, requirement.getStatus());
+            pstmt.setTimestamp(4, now);
+        }).insertAll(transitionsAccepted);
+        if (state.hasErrors()) {
+            throw state.errors.get(0).cause;
+        }
+        return passed;
+    }
+
+    private boolean transitionAccepted(Requirement requirement, String previousStatus) {
+        for (ValidationRule rule : rules) {
+            if (rule instanceof StatusTransitionRule && rule.check(requirement, previousStatus) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class CheckRange extends RecursiveAction {
+        private final List<Requirement> chunk;
+        private final List<String> previous;
+        private final String[] feedback;
+        private final int from;
+        private final int to;
+
+        CheckRange(List<Requirement> chunk, List<String> previous, String[] feedback, int from, int to) {
+            this.chunk = chunk;
+            this.previous = previous;
+            this.feedback = feedback;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    List<String> problems = check(chunk.get(i), previous.get(i));
+                    feedback[i] = problems.isEmpty() ? null : String.join("; ", problems);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CheckRange(chunk, previous, feedback, from, mid),
+                      new CheckRange(chunk, previous, feedback, mid, to));
+        }
+    }
+
+    // Changes whenever a validated field or the rule set changes.
+    long contentHash(Requirement requirement) {
+        return hash(requirement.getType() + '\u0000' + requirement.getDescription() + '\u0000' +
+                    requirement.getPriority() + '\u0000' + requirement.getStatus()) ^ rulesHash;
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes.
+    private static long hash(String text) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean full = false;
+        int chunkSize = DEFAULT_CHUNK;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--full": full = true; break;
+                case "--chunk": chunkSize = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Usage: java RequirementValidator [--full] [--chunk N]");
+                    System.exit(2);
+            }
+        }
+        RequirementValidator validator = new RequirementValidator("RequirementsEngineering", standardRules(), chunkSize);
+        ValidationRun run = validator.validate(full);
+        System.out.println(run);
+        System.exit(0);
+    }
+}
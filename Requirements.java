@@ -1,11 +1,14 @@
 import javafx.application.Application;
+import javafx.collections.FXCollections;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Supplier;
 
 class Requirement {
     private int id;
@@ -26,6 +29,26 @@ class Requirement {
         this.id = id;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
     @Override
     public String toString() {
         return "ID: " + id + ", Type: " + type + ", Description: " + description +
@@ -35,62 +58,186 @@ class Requirement {
 
 public class RequirementsEngineeringApp extends Application {
 
+    private static final int SEARCH_LIMIT = 100;
+
+    private final RequirementIndex requirementIndex =
+            new RequirementIndex("RequirementsEngineering", RequirementIndex.defaultFile("RequirementsEngineering"));
+    private final TraceabilityGraph traceabilityGraph = new TraceabilityGraph();
+    private final DuplicateDetector duplicateDetector =
+            new DuplicateDetector("RequirementsEngineering", DuplicateDetector.defaultThreshold());
+
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/RequirementsEngineering", "root", "password");
+            return ConnectionPool.getConnection("RequirementsEngineering");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    private void addRequirementToDatabase(Requirement requirement) {
+    // Returns the generated id, or -1 if the row could not be written.
+    private int addRequirementToDatabase(Requirement requirement) {
         String sql = "INSERT INTO Requirements (type, description, priority, status) VALUES (?, ?, ?, ?)";
         try (Connection conn = connectDB();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, requirement.type);
-            pstmt.setString(2, requirement.description);
-            pstmt.setInt(3, requirement.priority);
-            pstmt.setString(4, requirement.status);
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, requirement.getType());
+            pstmt.setString(2, requirement.getDescription());
+            pstmt.setInt(3, requirement.getPriority());
+            pstmt.setString(4, requirement.getStatus());
             pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    int id = keys.getInt(1);
+                    requirementIndex.add(new Requirement(id, requirement.getType(), requirement.getDescription(),
+                            requirement.getPriority(), requirement.getStatus()));
+                    return id;
+                }
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return -1;
     }
 
-    private List<Requirement> getAllRequirementsFromDatabase() {
+    // Rows for the given ids, in the order given.
+    private List<Requirement> getRequirementsFromDatabase(List<Integer> ids) throws SQLException {
+        Map<Integer, Requirement> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            String sql = "SELECT * FROM Requirements WHERE id IN (" +
+                         String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+            try (Connection conn = ConnectionPool.getConnection("RequirementsEngineering");
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    pstmt.setInt(i + 1, ids.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        byId.put(rs.getInt("id"), new Requirement(
+                                rs.getInt("id"),
+                                rs.getString("type"),
+                                rs.getString("description"),
+                                rs.getInt("priority"),
+                                rs.getString("status")
+                        ));
+                    }
+                }
+            }
+        }
         List<Requirement> requirements = new ArrayList<>();
-        String sql = "SELECT * FROM Requirements";
-        try (Connection conn = connectDB();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Requirement requirement = new Requirement(
-                        rs.getInt("id"),
-                        rs.getString("type"),
-                        rs.getString("description"),
-                        rs.getInt("priority"),
-                        rs.getString("status")
-                );
+        for (int id : ids) {
+            Requirement requirement = byId.get(id);
+            if (requirement != null) {
                 requirements.add(requirement);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return requirements;
     }
 
-    private void validateRequirement(int requirementId, String validationStatus, String feedback) {
-        String sql = "INSERT INTO ValidationReports (requirementId, validationStatus, feedback) VALUES (?, ?, ?)";
-        try (Connection conn = connectDB();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, requirementId);
-            pstmt.setString(2, validationStatus);
-            pstmt.setString(3, feedback);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    // One line per likely duplicate of a newly added requirement, with the existing description.
+    private List<String> describeDuplicates(List<DuplicatePair> matches) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        Map<Integer, DuplicatePair> byId = new HashMap<>();
+        for (DuplicatePair match : matches) {
+            ids.add(match.firstId);
+            byId.put(match.firstId, match);
+        }
+        List<String> lines = new ArrayList<>();
+        for (Requirement existing : getRequirementsFromDatabase(ids)) {
+            DuplicatePair match = byId.get(existing.getId());
+            lines.add("Possible duplicate: ID " + match.secondId + " is " + Math.round(match.similarity * 100) +
+                      "% similar to " + existing);
         }
+        return lines;
+    }
+
+    // "R12 -> T34" links requirement 12 to test case 34; see TraceKind for the reference syntax.
+    private String addTraceLink(String text) throws SQLException {
+        String[] ends = traceLinkEnds(text);
+        TraceabilityGraph.addLink(TraceKind.ofReference(ends[0]), TraceKind.idOfReference(ends[0]),
+                                  TraceKind.ofReference(ends[1]), TraceKind.idOfReference(ends[1]));
+        traceabilityGraph.refresh();
+        return "Linked " + ends[0] + " -> " + ends[1] + " (" + traceabilityGraph.links() + " links)";
+    }
+
+    private String removeTraceLink(String text) throws SQLException {
+        String[] ends = traceLinkEnds(text);
+        boolean removed = TraceabilityGraph.removeLink(TraceKind.ofReference(ends[0]), TraceKind.idOfReference(ends[0]),
+                                                       TraceKind.ofReference(ends[1]), TraceKind.idOfReference(ends[1]));
+        traceabilityGraph.refresh();
+        return (removed ? "Removed " : "No link ") + ends[0] + " -> " + ends[1] +
+               " (" + traceabilityGraph.links() + " links)";
+    }
+
+    private static String[] traceLinkEnds(String text) {
+        String[] ends = text.split("->");
+        if (ends.length != 2) {
+            throw new IllegalArgumentException("Write a trace link as e.g. R12 -> T34");
+        }
+        return new String[] {ends[0].trim(), ends[1].trim()};
+    }
+
+    // Other apps write to the traced tables, so every query first takes in what changed since the last one.
+    private List<String> traceQuery(String title, Supplier<List<TraceItem>> query) throws SQLException {
+        traceabilityGraph.refresh();
+        long start = System.nanoTime();
+        List<TraceItem> items = query.get();
+        List<String> lines = new ArrayList<>();
+        lines.add(items.size() + " " + title + " (" + traceabilityGraph.size() + " traced artefacts, " +
+                  String.format("%.2f", (System.nanoTime() - start) / 1e6) + " ms)");
+        for (TraceItem item : items) {
+            lines.add(item.toString());
+        }
+        return lines;
+    }
+
+    private List<String> findDuplicates() {
+        long start = System.nanoTime();
+        List<DuplicatePair> pairs = duplicateDetector.findAll();
+        List<String> lines = new ArrayList<>();
+        lines.add(pairs.size() + " likely duplicate pair(s) among " + duplicateDetector.size() + " requirements in " +
+                  String.format("%.1f", (System.nanoTime() - start) / 1e6) + " ms");
+        for (DuplicatePair pair : pairs) {
+            lines.add(pair.toString());
+        }
+        return lines;
+    }
+
+    private List<String> searchRequirements(String query, RequirementFilter filter) throws SQLException, IOException {
+        requirementIndex.refresh();
+        long start = System.nanoTime();
+        List<SearchHit> hits = requirementIndex.search(query, filter, SEARCH_LIMIT);
+        long searched = System.nanoTime() - start;
+        List<Integer> ids = new ArrayList<>();
+        Map<Integer, Double> scores = new HashMap<>();
+        for (SearchHit hit : hits) {
+            ids.add(hit.requirementId);
+            scores.put(hit.requirementId, hit.score);
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(hits.size() + " match(es) from " + requirementIndex.size() + " requirements in " +
+                  String.format("%.2f", searched / 1e6) + " ms");
+        for (Requirement requirement : getRequirementsFromDatabase(ids)) {
+            lines.add(String.format("%.2f", scores.get(requirement.getId())) + "  " + requirement);
+        }
+        return lines;
+    }
+
+    private List<String> validateRequirements() throws SQLException, IOException {
+        RequirementValidator validator = new RequirementValidator("RequirementsEngineering",
+                RequirementValidator.standardRules(), RequirementValidator.DEFAULT_CHUNK);
+        ValidationRun run = validator.validate(false);
+        List<String> lines = new ArrayList<>();
+        lines.add(run.toString());
+        String sql = "SELECT requirementId, feedback FROM ValidationReports WHERE validationStatus = 'Rejected' " +
+                     "ORDER BY id DESC LIMIT 100";
+        try (Connection conn = ConnectionPool.getConnection("RequirementsEngineering");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                lines.add("Rejected ID " + rs.getInt("requirementId") + ": " + rs.getString("feedback"));
+            }
+        }
+        return lines;
     }
 
     @Override
@@ -109,7 +256,29 @@ public class RequirementsEngineeringApp extends Application {
         Button addRequirementButton = new Button("Add Requirement");
         Button viewRequirementsButton = new Button("View Requirements");
 
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search descriptions (word* matches a prefix)");
+        TextField typeFilterField = new TextField();
+        typeFilterField.setPromptText("Filter by Type (optional)");
+        TextField statusFilterField = new TextField();
+        statusFilterField.setPromptText("Filter by Status (optional)");
+        TextField minPriorityField = new TextField();
+        minPriorityField.setPromptText("Min Priority (optional)");
+        TextField maxPriorityField = new TextField();
+        maxPriorityField.setPromptText("Max Priority (optional)");
+        Button searchButton = new Button("Search Requirements");
+        Button duplicatesButton = new Button("Find Duplicates");
+        Button validateButton = new Button("Validate Requirements");
+        TextField traceLinkField = new TextField();
+        traceLinkField.setPromptText("Trace Link (e.g. R12 -> T34, U5 -> R12, D:BUG-7 -> T34)");
+        Button traceLinkButton = new Button("Add Trace Link");
+        Button removeTraceLinkButton = new Button("Remove Trace Link");
+        Button showTraceLinksButton = new Button("Show Trace Links (e.g. R12)");
+        Button untestedButton = new Button("Requirements Without Passing Test");
+        Button criticalDefectsButton = new Button("Requirements Hit by Open Severity-5 Defects");
+
         ListView<String> resultListView = new ListView<>();
+        LazyPagedList.closeOnReplace(resultListView);
 
         addRequirementButton.setOnAction(e -> {
             String type = typeField.getText();
@@ -118,7 +287,14 @@ public class RequirementsEngineeringApp extends Application {
             String status = statusField.getText();
 
             Requirement requirement = new Requirement(type, description, priority, status);
-            addRequirementToDatabase(requirement);
+            DbExecutor.deliver(DbExecutor.supply("addRequirement", () -> {
+                int id = addRequirementToDatabase(requirement);
+                return id < 0 ? Collections.<String>emptyList() : describeDuplicates(duplicateDetector.add(id, description));
+            }), warnings -> {
+                if (!warnings.isEmpty()) {
+                    resultListView.setItems(FXCollections.observableArrayList(warnings));
+                }
+            });
 
             typeField.clear();
             descriptionField.clear();
@@ -126,23 +302,113 @@ public class RequirementsEngineeringApp extends Application {
             statusField.clear();
         });
 
+        searchButton.setOnAction(e -> {
+            String query = searchField.getText();
+            String type = typeFilterField.getText().trim();
+            String status = statusFilterField.getText().trim();
+            String min = minPriorityField.getText().trim();
+            String max = maxPriorityField.getText().trim();
+            RequirementFilter filter = new RequirementFilter(
+                    type.isEmpty() ? null : type,
+                    status.isEmpty() ? null : status,
+                    min.isEmpty() ? Integer.MIN_VALUE : Integer.parseInt(min),
+                    max.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(max));
+            DbExecutor.deliver(DbExecutor.supplyLatest("searchRequirements", () -> searchRequirements(query, filter)),
+                    lines -> resultListView.setItems(FXCollections.observableArrayList(lines)));
+        });
+
+        duplicatesButton.setOnAction(e -> {
+            DbExecutor.deliver(DbExecutor.supplyLatest("findDuplicates", this::findDuplicates),
+                    lines -> resultListView.setItems(FXCollections.observableArrayList(lines)));
+        });
+
+        validateButton.setOnAction(e -> {
+            DbExecutor.deliver(DbExecutor.supplyLatest("validateRequirements", this::validateRequirements),
+                    lines -> resultListView.setItems(FXCollections.observableArrayList(lines)));
+        });
+
+        traceLinkButton.setOnAction(e -> {
+            String link = traceLinkField.getText();
+            DbExecutor.deliver(DbExecutor.supply("addTraceLink", () -> addTraceLink(link)), message -> {
+                resultListView.setItems(FXCollections.observableArrayList(message));
+                traceLinkField.clear();
+            }, error -> resultListView.setItems(FXCollections.observableArrayList(error.getMessage())));
+        });
+
+        removeTraceLinkButton.setOnAction(e -> {
+            String link = traceLinkField.getText();
+            DbExecutor.deliver(DbExecutor.supply("removeTraceLink", () -> removeTraceLink(link)), message -> {
+                resultListView.setItems(FXCollections.observableArrayList(message));
+                traceLinkField.clear();
+            }, error -> resultListView.setItems(FXCollections.observableArrayList(error.getMessage())));
+        });
+
+        showTraceLinksButton.setOnAction(e -> {
+            String reference = traceLinkField.getText().trim();
+            DbExecutor.deliver(DbExecutor.supplyLatest("showTraceLinks", () -> traceQuery(
+                    "artefacts linked to " + reference, () -> traceabilityGraph.linksOf(
+                            TraceKind.ofReference(reference), TraceKind.idOfReference(reference)))),
+                    lines -> resultListView.setItems(FXCollections.observableArrayList(lines)),
+                    error -> resultListView.setItems(FXCollections.observableArrayList(error.getMessage())));
+        });
+
+        untestedButton.setOnAction(e -> {
+            DbExecutor.deliver(DbExecutor.supplyLatest("untestedRequirements", () -> traceQuery(
+                    "requirements without a passing test", traceabilityGraph::requirementsWithoutPassingTest)),
+                    lines -> resultListView.setItems(FXCollections.observableArrayList(lines)));
+        });
+
+        criticalDefectsButton.setOnAction(e -> {
+            DbExecutor.deliver(DbExecutor.supplyLatest("criticalDefectImpact", () -> traceQuery(
+                    "requirements affected by open severity-5 defects",
+                    () -> traceabilityGraph.requirementsAffectedByOpenDefects(5))),
+                    lines -> resultListView.setItems(FXCollections.observableArrayList(lines)));
+        });
+
         viewRequirementsButton.setOnAction(e -> {
-            resultListView.getItems().clear();
-            List<Requirement> requirements = getAllRequirementsFromDatabase();
-            for (Requirement req : requirements) {
-                resultListView.getItems().add(req.toString());
-            }
+            resultListView.setItems(new LazyPagedList("RequirementsEngineering", "Requirements", "id",
+                    "type, description, priority, status",
+                    rs -> new Requirement(
+                            rs.getInt("id"),
+                            rs.getString("type"),
+                            rs.getString("description"),
+                            rs.getInt("priority"),
+                            rs.getString("status")
+                    ).toString()).load());
         });
 
         vbox.getChildren().addAll(typeField, descriptionField, priorityField, statusField,
-                                  addRequirementButton, viewRequirementsButton, resultListView);
+                                  addRequirementButton, viewRequirementsButton,
+                                  searchField, typeFilterField, statusFilterField, minPriorityField, maxPriorityField,
+                                  searchButton, duplicatesButton, validateButton,
+                                  traceLinkField, traceLinkButton, removeTraceLinkButton, showTraceLinksButton,
+                                  untestedButton, criticalDefectsButton,
+                                  resultListView);
 
-        Scene scene = new Scene(vbox, 400, 600);
+        DbExecutor.deliver(DbExecutor.supply("openRequirementIndex", () -> {
+            requirementIndex.open();
+            return null;
+        }), opened -> { });
+        DbExecutor.deliver(DbExecutor.supply("loadTraceabilityGraph", () -> {
+            traceabilityGraph.refresh();
+            return null;
+        }), loaded -> { });
+        DbExecutor.deliver(DbExecutor.supply("openDuplicateDetector", () -> {
+            duplicateDetector.open();
+            return null;
+        }), opened -> { });
+
+        Scene scene = new Scene(vbox, 400, 900);
         primaryStage.setTitle("Requirements Engineering System");
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
+    @Override
+    public void stop() throws Exception {
+        requirementIndex.save();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -7,9 +7,12 @@ CREATE TABLE Requirements (
     type VARCHAR(50), -- Functional or Non-Functional
     description TEXT,
     priority INT,
-    status VARCHAR(20) -- Elicited, Analyzed, Specified, Validated
+    status VARCHAR(20), -- Elicited, Analyzed, Specified, Validated
+    updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) -- polled by TraceabilityGraph.refresh()
 );
 
+CREATE INDEX idx_requirements_updated ON Requirements (updatedAt);
+
 CREATE TABLE ValidationReports (
     id INT AUTO_INCREMENT PRIMARY KEY,
     requirementId INT,
@@ -17,3 +20,37 @@ CREATE TABLE ValidationReports (
     feedback TEXT,
     FOREIGN KEY (requirementId) REFERENCES Requirements(id)
 );
+
+-- MinHash signatures cached per requirement; descriptionHash is the CRC32C of the description they
+-- were computed from (with the signature version in the high bits).
+CREATE TABLE RequirementSignatures (
+    requirementId INT PRIMARY KEY,
+    descriptionHash BIGINT,
+    signature VARBINARY(512),
+    FOREIGN KEY (requirementId) REFERENCES Requirements(id)
+);
+
+-- Content hash and status of each requirement when it was last validated; RequirementValidator
+-- re-checks only rows whose hash no longer matches.
+CREATE TABLE ValidationState (
+    requirementId INT PRIMARY KEY,
+    contentHash BIGINT,
+    status VARCHAR(20),
+    validatedAt TIMESTAMP,
+    FOREIGN KEY (requirementId) REFERENCES Requirements(id)
+);
+
+-- Links between requirements, use cases, test cases and defects, which live in different databases.
+-- Kinds are REQUIREMENT, USE_CASE, TEST_CASE and DEFECT; ids are kept as text because defect ids are.
+CREATE TABLE TraceLinks (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    fromKind VARCHAR(20),
+    fromId VARCHAR(20),
+    toKind VARCHAR(20),
+    toId VARCHAR(20),
+    active BOOLEAN NOT NULL DEFAULT TRUE, -- removed links are kept inactive so graphs polling updatedAt see the removal
+    updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    UNIQUE KEY uq_tracelinks (fromKind, fromId, toKind, toId)
+);
+
+CREATE INDEX idx_tracelinks_updated ON TraceLinks (updatedAt);
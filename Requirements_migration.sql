@@ -0,0 +1,37 @@
+-- Upgrades a RequirementsEngineering database created by an older Requirements.sql, which itself
+-- creates the current schema on a fresh server. Run once: mysql < Requirements_migration.sql
+
+USE RequirementsEngineering;
+
+-- Change feeds polled by TraceabilityGraph.refresh(), and the trace links themselves.
+ALTER TABLE Requirements ADD COLUMN updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+CREATE INDEX idx_requirements_updated ON Requirements (updatedAt);
+
+CREATE TABLE IF NOT EXISTS TraceLinks (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    fromKind VARCHAR(20),
+    fromId VARCHAR(20),
+    toKind VARCHAR(20),
+    toId VARCHAR(20),
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    UNIQUE KEY uq_tracelinks (fromKind, fromId, toKind, toId),
+    INDEX idx_tracelinks_updated (updatedAt)
+);
+
+-- Cached MinHash signatures for duplicate detection.
+CREATE TABLE IF NOT EXISTS RequirementSignatures (
+    requirementId INT PRIMARY KEY,
+    descriptionHash BIGINT,
+    signature VARBINARY(512),
+    FOREIGN KEY (requirementId) REFERENCES Requirements(id)
+);
+
+-- Per-requirement state of the last validation, for incremental runs.
+CREATE TABLE IF NOT EXISTS ValidationState (
+    requirementId INT PRIMARY KEY,
+    contentHash BIGINT,
+    status VARCHAR(20),
+    validatedAt TIMESTAMP,
+    FOREIGN KEY (requirementId) REFERENCES Requirements(id)
+);
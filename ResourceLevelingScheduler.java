@@ -0,0 +1,317 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Per-resource daily capacity. Availability text is "<units>[;<from>..<to>=<units>]..." where dates
+// are ISO days, e.g. "2;2026-12-24..2026-12-31=0". Text that does not start with a number (such as
+// "Full-time") counts as a single unit; a malformed date range or override is an IllegalArgumentException.
+class ResourceCalendar {
+    final String id;
+    final int defaultCapacity;
+    private final int[] overrideFrom;
+    private final int[] overrideTo;
+    private final int[] overrideCapacity;
+
+    ResourceCalendar(String id, int defaultCapacity, int[] overrideFrom, int[] overrideTo, int[] overrideCapacity) {
+        this.id = id;
+        this.defaultCapacity = defaultCapacity;
+        this.overrideFrom = overrideFrom;
+        this.overrideTo = overrideTo;
+        this.overrideCapacity = overrideCapacity;
+    }
+
+    static ResourceCalendar parse(String id, String availability, LocalDate projectStart) {
+        if (availability == null || availability.isBlank()) {
+            return new ResourceCalendar(id, 1, new int[0], new int[0], new int[0]);
+        }
+        String[] parts = availability.split(";");
+        int capacity;
+        try {
+            capacity = Integer.parseInt(parts[0].trim());
+        } catch (NumberFormatException e) {
+            capacity = 1;
+        }
+        int[] from = new int[parts.length - 1];
+        int[] to = new int[parts.length - 1];
+        int[] units = new int[parts.length - 1];
+        int count = 0;
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i].trim();
+            int eq = part.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            String range = part.substring(0, eq).trim();
+            int dots = range.indexOf("..");
+            try {
+                LocalDate first = LocalDate.parse(dots < 0 ? range : range.substring(0, dots).trim());
+                LocalDate last = dots < 0 ? first : LocalDate.parse(range.substring(dots + 2).trim());
+                from[count] = (int) (first.toEpochDay() - projectStart.toEpochDay());
+                to[count] = (int) (last.toEpochDay() - projectStart.toEpochDay());
+                units[count] = Integer.parseInt(part.substring(eq + 1).trim());
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Resource " + id + " has an invalid availability override '" +
+                        part + "': " + e.getMessage(), e);
+            }
+            count++;
+        }
+        return new ResourceCalendar(id, capacity, Arrays.copyOf(from, count), Arrays.copyOf(to, count),
+                Arrays.copyOf(units, count));
+    }
+
+    int capacityOn(int day) {
+        for (int i = overrideFrom.length - 1; i >= 0; i--) {
+            if (day >= overrideFrom[i] && day <= overrideTo[i]) {
+                return overrideCapacity[i];
+            }
+        }
+        return defaultCapacity;
+    }
+
+    int lastOverrideDay() {
+        int last = Integer.MIN_VALUE;
+        for (int day : overrideTo) {
+            last = Math.max(last, day);
+        }
+        return last;
+    }
+}
+
+// Lower keys are scheduled first; ties fall back to task index so every rule is deterministic.
+interface PriorityRule {
+    String name();
+
+    long key(int task, ScheduleResult cpm);
+}
+
+enum PriorityRules implements PriorityRule {
+    CRITICAL_PATH_FIRST {
+        public long key(int task, ScheduleResult cpm) {
+            return cpm.latestStart[task];
+        }
+    },
+    MINIMUM_SLACK {
+        public long key(int task, ScheduleResult cpm) {
+            return cpm.slack(task);
+        }
+    },
+    SHORTEST_JOB_FIRST {
+        public long key(int task, ScheduleResult cpm) {
+            return cpm.graph.duration[task];
+        }
+    },
+    LONGEST_JOB_FIRST {
+        public long key(int task, ScheduleResult cpm) {
+            return -cpm.graph.duration[task];
+        }
+    },
+    MOST_SUCCESSORS {
+        public long key(int task, ScheduleResult cpm) {
+            return -(cpm.graph.succOffsets[task + 1] - cpm.graph.succOffsets[task]);
+        }
+    }
+}
+
+class LeveledSchedule {
+    final String ruleName;
+    final int[] start;
+    final int[] finish;
+    final int makespan;
+
+    LeveledSchedule(String ruleName, int[] start, int[] finish, int makespan) {
+        this.ruleName = ruleName;
+        this.start = start;
+        this.finish = finish;
+        this.makespan = makespan;
+    }
+
+    @Override
+    public String toString() {
+        return "Rule: " + ruleName + ", Makespan: " + makespan + " days";
+    }
+}
+
+// Serial list scheduling: a task becomes eligible once all its predecessors are placed, the
+// eligible task with the lowest priority key is taken next and placed at the first day from which
+// its resource has a free unit for the whole duration. Every task occupies one unit of its
+// assigned resource; tasks without a resource are only constrained by their dependencies.
+public class ResourceLevelingScheduler {
+
+    private final ScheduleResult cpm;
+    private final int[] resourceOf;
+    private final ResourceCalendar[] calendars;
+
+    public ResourceLevelingScheduler(ScheduleResult cpm, int[] resourceOf, ResourceCalendar[] calendars) {
+        this.cpm = cpm;
+        this.resourceOf = resourceOf;
+        this.calendars = calendars;
+    }
+
+    public static int[] resolveResources(List<Task> tasks, ResourceCalendar[] calendars) {
+        Map<String, Integer> index = new HashMap<>(calendars.length * 2);
+        for (int r = 0; r < calendars.length; r++) {
+            index.put(calendars[r].id, r);
+        }
+        int[] resourceOf = new int[tasks.size()];
+        for (int i = 0; i < resourceOf.length; i++) {
+            String resource = tasks.get(i).getAssignedResource();
+            Integer r = resource == null ? null : index.get(resource.trim());
+            resourceOf[i] = r == null ? -1 : r;
+        }
+        return resourceOf;
+    }
+
+    public LeveledSchedule schedule(PriorityRule rule) {
+        TaskGraph graph = cpm.graph;
+        int n = graph.size();
+        long[] keys = new long[n];
+        int[] remainingPreds = new int[n];
+        IntHeap eligible = new IntHeap(n, keys);
+        for (int v = 0; v < n; v++) {
+            keys[v] = rule.key(v, cpm);
+            remainingPreds[v] = graph.predOffsets[v + 1] - graph.predOffsets[v];
+            if (remainingPreds[v] == 0) {
+                eligible.push(v);
+            }
+        }
+
+        int[][] usage = new int[calendars.length][];
+        int[] start = new int[n];
+        int[] finish = new int[n];
+        int makespan = 0;
+        while (!eligible.isEmpty()) {
+            int v = eligible.pop();
+            int earliest = 0;
+            for (int edge = graph.predOffsets[v]; edge < graph.predOffsets[v + 1]; edge++) {
+                earliest = Math.max(earliest, finish[graph.preds[edge]]);
+            }
+            int r = resourceOf[v];
+            int duration = graph.duration[v];
+            int day = r < 0 || duration == 0 ? earliest : place(r, earliest, duration, usage);
+            start[v] = day;
+            finish[v] = day + duration;
+            makespan = Math.max(makespan, finish[v]);
+
+            for (int edge = graph.succOffsets[v]; edge < graph.succOffsets[v + 1]; edge++) {
+                int succ = graph.succs[edge];
+                if (--remainingPreds[succ] == 0) {
+                    eligible.push(succ);
+                }
+            }
+        }
+        return new LeveledSchedule(rule.name(), start, finish, makespan);
+    }
+
+    private int place(int r, int earliest, int duration, int[][] usage) {
+        ResourceCalendar calendar = calendars[r];
+        int[] used = usage[r];
+        int candidate = earliest;
+        int day = candidate;
+        while (day < candidate + duration) {
+            if (used == null || day >= used.length) {
+                used = usage[r] = used == null ? new int[Math.max(64, candidate + duration)]
+                        : Arrays.copyOf(used, Math.max(used.length * 2, candidate + duration));
+            }
+            if (used[day] >= calendar.capacityOn(day)) {
+                if (calendar.defaultCapacity <= 0 && day > calendar.lastOverrideDay()) {
+                    throw new IllegalStateException("Resource " + calendar.id + " has no capacity after day " + day);
+                }
+                candidate = day + 1;
+            }
+            day++;
+        }
+        for (day = candidate; day < candidate + duration; day++) {
+            used[day]++;
+        }
+        return candidate;
+    }
+
+    // Runs every rule as a separate fork-join task and keeps the schedule with the shortest makespan.
+    // A rule that fails (e.g. a resource with no capacity) fails the whole call with its own exception.
+    public LeveledSchedule bestOf(List<? extends PriorityRule> rules) {
+        List<Callable<LeveledSchedule>> runs = new ArrayList<>();
+        for (PriorityRule rule : rules) {
+            runs.add(() -> schedule(rule));
+        }
+        LeveledSchedule best = null;
+        for (Future<LeveledSchedule> run : ForkJoinPool.commonPool().invokeAll(runs)) {
+            try {
+                LeveledSchedule candidate = run.get();
+                if (best == null || candidate.makespan < best.makespan) {
+                    best = candidate;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while leveling resources", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("No priority rule produced a schedule");
+        }
+        return best;
+    }
+
+    // Binary min-heap of task indexes ordered by keys[task], then by index.
+    private static class IntHeap {
+        private final int[] heap;
+        private final long[] keys;
+        private int size;
+
+        IntHeap(int capacity, long[] keys) {
+            this.heap = new int[Math.max(1, capacity)];
+            this.keys = keys;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int task) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(task, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = task;
+        }
+
+        int pop() {
+            int top = heap[0];
+            int last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!less(heap[child], last)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+
+        private boolean less(int a, int b) {
+            return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+        }
+    }
+}
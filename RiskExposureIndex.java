@@ -0,0 +1,137 @@
+import java.util.*;
+
+// Risks ordered by exposure (probability * impact) in parallel primitive arrays, ascending.
+// Lookups are binary searches over the sorted doubles, so top-K, above-threshold and percentile
+// queries cost O(log n + k); inserts find their slot the same way and shift the tail.
+public class RiskExposureIndex {
+
+    private double[] exposures = new double[64];
+    private String[] ids = new String[64];
+    private int size;
+    private double totalExposure;
+
+    public synchronized void add(String id, double exposure) {
+        int slot = upperBound(exposure);
+        if (size == exposures.length) {
+            exposures = Arrays.copyOf(exposures, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(exposures, slot, exposures, slot + 1, size - slot);
+        System.arraycopy(ids, slot, ids, slot + 1, size - slot);
+        exposures[slot] = exposure;
+        ids[slot] = id;
+        size++;
+        totalExposure += exposure;
+    }
+
+    // Replaces the contents in one go with an index merge sort instead of row-by-row inserts.
+    public synchronized void load(String[] riskIds, double[] riskExposures, int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[count], 0, count, riskExposures);
+        exposures = new double[Math.max(64, count + count / 4)];
+        ids = new String[exposures.length];
+        totalExposure = 0;
+        for (int i = 0; i < count; i++) {
+            exposures[i] = riskExposures[order[i]];
+            ids[i] = riskIds[order[i]];
+            totalExposure += exposures[i];
+        }
+        size = count;
+    }
+
+    private static void mergeSort(int[] order, int[] buffer, int from, int to, double[] keys) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(order, buffer, from, mid, keys);
+        mergeSort(order, buffer, mid, to, keys);
+        if (keys[order[mid - 1]] <= keys[order[mid]]) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && keys[buffer[left]] <= keys[buffer[right]])) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized double totalExposure() {
+        return totalExposure;
+    }
+
+    public synchronized int countAbove(double threshold) {
+        return size - upperBound(threshold);
+    }
+
+    // Highest exposures first, at most k of them.
+    public synchronized List<String> topK(int k) {
+        return describe(Math.max(0, size - k));
+    }
+
+    public synchronized List<String> aboveThreshold(double threshold) {
+        return describe(upperBound(threshold));
+    }
+
+    public synchronized double[] topExposures(int k) {
+        int from = Math.max(0, size - k);
+        double[] top = new double[size - from];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = exposures[size - 1 - i];
+        }
+        return top;
+    }
+
+    public synchronized String[] topIds(int k) {
+        int from = Math.max(0, size - k);
+        String[] top = new String[size - from];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = ids[size - 1 - i];
+        }
+        return top;
+    }
+
+    // Nearest-rank percentile (0-100) of exposure.
+    public synchronized double percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * size);
+        return exposures[Math.min(size - 1, Math.max(0, rank - 1))];
+    }
+
+    private List<String> describe(int from) {
+        List<String> lines = new ArrayList<>(size - from);
+        for (int i = size - 1; i >= from; i--) {
+            lines.add("Risk ID: " + ids[i] + " has an exposure of $" + exposures[i]);
+        }
+        return lines;
+    }
+
+    // First slot whose exposure is strictly greater than the value.
+    private int upperBound(double value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (exposures[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -1,10 +1,15 @@
 import javafx.application.Application;
+import javafx.collections.FXCollections;
 import javafx.scene.Scene;
 import javafx.scene.chart.PieChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
 
@@ -27,6 +32,10 @@ class Risk {
         return id;
     }
 
+    public String getDescription() {
+        return description;
+    }
+
     public double getRiskExposure() {
         return probability * impact;
     }
@@ -43,16 +52,25 @@ class Risk {
 
 public class RiskManagementApp extends Application {
 
+    private static final double HIGH_EXPOSURE_THRESHOLD = 5000; // Arbitrary threshold for high exposure
+    private static final int CHART_SLICES = 15;
+
+    private final RiskExposureIndex exposureIndex = new RiskExposureIndex();
+    private volatile boolean exposureIndexLoaded;
+
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/RiskManagement", "root", "password");
+            return ConnectionPool.getConnection("RiskManagement");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    private void addRiskToDatabase(String id, String description, double probability, double impact, String mitigation) {
+    // Synchronized with loadExposureIndex, so a risk lands either in the loader's SELECT or, once the
+    // index is loaded, through add(); never in neither and never in both.
+    private synchronized void addRiskToDatabase(String id, String description, double probability, double impact,
+                                                String mitigation) {
         String sql = "INSERT INTO Risks (id, description, probability, impact, mitigationPlan) VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = connectDB();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -62,38 +80,101 @@ public class RiskManagementApp extends Application {
             pstmt.setDouble(4, impact);
             pstmt.setString(5, mitigation);
             pstmt.executeUpdate();
+            if (exposureIndexLoaded) {
+                exposureIndex.add(id, probability * impact);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Loads a tracker export through BulkImport; a loaded exposure index is rebuilt from what landed,
+    // which also covers risks added while the import ran.
+    private BulkResult importRisks(Path file) throws IOException {
+        BulkResult result = BulkImport.importFile(BulkImport.Target.RISKS, file, BulkInserter.DEFAULT_BATCH_SIZE);
+        if (exposureIndexLoaded) {
+            loadExposureIndex();
+        }
+        return result;
+    }
+
+    // Reads only ids and exposures, never descriptions or mitigation text.
+    private synchronized void loadExposureIndex() {
+        String sql = "SELECT id, probability * impact AS exposure FROM Risks";
+        String[] ids = new String[1024];
+        double[] exposures = new double[1024];
+        int count = 0;
+        try (Connection conn = connectDB();
+             Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                        exposures = Arrays.copyOf(exposures, count * 2);
+                    }
+                    ids[count] = rs.getString("id");
+                    exposures[count] = rs.getDouble("exposure");
+                    count++;
+                }
+            }
+            exposureIndex.load(ids, exposures, count);
+            exposureIndexLoaded = true;
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    private List<Risk> getAllRisksFromDatabase() {
-        List<Risk> risks = new ArrayList<>();
-        String sql = "SELECT * FROM Risks";
+    private RiskSimulation loadRiskSimulation() {
+        String sql = "SELECT id, probability, impact FROM Risks";
+        String[] ids = new String[1024];
+        double[] probabilities = new double[1024];
+        double[] impacts = new double[1024];
+        int count = 0;
         try (Connection conn = connectDB();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Risk risk = new Risk(
-                        rs.getString("id"),
-                        rs.getString("description"),
-                        rs.getDouble("probability"),
-                        rs.getDouble("impact"),
-                        rs.getString("mitigationPlan")
-                );
-                risks.add(risk);
+             Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                        probabilities = Arrays.copyOf(probabilities, count * 2);
+                        impacts = Arrays.copyOf(impacts, count * 2);
+                    }
+                    ids[count] = rs.getString("id");
+                    probabilities[count] = rs.getDouble("probability");
+                    impacts[count] = rs.getDouble("impact");
+                    count++;
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return risks;
+        return new RiskSimulation(Arrays.copyOf(ids, count), Arrays.copyOf(probabilities, count),
+                Arrays.copyOf(impacts, count));
     }
 
-    private void showPieChart(Stage primaryStage, List<Risk> risks) {
+    private RiskExposureIndex getExposureIndex() {
+        if (!exposureIndexLoaded) {
+            loadExposureIndex();
+        }
+        return exposureIndex;
+    }
+
+    // The largest exposures get their own slice; everything else is folded into "Other".
+    private void showPieChart(Stage primaryStage, RiskExposureIndex index) {
         PieChart pieChart = new PieChart();
 
-        for (Risk risk : risks) {
-            pieChart.getData().add(new PieChart.Data(risk.getId(), risk.getRiskExposure()));
+        String[] ids = index.topIds(CHART_SLICES);
+        double[] exposures = index.topExposures(CHART_SLICES);
+        double shown = 0;
+        for (int i = 0; i < ids.length; i++) {
+            pieChart.getData().add(new PieChart.Data(ids[i], exposures[i]));
+            shown += exposures[i];
+        }
+        double other = index.totalExposure() - shown;
+        if (index.size() > ids.length && other > 0) {
+            pieChart.getData().add(new PieChart.Data("Other (" + (index.size() - ids.length) + ")", other));
         }
 
         VBox vbox = new VBox(pieChart);
@@ -104,16 +185,21 @@ public class RiskManagementApp extends Application {
         chartStage.show();
     }
 
-    private void checkHighExposure(List<Risk> risks) {
-        for (Risk risk : risks) {
-            if (risk.getRiskExposure() > 5000) { // Arbitrary threshold for high exposure
-                Alert alert = new Alert(Alert.AlertType.WARNING);
-                alert.setTitle("High Risk Alert");
-                alert.setHeaderText("High Exposure Risk Detected!");
-                alert.setContentText("Risk ID: " + risk.getId() + " has an exposure of $" + risk.getRiskExposure());
-                alert.showAndWait();
-            }
+    // One alert for every risk above the threshold instead of one modal dialog per risk.
+    private void checkHighExposure(RiskExposureIndex index) {
+        List<String> highRisks = index.aboveThreshold(HIGH_EXPOSURE_THRESHOLD);
+        if (highRisks.isEmpty()) {
+            return;
         }
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("High Risk Alert");
+        alert.setHeaderText(highRisks.size() + " High Exposure Risk(s) Detected!");
+        alert.setContentText("Risks above $" + HIGH_EXPOSURE_THRESHOLD + ": " + highRisks.size() + " of " + index.size() +
+                ", P90 exposure: $" + index.percentile(90) + ", P99 exposure: $" + index.percentile(99));
+        ListView<String> highRiskList = new ListView<>(FXCollections.observableArrayList(highRisks));
+        alert.getDialogPane().setExpandableContent(highRiskList);
+        alert.getDialogPane().setExpanded(true);
+        alert.showAndWait();
     }
 
     @Override
@@ -133,8 +219,13 @@ public class RiskManagementApp extends Application {
         Button addButton = new Button("Add Risk");
         Button viewButton = new Button("View Risks");
         Button chartButton = new Button("Show Risk Chart");
+        TextField trialsField = new TextField("1000000");
+        trialsField.setPromptText("Simulation Trials");
+        Button simulateButton = new Button("Simulate Portfolio Loss");
+        Button importButton = new Button("Import Risks (CSV)");
 
         ListView<String> riskListView = new ListView<>();
+        LazyPagedList.closeOnReplace(riskListView);
 
         addButton.setOnAction(e -> {
             String id = idField.getText();
@@ -142,7 +233,7 @@ public class RiskManagementApp extends Application {
             double prob = Double.parseDouble(probField.getText());
             double impact = Double.parseDouble(impactField.getText());
             String mit = mitField.getText();
-            addRiskToDatabase(id, desc, prob, impact, mit);
+            DbExecutor.run("addRisk", () -> addRiskToDatabase(id, desc, prob, impact, mit));
             idField.clear();
             descField.clear();
             probField.clear();
@@ -151,20 +242,50 @@ public class RiskManagementApp extends Application {
         });
 
         viewButton.setOnAction(e -> {
-            riskListView.getItems().clear();
-            List<Risk> risks = getAllRisksFromDatabase();
-            for (Risk risk : risks) {
-                riskListView.getItems().add(risk.toString());
-            }
+            riskListView.setItems(new LazyPagedList("RiskManagement", "Risks", "id",
+                    "description, probability, impact, mitigationPlan",
+                    rs -> new Risk(
+                            rs.getString("id"),
+                            rs.getString("description"),
+                            rs.getDouble("probability"),
+                            rs.getDouble("impact"),
+                            rs.getString("mitigationPlan")
+                    ).toString()).load());
         });
 
         chartButton.setOnAction(e -> {
-            List<Risk> risks = getAllRisksFromDatabase();
-            showPieChart(primaryStage, risks);
-            checkHighExposure(risks);
+            DbExecutor.deliver(DbExecutor.supplyLatest("riskChart", this::getExposureIndex), index -> {
+                showPieChart(primaryStage, index);
+                checkHighExposure(index);
+            });
+        });
+
+        simulateButton.setOnAction(e -> {
+            int trials = Integer.parseInt(trialsField.getText());
+            DbExecutor.deliver(DbExecutor.supplyLatest("simulateRisks", () -> loadRiskSimulation().run(trials, System.nanoTime())),
+                    result -> {
+                        List<String> lines = new ArrayList<>();
+                        lines.add(result.toString());
+                        lines.addAll(result.topContributors(20));
+                        riskListView.setItems(FXCollections.observableArrayList(lines));
+                    });
+        });
+
+        importButton.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Import Risks");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+            File file = chooser.showOpenDialog(primaryStage);
+            if (file == null) {
+                return;
+            }
+            DbExecutor.deliver(DbExecutor.supply("importRisks", () -> importRisks(file.toPath())),
+                    result -> riskListView.setItems(FXCollections.observableArrayList(result.report())),
+                    ex -> riskListView.setItems(FXCollections.observableArrayList("Import failed: " + ex.getMessage())));
         });
 
-        vbox.getChildren().addAll(idField, descField, probField, impactField, mitField, addButton, viewButton, chartButton, riskListView);
+        vbox.getChildren().addAll(idField, descField, probField, impactField, mitField, addButton, viewButton, chartButton,
+                                  trialsField, simulateButton, importButton, riskListView);
 
         Scene scene = new Scene(vbox, 400, 500);
         primaryStage.setTitle("Risk Management System");
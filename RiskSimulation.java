@@ -0,0 +1,143 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+class SimulationResult {
+    final int trials;
+    final double mean;
+    final double p50;
+    final double p90;
+    final double p99;
+    final String[] ids;
+    final double[] contribution; // expected loss each risk adds to the portfolio
+    final long elapsedNanos;
+
+    SimulationResult(int trials, double mean, double p50, double p90, double p99, String[] ids,
+                     double[] contribution, long elapsedNanos) {
+        this.trials = trials;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.ids = ids;
+        this.contribution = contribution;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Risks ordered by their contribution, largest first.
+    List<String> topContributors(int k) {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(contribution[b], contribution[a]));
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, order.length); i++) {
+            int r = order[i];
+            lines.add("Risk ID: " + ids[r] + ", Contribution: $" + String.format("%.2f", contribution[r]) +
+                      " (" + String.format("%.1f", mean == 0 ? 0 : contribution[r] / mean * 100) + "%)");
+        }
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return "Trials: " + trials +
+               ", Mean Loss: $" + String.format("%.2f", mean) +
+               ", P50: $" + String.format("%.2f", p50) +
+               ", P90: $" + String.format("%.2f", p90) +
+               ", P99: $" + String.format("%.2f", p99) +
+               ", Time: " + (elapsedNanos / 1_000_000) + " ms";
+    }
+}
+
+// Monte Carlo simulation of total portfolio loss: in every trial each risk occurs with its
+// probability and, if it does, adds its full impact. Trials are split across the fork-join pool;
+// every subtask gets its own SplittableRandom split from the parent, so runs are reproducible for
+// a seed regardless of how the work is scheduled.
+public class RiskSimulation {
+
+    private static final int TRIALS_PER_TASK = 1 << 14;
+
+    private final String[] ids;
+    private final double[] probability;
+    private final double[] impact;
+
+    public RiskSimulation(String[] ids, double[] probability, double[] impact) {
+        this.ids = ids;
+        this.probability = probability;
+        this.impact = impact;
+    }
+
+    public SimulationResult run(int trials, long seed) {
+        long start = System.nanoTime();
+        double[] totals = new double[trials];
+        double[] occurrenceLoss = ForkJoinPool.commonPool().invoke(
+                new TrialRange(totals, 0, trials, new SplittableRandom(seed)));
+
+        double sum = 0;
+        for (double total : totals) {
+            sum += total;
+        }
+        Arrays.parallelSort(totals);
+        double[] contribution = new double[ids.length];
+        for (int r = 0; r < contribution.length; r++) {
+            contribution[r] = occurrenceLoss[r] / trials;
+        }
+        return new SimulationResult(trials, trials == 0 ? 0 : sum / trials,
+                percentile(totals, 50), percentile(totals, 90), percentile(totals, 99),
+                ids, contribution, System.nanoTime() - start);
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+    }
+
+    // Fills totals[from, to) and returns the summed loss per risk over those trials.
+    private class TrialRange extends RecursiveTask<double[]> {
+        private final double[] totals;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        TrialRange(double[] totals, int from, int to, SplittableRandom random) {
+            this.totals = totals;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from > TRIALS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                TrialRange left = new TrialRange(totals, from, mid, random.split());
+                left.fork();
+                double[] right = new TrialRange(totals, mid, to, random).compute();
+                double[] merged = left.join();
+                for (int r = 0; r < merged.length; r++) {
+                    merged[r] += right[r];
+                }
+                return merged;
+            }
+
+            int n = probability.length;
+            double[] loss = new double[n];
+            for (int trial = from; trial < to; trial++) {
+                double total = 0;
+                for (int r = 0; r < n; r++) {
+                    if (random.nextDouble() < probability[r]) {
+                        total += impact[r];
+                        loss[r] += impact[r];
+                    }
+                }
+                totals[trial] = total;
+            }
+            return loss;
+        }
+    }
+}
@@ -0,0 +1,637 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+class SourceMetrics {
+    final int files;
+    final int unchangedFiles; // size and modification time matched the cache
+    final int rehashedFiles;  // touched but content hash matched the cache
+    final int linesOfCode;
+    final int methods;
+    final int cyclomaticComplexity; // summed over methods
+    final int maxMethodComplexity;
+    final long elapsedNanos;
+
+    SourceMetrics(int files, int unchangedFiles, int rehashedFiles, int linesOfCode, int methods,
+                  int cyclomaticComplexity, int maxMethodComplexity, long elapsedNanos) {
+        this.files = files;
+        this.unchangedFiles = unchangedFiles;
+        this.rehashedFiles = rehashedFiles;
+        this.linesOfCode = linesOfCode;
+        this.methods = methods;
+        this.cyclomaticComplexity = cyclomaticComplexity;
+        this.maxMethodComplexity = maxMethodComplexity;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Files: " + files +
+               " (" + (unchangedFiles + rehashedFiles) + " from cache)" +
+               ", Lines of Code: " + linesOfCode +
+               ", Methods: " + methods +
+               ", Cyclomatic Complexity: " + cyclomaticComplexity +
+               ", Max per Method: " + maxMethodComplexity +
+               ", Time: " + (elapsedNanos / 1_000_000) + " ms";
+    }
+}
+
+// Counts lines of code and per-method cyclomatic complexity for a tree of Java sources. Files are
+// memory-mapped and scanned by a byte-level tokenizer in parallel on a fork-join pool. Per-file
+// results are cached by path with size, modification time and CRC32C of the content: a file whose
+// size and time are unchanged is not opened at all, and one that was only touched is hashed but
+// not tokenized again. The cache is written to metrics.cacheDir (default ~/.source-metrics).
+public class SourceMetricsCollector {
+
+    private static final int FILES_PER_TASK = 8;
+    private static final int CACHE_VERSION = 1;
+
+    private final Path root;
+    private final Path cacheFile;
+    private final ForkJoinPool pool;
+    private final Map<String, FileStats> cache = new ConcurrentHashMap<>();
+
+    public SourceMetricsCollector(Path root) {
+        this(root, ForkJoinPool.commonPool());
+    }
+
+    public SourceMetricsCollector(Path root, ForkJoinPool pool) {
+        this.root = root.toAbsolutePath().normalize();
+        this.pool = pool;
+        Path cacheDir = Paths.get(System.getProperty("metrics.cacheDir",
+                System.getProperty("user.home") + File.separator + ".source-metrics"));
+        this.cacheFile = cacheDir.resolve(Integer.toHexString(this.root.toString().hashCode()) + ".cache");
+    }
+
+    // With --module the line count is also stored as that module's size in the QualityManagement
+    // ModuleSizes table, which the defect density metrics are computed from.
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length != 1 && !(args.length == 3 && args[1].equals("--module"))) {
+            System.err.println("Usage: java SourceMetricsCollector <source-dir> [--module NAME]");
+            System.exit(2);
+        }
+        SourceMetrics metrics = new SourceMetricsCollector(Paths.get(args[0])).collect();
+        System.out.println(metrics);
+        if (args.length == 3) {
+            saveModuleSize(args[2], metrics.linesOfCode);
+            System.out.println("Stored " + metrics.linesOfCode + " lines of code for module " + args[2]);
+        }
+    }
+
+    // Keeps the module's test case count, which is entered by hand in the Quality Management app.
+    static void saveModuleSize(String module, int linesOfCode) throws SQLException {
+        String sql = "INSERT INTO ModuleSizes (module, linesOfCode, testCases) VALUES (?, ?, 0) " +
+                     "ON DUPLICATE KEY UPDATE linesOfCode = VALUES(linesOfCode)";
+        try (Connection conn = ConnectionPool.getConnection("QualityManagement");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, module);
+            pstmt.setInt(2, linesOfCode);
+            pstmt.executeUpdate();
+        }
+    }
+
+    public SourceMetrics collect() throws IOException {
+        long start = System.nanoTime();
+        loadCache();
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                return !dir.equals(root) && name.startsWith(".") ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".java")) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                System.err.println("Skipping unreadable " + file + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        FileStats[] stats = new FileStats[files.size()];
+        AtomicInteger unchanged = new AtomicInteger();
+        AtomicInteger rehashed = new AtomicInteger();
+        pool.invoke(new FileRange(files, stats, 0, files.size(), unchanged, rehashed));
+
+        // drop entries for files that no longer exist before persisting
+        Set<String> present = new HashSet<>();
+        int loc = 0;
+        int methods = 0;
+        int complexity = 0;
+        int maxComplexity = 0;
+        for (FileStats fileStats : stats) {
+            if (fileStats == null) {
+                continue;
+            }
+            present.add(fileStats.path);
+            loc += fileStats.linesOfCode;
+            methods += fileStats.methods;
+            complexity += fileStats.complexity;
+            maxComplexity = Math.max(maxComplexity, fileStats.maxComplexity);
+        }
+        cache.keySet().retainAll(present);
+        saveCache();
+        return new SourceMetrics(files.size(), unchanged.get(), rehashed.get(), loc, methods, complexity,
+                maxComplexity, System.nanoTime() - start);
+    }
+
+    private class FileRange extends RecursiveAction {
+        private final List<Path> files;
+        private final FileStats[] stats;
+        private final int from;
+        private final int to;
+        private final AtomicInteger unchanged;
+        private final AtomicInteger rehashed;
+
+        FileRange(List<Path> files, FileStats[] stats, int from, int to, AtomicInteger unchanged, AtomicInteger rehashed) {
+            this.files = files;
+            this.stats = stats;
+            this.from = from;
+            this.to = to;
+            this.unchanged = unchanged;
+            this.rehashed = rehashed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FILES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FileRange(files, stats, from, mid, unchanged, rehashed),
+                          new FileRange(files, stats, mid, to, unchanged, rehashed));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    stats[i] = analyze(files.get(i), unchanged, rehashed);
+                } catch (IOException e) {
+                    System.err.println("Skipping " + files.get(i) + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private FileStats analyze(Path file, AtomicInteger unchanged, AtomicInteger rehashed) throws IOException {
+        String key = root.relativize(file.toAbsolutePath().normalize()).toString();
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        FileStats cached = cache.get(key);
+        if (cached != null && cached.size == size && cached.modified == modified) {
+            unchanged.incrementAndGet();
+            return cached;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32C crc = new CRC32C();
+            crc.update(bytes.duplicate());
+            long hash = crc.getValue();
+            FileStats stats;
+            if (cached != null && cached.size == bytes.limit() && cached.hash == hash) {
+                rehashed.incrementAndGet();
+                stats = cached.withModified(modified);
+            } else {
+                stats = new Tokenizer(bytes).scan(key, bytes.limit(), modified, hash);
+            }
+            cache.put(key, stats);
+            return stats;
+        }
+    }
+
+    private void loadCache() {
+        cache.clear();
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != CACHE_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                FileStats stats = new FileStats(in.readUTF(), in.readLong(), in.readLong(), in.readLong(),
+                        in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                cache.put(stats.path, stats);
+            }
+        } catch (IOException e) {
+            // a damaged cache only costs a full rescan
+            cache.clear();
+        }
+    }
+
+    private void saveCache() throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(CACHE_VERSION);
+            out.writeInt(cache.size());
+            for (FileStats stats : cache.values()) {
+                out.writeUTF(stats.path);
+                out.writeLong(stats.size);
+                out.writeLong(stats.modified);
+                out.writeLong(stats.hash);
+                out.writeInt(stats.linesOfCode);
+                out.writeInt(stats.methods);
+                out.writeInt(stats.complexity);
+                out.writeInt(stats.maxComplexity);
+            }
+        }
+        Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class FileStats {
+        final String path;
+        final long size;
+        final long modified;
+        final long hash;
+        final int linesOfCode;
+        final int methods;
+        final int complexity;
+        final int maxComplexity;
+
+        FileStats(String path, long size, long modified, long hash, int linesOfCode, int methods, int complexity,
+                  int maxComplexity) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.linesOfCode = linesOfCode;
+            this.methods = methods;
+            this.complexity = complexity;
+            this.maxComplexity = maxComplexity;
+        }
+
+        FileStats withModified(long newModified) {
+            return new FileStats(path, size, newModified, hash, linesOfCode, methods, complexity, maxComplexity);
+        }
+    }
+
+    // Single pass over the bytes of one file. Comments, string/char literals and text blocks are
+    // skipped; a line counts as code if any other token starts on it. Blocks are tracked on a small
+    // stack: a '{' right after a type declaration opens a type body, and a '{' after
+    // "name(...) [throws ...]" inside a type body opens a method. Each method starts at complexity 1
+    // and gains one per if, for, while, case, catch, &&, || and ternary '?' inside it; code in
+    // anonymous classes and lambdas counts toward the enclosing method.
+    private static final class Tokenizer {
+        private static final byte TYPE = 1;
+        private static final byte METHOD = 2;
+        private static final byte BLOCK = 3;
+
+        private static final int KW_NONE = 0;
+        private static final int KW_DECISION = 1;
+        private static final int KW_TYPE = 2;
+        private static final int KW_THROWS = 3;
+        private static final int KW_CONTROL = 4; // keywords whose '(' is not a method declaration
+        private static final int KW_NEW = 5;
+
+        private final ByteBuffer bytes;
+        private final int length;
+
+        private byte[] blocks = new byte[32];
+        private int[] methodComplexity = new int[8];
+        private int depth;
+        private int methodDepth;
+
+        private int linesOfCode;
+        private int lastCodeLine = -1;
+        private int line;
+        private int methods;
+        private int complexity;
+        private int maxComplexity;
+
+        // declaration state
+        private boolean pendingType;
+        private int previous;            // last significant byte, or 'a' for an identifier
+        private boolean candidateName;   // an identifier that may name a method was just seen
+        private int parenDepth;
+        private boolean inParams;
+        private boolean afterParams;
+        private boolean afterNew;        // "new Foo(...) {" opens an anonymous class, not a method
+
+        Tokenizer(ByteBuffer bytes) {
+            this.bytes = bytes;
+            this.length = bytes.limit();
+        }
+
+        FileStats scan(String path, long size, long modified, long hash) {
+            int i = 0;
+            while (i < length) {
+                int c = bytes.get(i);
+                if (c == '\n') {
+                    line++;
+                    i++;
+                    continue;
+                }
+                if (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+                    i++;
+                    continue;
+                }
+                if (c == '/' && i + 1 < length && bytes.get(i + 1) == '/') {
+                    i = skipLineComment(i + 2);
+                    continue;
+                }
+                if (c == '/' && i + 1 < length && bytes.get(i + 1) == '*') {
+                    i = skipBlockComment(i + 2);
+                    continue;
+                }
+                markCode();
+                if (c == '"') {
+                    i = skipString(i);
+                    token('"');
+                } else if (c == '\'') {
+                    i = skipChar(i + 1);
+                    token('\'');
+                } else if (isIdentifierStart(c)) {
+                    int start = i;
+                    while (i < length && isIdentifierPart(bytes.get(i))) {
+                        i++;
+                    }
+                    identifier(start, i - start);
+                } else if (c >= '0' && c <= '9') {
+                    while (i < length && (isIdentifierPart(bytes.get(i)) || bytes.get(i) == '.')) {
+                        i++;
+                    }
+                    token('0');
+                } else {
+                    i++;
+                    if ((c == '&' || c == '|') && i < length && bytes.get(i) == c) {
+                        i++;
+                        decision();
+                        token(c);
+                    } else {
+                        punctuation(c);
+                    }
+                }
+            }
+            return new FileStats(path, size, modified, hash, linesOfCode, methods, complexity, maxComplexity);
+        }
+
+        private void markCode() {
+            if (lastCodeLine != line) {
+                lastCodeLine = line;
+                linesOfCode++;
+            }
+        }
+
+        private int skipLineComment(int i) {
+            while (i < length && bytes.get(i) != '\n') {
+                i++;
+            }
+            return i;
+        }
+
+        private int skipBlockComment(int i) {
+            while (i < length) {
+                int c = bytes.get(i);
+                if (c == '*' && i + 1 < length && bytes.get(i + 1) == '/') {
+                    return i + 2;
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                i++;
+            }
+            return i;
+        }
+
+        // Skips a string literal or text block starting at the opening quote.
+        private int skipString(int i) {
+            if (i + 2 < length && bytes.get(i + 1) == '"' && bytes.get(i + 2) == '"') {
+                i += 3;
+                while (i < length) {
+                    int c = bytes.get(i);
+                    if (c == '\\') {
+                        i += 2;
+                        continue;
+                    }
+                    if (c == '\n') {
+                        line++;
+                        markCode();
+                    }
+                    if (c == '"' && i + 2 < length && bytes.get(i + 1) == '"' && bytes.get(i + 2) == '"') {
+                        return i + 3;
+                    }
+                    i++;
+                }
+                return i;
+            }
+            i++;
+            while (i < length) {
+                int c = bytes.get(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == '"' || c == '\n') {
+                    return c == '"' ? i + 1 : i;
+                } else {
+                    i++;
+                }
+            }
+            return i;
+        }
+
+        private int skipChar(int i) {
+            while (i < length) {
+                int c = bytes.get(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == '\'' || c == '\n') {
+                    return c == '\'' ? i + 1 : i;
+                } else {
+                    i++;
+                }
+            }
+            return i;
+        }
+
+        private static boolean isIdentifierStart(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c < 0;
+        }
+
+        private static boolean isIdentifierPart(int c) {
+            return isIdentifierStart(c) || (c >= '0' && c <= '9');
+        }
+
+        private void identifier(int start, int len) {
+            int keyword = keyword(start, len);
+            if (keyword == KW_DECISION) {
+                decision();
+            }
+            if (keyword == KW_TYPE && previous != '.') {
+                // "Foo.class" is a literal, not a declaration
+                pendingType = true;
+            }
+            if (keyword == KW_NEW) {
+                afterNew = true;
+            }
+            if (afterParams && keyword != KW_THROWS && keyword != KW_NONE) {
+                afterParams = false;
+            }
+            if (!inParams) {
+                candidateName = keyword == KW_NONE && (depth == 0 || blocks[depth - 1] == TYPE) && !pendingType
+                        && !afterNew;
+            }
+            previous = 'a';
+        }
+
+        private int keyword(int start, int len) {
+            switch (len) {
+                case 2:
+                    return matches(start, "if") ? KW_DECISION : matches(start, "do") ? KW_CONTROL : KW_NONE;
+                case 3:
+                    return matches(start, "for") ? KW_DECISION : matches(start, "new") ? KW_NEW : KW_NONE;
+                case 4:
+                    return matches(start, "case") ? KW_DECISION : matches(start, "enum") ? KW_TYPE
+                            : matches(start, "else") ? KW_CONTROL : KW_NONE;
+                case 5:
+                    return matches(start, "while") || matches(start, "catch") ? KW_DECISION
+                            : matches(start, "class") ? KW_TYPE : KW_NONE;
+                case 6:
+                    return matches(start, "record") ? KW_TYPE : matches(start, "throws") ? KW_THROWS
+                            : matches(start, "switch") || matches(start, "return") ? KW_CONTROL : KW_NONE;
+                case 9:
+                    return matches(start, "interface") ? KW_TYPE : KW_NONE;
+                case 12:
+                    return matches(start, "synchronized") ? KW_CONTROL : KW_NONE;
+                default:
+                    return KW_NONE;
+            }
+        }
+
+        private boolean matches(int start, String word) {
+            for (int k = 0; k < word.length(); k++) {
+                if (bytes.get(start + k) != word.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void punctuation(int c) {
+            switch (c) {
+                case '(':
+                    afterNew = false;
+                    if (candidateName && !inParams) {
+                        inParams = true;
+                        parenDepth = 0;
+                    }
+                    if (inParams) {
+                        parenDepth++;
+                    }
+                    break;
+                case ')':
+                    if (inParams && --parenDepth == 0) {
+                        inParams = false;
+                        afterParams = true;
+                        candidateName = false;
+                        previous = c;
+                        return;
+                    }
+                    break;
+                case '{':
+                    if (pendingType) {
+                        push(TYPE);
+                    } else if (afterParams) {
+                        push(METHOD);
+                    } else {
+                        push(BLOCK);
+                    }
+                    pendingType = false;
+                    resetDeclaration();
+                    previous = c;
+                    return;
+                case '}':
+                    pop();
+                    resetDeclaration();
+                    previous = c;
+                    return;
+                case ';':
+                    pendingType = false;
+                    resetDeclaration();
+                    previous = c;
+                    return;
+                case '?':
+                    if (previous != '<' && previous != ',') {
+                        decision();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (!inParams && c != '.' && c != ',' && c != '@' && c != '<' && c != '>' && c != '[' && c != ']') {
+                // anything but a throws list between ')' and '{' means this was a call, not a declaration
+                afterParams = false;
+                candidateName = false;
+            } else if (!inParams && c == '.' && !afterParams) {
+                candidateName = false;
+            }
+            previous = c;
+        }
+
+        private void token(int kind) {
+            if (!inParams) {
+                afterParams = false;
+                candidateName = false;
+            }
+            previous = kind;
+        }
+
+        private void resetDeclaration() {
+            candidateName = false;
+            afterNew = false;
+            inParams = false;
+            afterParams = false;
+            parenDepth = 0;
+        }
+
+        private void decision() {
+            if (methodDepth > 0) {
+                methodComplexity[methodDepth - 1]++;
+            }
+        }
+
+        private void push(byte kind) {
+            if (depth == blocks.length) {
+                blocks = Arrays.copyOf(blocks, depth * 2);
+            }
+            blocks[depth++] = kind;
+            if (kind == METHOD) {
+                if (methodDepth == methodComplexity.length) {
+                    methodComplexity = Arrays.copyOf(methodComplexity, methodDepth * 2);
+                }
+                methodComplexity[methodDepth++] = 1;
+            }
+        }
+
+        private void pop() {
+            if (depth == 0) {
+                return;
+            }
+            if (blocks[--depth] == METHOD) {
+                int method = methodComplexity[--methodDepth];
+                methods++;
+                complexity += method;
+                maxComplexity = Math.max(maxComplexity, method);
+            }
+        }
+    }
+}
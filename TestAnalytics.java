@@ -0,0 +1,294 @@
+import java.sql.*;
+import java.util.*;
+import java.util.function.Predicate;
+
+// Running history of one test case, updated one run at a time. A flip is a change between passing
+// and not passing; flakiness is the share of a test's recent run-to-run transitions that flipped,
+// with older transitions decaying by DECAY per run, so a test that has settled down drops out.
+class TestStats {
+    static final double DECAY = Double.parseDouble(System.getProperty("testing.flakinessDecay", "0.9"));
+
+    final int testCaseId;
+    String testType;
+    int runs;
+    int passes;
+    int flips;
+    byte lastOutcome = -1;
+    int failureStreak;
+    int longestFailureStreak;
+    double decayedFlips;
+    double decayedTransitions;
+    int lastRunId;
+
+    TestStats(int testCaseId, String testType) {
+        this.testCaseId = testCaseId;
+        this.testType = testType;
+    }
+
+    // False if the run was already applied, which makes replaying a run harmless.
+    boolean apply(int runId, String testType, byte outcome) {
+        if (runId <= lastRunId) {
+            return false;
+        }
+        boolean passed = outcome == TestRunHistory.PASSED;
+        if (lastOutcome >= 0) {
+            boolean flipped = passed != (lastOutcome == TestRunHistory.PASSED);
+            decayedFlips = decayedFlips * DECAY + (flipped ? 1 : 0);
+            decayedTransitions = decayedTransitions * DECAY + 1;
+            if (flipped) {
+                flips++;
+            }
+        }
+        runs++;
+        if (passed) {
+            passes++;
+            failureStreak = 0;
+        } else {
+            failureStreak++;
+            longestFailureStreak = Math.max(longestFailureStreak, failureStreak);
+        }
+        this.testType = testType;
+        lastOutcome = outcome;
+        lastRunId = runId;
+        return true;
+    }
+
+    public double flakiness() {
+        return decayedTransitions == 0 ? 0 : decayedFlips / decayedTransitions;
+    }
+
+    public double passRate() {
+        return runs == 0 ? 0 : (double) passes / runs;
+    }
+
+    @Override
+    public String toString() {
+        return "Test #" + testCaseId + " (" + testType + ")" +
+               ", Flakiness: " + String.format("%.2f", flakiness()) +
+               ", Flips: " + flips + " in " + runs + " runs" +
+               ", Pass Rate: " + String.format("%.1f", 100 * passRate()) + "%" +
+               ", Failure Streak: " + failureStreak + " (longest " + longestFailureStreak + ")";
+    }
+}
+
+// Pass rate of one test type over its most recent runs.
+class TypeTrend {
+    final String testType;
+    private final ArrayDeque<double[]> window = new ArrayDeque<>();
+
+    TypeTrend(String testType) {
+        this.testType = testType;
+    }
+
+    void add(int runId, int passed, int total, int windowSize) {
+        window.addLast(new double[] {runId, total == 0 ? 0 : (double) passed / total});
+        while (window.size() > windowSize) {
+            window.removeFirst();
+        }
+    }
+
+    public double latest() {
+        return window.isEmpty() ? 0 : window.getLast()[1];
+    }
+
+    public double mean() {
+        double sum = 0;
+        for (double[] point : window) {
+            sum += point[1];
+        }
+        return window.isEmpty() ? 0 : sum / window.size();
+    }
+
+    // Least-squares slope of pass rate against run position: the change per run.
+    public double slope() {
+        int n = window.size();
+        if (n < 2) {
+            return 0;
+        }
+        double meanX = (n - 1) / 2.0;
+        double meanY = mean();
+        double covariance = 0;
+        double variance = 0;
+        int x = 0;
+        for (double[] point : window) {
+            covariance += (x - meanX) * (point[1] - meanY);
+            variance += (x - meanX) * (x - meanX);
+            x++;
+        }
+        return covariance / variance;
+    }
+
+    @Override
+    public String toString() {
+        return "Type " + (testType.isEmpty() ? "(none)" : testType) +
+               ": Last Run " + String.format("%.1f", 100 * latest()) + "%" +
+               ", Mean of " + window.size() + " Runs " + String.format("%.1f", 100 * mean()) + "%" +
+               ", Trend " + String.format("%+.2f", 100 * slope()) + " pts/run";
+    }
+}
+
+// Flakiness, failure streaks and pass-rate trends over the TestRunHistory. Per-test running state is
+// kept in TestStats rows, so open() loads one row per test and the last TREND_WINDOW runs' type
+// totals instead of replaying history; refresh() then takes in only the runs finished since, and
+// writes back the rows of the tests they touched. Runs are applied in id order; a run finishing
+// after a newer one has been applied only counts for tests the newer run did not include.
+public class TestAnalytics {
+
+    static final int TREND_WINDOW = Integer.getInteger("testing.trendWindow", 20);
+    static final int MIN_TRANSITIONS = Integer.getInteger("testing.flakyMinTransitions", 4);
+
+    private final String database;
+    private final Map<Integer, TestStats> stats = new HashMap<>();
+    private final Map<String, TypeTrend> trends = new TreeMap<>();
+    private boolean opened;
+
+    public TestAnalytics(String database) {
+        this.database = database;
+    }
+
+    public synchronized void open() throws SQLException {
+        load();
+        opened = true;
+        refresh();
+    }
+
+    private void load() throws SQLException {
+        stats.clear();
+        trends.clear();
+        String statsSql = "SELECT testCaseId, testType, runs, passes, flips, lastOutcome, failureStreak, " +
+                          "longestFailureStreak, decayedFlips, decayedTransitions, lastRunId FROM TestStats";
+        String trendSql = "SELECT t.runId, t.testType, t.passed, t.total FROM TestRunTypeTotals t " +
+                          "JOIN (SELECT id FROM TestRuns WHERE analyzed = TRUE ORDER BY id DESC LIMIT ?) r ON r.id = t.runId " +
+                          "ORDER BY t.runId";
+        try (Connection conn = ConnectionPool.getConnection(database)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery(statsSql)) {
+                    while (rs.next()) {
+                        TestStats test = new TestStats(rs.getInt("testCaseId"), rs.getString("testType"));
+                        test.runs = rs.getInt("runs");
+                        test.passes = rs.getInt("passes");
+                        test.flips = rs.getInt("flips");
+                        test.lastOutcome = rs.getByte("lastOutcome");
+                        test.failureStreak = rs.getInt("failureStreak");
+                        test.longestFailureStreak = rs.getInt("longestFailureStreak");
+                        test.decayedFlips = rs.getDouble("decayedFlips");
+                        test.decayedTransitions = rs.getDouble("decayedTransitions");
+                        test.lastRunId = rs.getInt("lastRunId");
+                        stats.put(test.testCaseId, test);
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(trendSql)) {
+                pstmt.setInt(1, TREND_WINDOW);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String type = rs.getString("testType");
+                        trends.computeIfAbsent(type, TypeTrend::new)
+                              .add(rs.getInt("runId"), rs.getInt("passed"), rs.getInt("total"), TREND_WINDOW);
+                    }
+                }
+            }
+        }
+    }
+
+    // Applies every finished run not yet analysed; returns how many runs were taken in.
+    public synchronized int refresh() throws SQLException {
+        if (!opened) {
+            load();
+            opened = true;
+        }
+        List<Integer> runs = TestRunHistory.unanalyzedRuns(database);
+        try {
+            for (int runId : runs) {
+                apply(TestRunHistory.readRun(database, runId));
+                TestRunHistory.markAnalyzed(database, runId);
+            }
+        } catch (SQLException e) {
+            // memory may now be ahead of TestStats; start again from the stored rows next time
+            opened = false;
+            throw e;
+        }
+        return runs.size();
+    }
+
+    private void apply(RunColumns run) throws SQLException {
+        List<TestStats> changed = new ArrayList<>();
+        Map<String, int[]> totals = new TreeMap<>();
+        for (int i = 0; i < run.size(); i++) {
+            String type = run.testTypes[i];
+            TestStats test = stats.computeIfAbsent(run.testCaseIds[i], id -> new TestStats(id, type));
+            if (test.apply(run.runId, type, run.outcomes[i])) {
+                changed.add(test);
+            }
+            int[] total = totals.computeIfAbsent(type, t -> new int[2]);
+            total[0] += run.outcomes[i] == TestRunHistory.PASSED ? 1 : 0;
+            total[1]++;
+        }
+        for (Map.Entry<String, int[]> entry : totals.entrySet()) {
+            trends.computeIfAbsent(entry.getKey(), TypeTrend::new)
+                  .add(run.runId, entry.getValue()[0], entry.getValue()[1], TREND_WINDOW);
+        }
+
+        String sql = "INSERT INTO TestStats (testCaseId, testType, runs, passes, flips, lastOutcome, failureStreak, " +
+                     "longestFailureStreak, decayedFlips, decayedTransitions, lastRunId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE testType = VALUES(testType), runs = VALUES(runs), passes = VALUES(passes), " +
+                     "flips = VALUES(flips), lastOutcome = VALUES(lastOutcome), failureStreak = VALUES(failureStreak), " +
+                     "longestFailureStreak = VALUES(longestFailureStreak), decayedFlips = VALUES(decayedFlips), " +
+                     "decayedTransitions = VALUES(decayedTransitions), lastRunId = VALUES(lastRunId)";
+        BulkResult result = new BulkInserter<TestStats>(database, sql, (pstmt, test) -> {
+            pstmt.setInt(1, test.testCaseId);
+            pstmt.setString(2, test.testType);
+            pstmt.setInt(3, test.runs);
+            pstmt.setInt(4, test.passes);
+            pstmt.setInt(5, test.flips);
+            pstmt.setByte(6, test.lastOutcome);
+            pstmt.setInt(7, test.failureStreak);
+            pstmt.setInt(8, test.longestFailureStreak);
+            pstmt.setDouble(9, test.decayedFlips);
+            pstmt.setDouble(10, test.decayedTransitions);
+            pstmt.setInt(11, test.lastRunId);
+        }).insertAll(changed);
+        if (result.hasErrors()) {
+            throw result.errors.get(0).cause;
+        }
+    }
+
+    // The n flakiest tests with at least MIN_TRANSITIONS run-to-run transitions, flakiest first.
+    public synchronized List<TestStats> topFlaky(int n) {
+        return top(n, Comparator.comparingDouble(TestStats::flakiness), test ->
+                test.runs - 1 >= MIN_TRANSITIONS && test.flakiness() > 0);
+    }
+
+    // The n tests with the longest current failure streaks.
+    public synchronized List<TestStats> longestFailing(int n) {
+        return top(n, Comparator.comparingInt(test -> test.failureStreak), test -> test.failureStreak > 0);
+    }
+
+    public synchronized List<TypeTrend> trends() {
+        return new ArrayList<>(trends.values());
+    }
+
+    public synchronized int size() {
+        return stats.size();
+    }
+
+    private List<TestStats> top(int n, Comparator<TestStats> order, Predicate<TestStats> eligible) {
+        Comparator<TestStats> byOrder = order.thenComparing(test -> -test.testCaseId);
+        PriorityQueue<TestStats> best = new PriorityQueue<>(Math.max(1, Math.min(n, stats.size())), byOrder);
+        for (TestStats test : stats.values()) {
+            if (!eligible.test(test)) {
+                continue;
+            }
+            if (best.size() < n) {
+                best.add(test);
+            } else if (n > 0 && byOrder.compare(test, best.peek()) > 0) {
+                best.poll();
+                best.add(test);
+            }
+        }
+        List<TestStats> result = new ArrayList<>(best);
+        result.sort(byOrder.reversed());
+        return result;
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.sql.*;
+import java.util.*;
+
+// One run's results as parallel columns, ordered by test case id. Outcomes are coded as in
+// TestRunHistory.outcomeCode; testTypes entries share one String per distinct type.
+class RunColumns {
+    final int runId;
+    final int[] testCaseIds;
+    final byte[] outcomes;
+    final int[] elapsedMicros;
+    final String[] testTypes;
+
+    RunColumns(int runId, int[] testCaseIds, byte[] outcomes, int[] elapsedMicros, String[] testTypes) {
+        this.runId = runId;
+        this.testCaseIds = testCaseIds;
+        this.outcomes = outcomes;
+        this.elapsedMicros = elapsedMicros;
+        this.testTypes = testTypes;
+    }
+
+    public int size() {
+        return testCaseIds.length;
+    }
+}
+
+// Per-run result history. TestCases only holds each test's latest result, so every run also gets a
+// TestRuns row and its results are appended to TestRunResults as column blocks: test case ids as
+// varint deltas, one outcome byte per test, elapsed microseconds as varints and test types as
+// varint codes into a per-block dictionary. That is 4-6 bytes per result rather than a row each.
+// A run becomes visible to readers (finishedAt set) only after all of its blocks are written.
+public class TestRunHistory {
+
+    static final byte PASSED = 0;
+    static final byte FAILED = 1;
+    static final byte ERROR = 2;
+    static final byte TIMED_OUT = 3;
+
+    static final int BLOCK_SIZE = Integer.getInteger("testing.historyBlockSize", 65_536);
+
+    private TestRunHistory() {
+    }
+
+    static byte outcomeCode(String result) {
+        switch (result) {
+            case TestOutcome.PASSED: return PASSED;
+            case TestOutcome.FAILED: return FAILED;
+            case TestOutcome.ERROR: return ERROR;
+            default: return TIMED_OUT;
+        }
+    }
+
+    // Collects a run's results as they complete. Not thread-safe; TestRunner feeds it from its writer.
+    static class Recorder {
+        private int[] ids = new int[1024];
+        private byte[] outcomes = new byte[1024];
+        private int[] micros = new int[1024];
+        private int[] typeCodes = new int[1024];
+        private final Map<String, Integer> typeIndex = new HashMap<>();
+        private final List<String> types = new ArrayList<>();
+        private int size;
+
+        void add(int testCaseId, String testType, byte outcome, long elapsedNanos) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                outcomes = Arrays.copyOf(outcomes, capacity);
+                micros = Arrays.copyOf(micros, capacity);
+                typeCodes = Arrays.copyOf(typeCodes, capacity);
+            }
+            String type = testType == null ? "" : testType;
+            Integer code = typeIndex.get(type);
+            if (code == null) {
+                code = types.size();
+                typeIndex.put(type, code);
+                types.add(type);
+            }
+            ids[size] = testCaseId;
+            outcomes[size] = outcome;
+            micros[size] = (int) Math.min(Integer.MAX_VALUE, elapsedNanos / 1000);
+            typeCodes[size] = code;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        RunColumns toColumns(int runId) {
+            // sort positions by test case id without boxing: id in the high word, position in the low
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) ids[i] << 32) | i;
+            }
+            Arrays.sort(order);
+            int[] sortedIds = new int[size];
+            byte[] sortedOutcomes = new byte[size];
+            int[] sortedMicros = new int[size];
+            String[] sortedTypes = new String[size];
+            for (int i = 0; i < size; i++) {
+                int position = (int) order[i];
+                sortedIds[i] = ids[position];
+                sortedOutcomes[i] = outcomes[position];
+                sortedMicros[i] = micros[position];
+                sortedTypes[i] = types.get(typeCodes[position]);
+            }
+            return new RunColumns(runId, sortedIds, sortedOutcomes, sortedMicros, sortedTypes);
+        }
+    }
+
+    public static int startRun(String database, String testType) throws SQLException {
+        String sql = "INSERT INTO TestRuns (testType, startedAt) VALUES (?, ?)";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, testType);
+            pstmt.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id generated for the test run");
+                }
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    // Writes the run's result blocks and per-type totals, then marks it finished with its counts.
+    public static void finishRun(String database, int runId, Recorder recorder) throws SQLException {
+        RunColumns run = recorder.toColumns(runId);
+        List<Integer> blocks = new ArrayList<>();
+        for (int from = 0; from < run.size(); from += BLOCK_SIZE) {
+            blocks.add(from);
+        }
+        String blockSql = "INSERT INTO TestRunResults (runId, firstTestCaseId, resultCount, testCaseIds, outcomes, " +
+                          "elapsedMicros, typeCodes, typeDictionary) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        BulkResult written = new BulkInserter<Integer>(database, blockSql,
+                (pstmt, from) -> bindBlock(pstmt, run, from, Math.min(run.size(), from + BLOCK_SIZE)), 8)
+                .insertAll(blocks);
+        if (written.hasErrors()) {
+            throw written.errors.get(0).cause;
+        }
+
+        // passed and total per test type
+        Map<String, int[]> totals = new TreeMap<>();
+        int[] counts = new int[4];
+        for (int i = 0; i < run.size(); i++) {
+            int[] total = totals.computeIfAbsent(run.testTypes[i], type -> new int[2]);
+            total[0] += run.outcomes[i] == PASSED ? 1 : 0;
+            total[1]++;
+            counts[run.outcomes[i]]++;
+        }
+        String totalSql = "INSERT INTO TestRunTypeTotals (runId, testType, passed, total) VALUES (?, ?, ?, ?)";
+        BulkResult typeTotals = new BulkInserter<Map.Entry<String, int[]>>(database, totalSql, (pstmt, entry) -> {
+            pstmt.setInt(1, runId);
+            pstmt.setString(2, entry.getKey());
+            pstmt.setInt(3, entry.getValue()[0]);
+            pstmt.setInt(4, entry.getValue()[1]);
+        }).insertAll(totals.entrySet());
+        if (typeTotals.hasErrors()) {
+            throw typeTotals.errors.get(0).cause;
+        }
+
+        String runSql = "UPDATE TestRuns SET finishedAt = ?, passed = ?, failed = ?, errors = ?, timedOut = ? WHERE id = ?";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement(runSql)) {
+            pstmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            pstmt.setInt(2, counts[PASSED]);
+            pstmt.setInt(3, counts[FAILED]);
+            pstmt.setInt(4, counts[ERROR]);
+            pstmt.setInt(5, counts[TIMED_OUT]);
+            pstmt.setInt(6, runId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void bindBlock(PreparedStatement pstmt, RunColumns run, int from, int to) throws SQLException {
+        ByteArrayOutputStream ids = new ByteArrayOutputStream();
+        ByteArrayOutputStream micros = new ByteArrayOutputStream();
+        ByteArrayOutputStream typeCodes = new ByteArrayOutputStream();
+        Map<String, Integer> typeIndex = new LinkedHashMap<>();
+        int previous = run.testCaseIds[from];
+        for (int i = from; i < to; i++) {
+            // ids are sorted, so deltas after the first are small and non-negative
+            putVarInt(ids, run.testCaseIds[i] - previous);
+            previous = run.testCaseIds[i];
+            putVarInt(micros, run.elapsedMicros[i]);
+            Integer code = typeIndex.get(run.testTypes[i]);
+            if (code == null) {
+                code = typeIndex.size();
+                typeIndex.put(run.testTypes[i], code);
+            }
+            putVarInt(typeCodes, code);
+        }
+        pstmt.setInt(1, run.runId);
+        pstmt.setInt(2, run.testCaseIds[from]);
+        pstmt.setInt(3, to - from);
+        pstmt.setBytes(4, ids.toByteArray());
+        pstmt.setBytes(5, Arrays.copyOfRange(run.outcomes, from, to));
+        pstmt.setBytes(6, micros.toByteArray());
+        pstmt.setBytes(7, typeCodes.toByteArray());
+        pstmt.setString(8, String.join("\n", typeIndex.keySet()));
+    }
+
+    // Finished runs the analytics have not taken in yet, oldest first.
+    public static List<Integer> unanalyzedRuns(String database) throws SQLException {
+        List<Integer> runs = new ArrayList<>();
+        String sql = "SELECT id FROM TestRuns WHERE finishedAt IS NOT NULL AND analyzed = FALSE ORDER BY id";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                runs.add(rs.getInt(1));
+            }
+        }
+        return runs;
+    }
+
+    public static void markAnalyzed(String database, int runId) throws SQLException {
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE TestRuns SET analyzed = TRUE WHERE id = ?")) {
+            pstmt.setInt(1, runId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    public static RunColumns readRun(String database, int runId) throws SQLException {
+        List<byte[][]> blocks = new ArrayList<>();
+        List<String> dictionaries = new ArrayList<>();
+        List<Integer> firstIds = new ArrayList<>();
+        int size = 0;
+        String sql = "SELECT firstTestCaseId, resultCount, testCaseIds, outcomes, elapsedMicros, typeCodes, typeDictionary " +
+                     "FROM TestRunResults WHERE runId = ? ORDER BY firstTestCaseId";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, runId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    firstIds.add(rs.getInt("firstTestCaseId"));
+                    size += rs.getInt("resultCount");
+                    blocks.add(new byte[][] {rs.getBytes("testCaseIds"), rs.getBytes("outcomes"),
+                                             rs.getBytes("elapsedMicros"), rs.getBytes("typeCodes")});
+                    dictionaries.add(rs.getString("typeDictionary"));
+                }
+            }
+        }
+
+        int[] ids = new int[size];
+        byte[] outcomes = new byte[size];
+        int[] micros = new int[size];
+        String[] types = new String[size];
+        Map<String, String> shared = new HashMap<>();
+        int at = 0;
+        for (int b = 0; b < blocks.size(); b++) {
+            byte[][] block = blocks.get(b);
+            String[] dictionary = dictionaries.get(b).split("\n", -1);
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = shared.computeIfAbsent(dictionary[i], type -> type);
+            }
+            ByteBuffer idBytes = ByteBuffer.wrap(block[0]);
+            ByteBuffer microBytes = ByteBuffer.wrap(block[2]);
+            ByteBuffer typeBytes = ByteBuffer.wrap(block[3]);
+            int id = firstIds.get(b);
+            for (int i = 0; i < block[1].length; i++, at++) {
+                id += getVarInt(idBytes);
+                ids[at] = id;
+                outcomes[at] = block[1][i];
+                micros[at] = getVarInt(microBytes);
+                types[at] = dictionary[getVarInt(typeBytes)];
+            }
+        }
+        return new RunColumns(runId, ids, outcomes, micros, types);
+    }
+
+    private static void putVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,469 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+// Something a test case can be executed against: takes the test's inputData, returns its actual output.
+// Implementations must give up promptly when their thread is interrupted (the runner's timeout).
+@FunctionalInterface
+interface TestTarget {
+    String invoke(String input) throws Exception;
+}
+
+// Runs an external command with the input on stdin and returns what it writes to stdout. A non-zero
+// exit status is an error carrying the command's stderr.
+class CommandTarget implements TestTarget {
+    private final List<String> command;
+
+    CommandTarget(List<String> command) {
+        this.command = new ArrayList<>(command);
+    }
+
+    @Override
+    public String invoke(String input) throws Exception {
+        ExecutorService executor = DbExecutor.executor();
+        java.lang.Process process = new ProcessBuilder(command).start();
+        try {
+            executor.submit(() -> {
+                try (OutputStream stdin = process.getOutputStream()) {
+                    stdin.write(input == null ? new byte[0] : input.getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    // the command exited without reading all of its input; its output still counts
+                }
+            });
+            Future<String> stdout = executor.submit(() -> readFully(process.getInputStream()));
+            Future<String> stderr = executor.submit(() -> readFully(process.getErrorStream()));
+            // waitFor is interruptible, so a timed-out test ends up in the finally below
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Exit status " + exitCode + ": " + stderr.get().trim());
+            }
+            return stdout.get();
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toString("UTF-8");
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" ", command);
+    }
+}
+
+// What happened to one test case in a run.
+class TestOutcome {
+    static final String PASSED = "Passed";
+    static final String FAILED = "Failed";
+    static final String ERROR = "Error";
+    static final String TIMED_OUT = "Timed Out";
+
+    final TestCase testCase;
+    final String result;
+    final String actualOutput;
+    final String detail;
+    final long elapsedNanos;
+
+    TestOutcome(TestCase testCase, String result, String actualOutput, String detail, long elapsedNanos) {
+        this.testCase = testCase;
+        this.result = result;
+        this.actualOutput = actualOutput;
+        this.detail = detail;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    boolean passed() {
+        return PASSED.equals(result);
+    }
+
+    // Errors and timeouts are logged as more severe than a wrong answer.
+    int severity() {
+        return FAILED.equals(result) ? 3 : 4;
+    }
+}
+
+class TestRunReport {
+    final int runId;
+    final int passed;
+    final int failed;
+    final int errors;
+    final int timedOut;
+    final long elapsedNanos;
+    final LatencyHistogram latency;
+
+    TestRunReport(int runId, int passed, int failed, int errors, int timedOut, long elapsedNanos, LatencyHistogram latency) {
+        this.runId = runId;
+        this.passed = passed;
+        this.failed = failed;
+        this.errors = errors;
+        this.timedOut = timedOut;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+    }
+
+    public int total() {
+        return passed + failed + errors + timedOut;
+    }
+
+    public double testsPerSecond() {
+        return elapsedNanos == 0 ? 0 : total() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Run " + runId + ": " + total() + " tests in " + String.format("%.2f", elapsedNanos / 1e9) + " s (" +
+               String.format("%.0f", testsPerSecond()) + " tests/sec): " +
+               passed + " passed, " + failed + " failed, " + errors + " errors, " + timedOut + " timed out. " +
+               "Latency " + latency;
+    }
+}
+
+// Executes the stored TestCases instead of trusting a typed-in actual output. Each row's target
+// column names what to run: "java:<name>" for a target registered with register() or a class
+// implementing TestTarget or Function<String, String>, anything else is a command line that gets
+// inputData on stdin. Tests run concurrently on virtual threads, each with its own timeout, and
+// their outcomes are written back in batches as they complete: result and actualOutput into
+// TestCases, and an Open Defects row when a test starts failing (or keeps failing with no Open
+// defect left), so a test that fails every night is logged once. Every run is also kept in the
+// TestRunHistory for TestAnalytics.
+//
+//   java TestRunner [--type T] [--target SPEC] [--timeout MS] [--concurrency N]
+public class TestRunner {
+
+    static final long DEFAULT_TIMEOUT_MILLIS = Long.getLong("testing.timeoutMillis", 10_000);
+    static final int DEFAULT_CONCURRENCY = Integer.getInteger("testing.concurrency", 256);
+    private static final int MAX_DETAIL = 2000;
+
+    private static final Map<String, TestTarget> REGISTERED = new ConcurrentHashMap<>();
+
+    private final String database;
+    private final long timeoutMillis;
+    private final int concurrency;
+    private final TestTarget override;
+    private final Map<String, TestTarget> resolved = new ConcurrentHashMap<>();
+
+    public TestRunner(String database, long timeoutMillis, int concurrency, TestTarget override) {
+        if (timeoutMillis <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("Timeout and concurrency must be positive");
+        }
+        this.database = database;
+        this.timeoutMillis = timeoutMillis;
+        this.concurrency = concurrency;
+        this.override = override;
+    }
+
+    public TestRunner(String database) {
+        this(database, DEFAULT_TIMEOUT_MILLIS, DEFAULT_CONCURRENCY, null);
+    }
+
+    // Makes an in-process target available to test cases whose target is "java:<name>".
+    public static void register(String name, TestTarget target) {
+        REGISTERED.put(name, target);
+    }
+
+    static TestTarget parseTarget(String spec) throws ReflectiveOperationException {
+        String trimmed = spec.trim();
+        if (!trimmed.startsWith("java:")) {
+            return new CommandTarget(Arrays.asList(trimmed.split("\\s+")));
+        }
+        String name = trimmed.substring(5);
+        TestTarget registered = REGISTERED.get(name);
+        if (registered != null) {
+            return registered;
+        }
+        Object instance = Class.forName(name).getDeclaredConstructor().newInstance();
+        if (instance instanceof TestTarget) {
+            return (TestTarget) instance;
+        }
+        if (instance instanceof Function) {
+            @SuppressWarnings("unchecked")
+            Function<String, String> function = (Function<String, String>) instance;
+            return function::apply;
+        }
+        throw new ClassCastException(name + " is neither a TestTarget nor a Function<String, String>");
+    }
+
+    // Line endings and trailing whitespace are not significant; command output usually ends in a newline.
+    static boolean matches(String expected, String actual) {
+        return normalize(expected).equals(normalize(actual));
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.replace("\r\n", "\n").stripTrailing();
+    }
+
+    private static String truncate(String text) {
+        return text == null || text.length() <= MAX_DETAIL ? text : text.substring(0, MAX_DETAIL);
+    }
+
+    // Runs every executable test case, or only those of the given type when testType is not null.
+    public TestRunReport run(String testType) throws SQLException, InterruptedException {
+        long start = System.nanoTime();
+        LatencyHistogram latency = new LatencyHistogram();
+        ExecutorService executor = DbExecutor.executor();
+        Semaphore inFlight = new Semaphore(concurrency);
+        BlockingQueue<TestOutcome> completed = new LinkedBlockingQueue<>(4 * BulkInserter.DEFAULT_BATCH_SIZE);
+        int runId = TestRunHistory.startRun(database, testType);
+        OutcomeWriter writer = new OutcomeWriter(completed);
+        Future<?> writing = executor.submit(writer);
+
+        String sql = "SELECT id, testName, testType, inputData, expectedOutput, result, target FROM TestCases" +
+                     (override == null ? " WHERE target IS NOT NULL AND target <> ''" : " WHERE 1 = 1") +
+                     (testType == null ? "" : " AND testType = ?");
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            if (testType != null) {
+                stmt.setString(1, testType);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next() && !writer.failed()) {
+                    TestCase testCase = new TestCase(rs.getInt("id"), rs.getString("testName"),
+                            rs.getString("testType"), rs.getString("inputData"), rs.getString("expectedOutput"),
+                            null, rs.getString("result"), 0, rs.getString("target"));
+                    inFlight.acquire();
+                    executor.submit(() -> {
+                        try {
+                            TestOutcome outcome = execute(testCase, executor);
+                            latency.record(outcome.elapsedNanos);
+                            completed.put(outcome);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+        } finally {
+            // let the tests already started finish and be written before returning
+            inFlight.acquire(concurrency);
+            writer.finish();
+            try {
+                writing.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        if (writer.error != null) {
+            throw writer.error;
+        }
+        TestRunHistory.finishRun(database, runId, writer.recorder);
+        return new TestRunReport(runId, writer.counts[0], writer.counts[1], writer.counts[2], writer.counts[3],
+                                 System.nanoTime() - start, latency);
+    }
+
+    private TestOutcome execute(TestCase testCase, ExecutorService executor) throws InterruptedException {
+        long start = System.nanoTime();
+        TestTarget target;
+        try {
+            target = override != null ? override : resolved.computeIfAbsent(testCase.getTarget(), spec -> {
+                try {
+                    return parseTarget(spec);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalArgumentException("Cannot load target '" + spec + "': " + e, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            return new TestOutcome(testCase, TestOutcome.ERROR, null, e.getMessage(), System.nanoTime() - start);
+        }
+
+        Future<String> call = executor.submit(() -> target.invoke(testCase.getInputData()));
+        try {
+            String actual = call.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            long elapsed = System.nanoTime() - start;
+            if (matches(testCase.getExpectedOutput(), actual)) {
+                return new TestOutcome(testCase, TestOutcome.PASSED, actual, null, elapsed);
+            }
+            return new TestOutcome(testCase, TestOutcome.FAILED, actual,
+                    "Expected '" + normalize(testCase.getExpectedOutput()) + "' but got '" + normalize(actual) + "'",
+                    elapsed);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            return new TestOutcome(testCase, TestOutcome.TIMED_OUT, null,
+                    "No result within " + timeoutMillis + " ms", System.nanoTime() - start);
+        } catch (ExecutionException e) {
+            return new TestOutcome(testCase, TestOutcome.ERROR, null, String.valueOf(e.getCause()),
+                    System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            throw e;
+        }
+    }
+
+    // Drains finished outcomes and writes them in batches: a full batch is written at once, a partial
+    // one as soon as no further outcome arrives for a moment, so results show up while the run goes on.
+    private final class OutcomeWriter implements Runnable {
+        private final BlockingQueue<TestOutcome> completed;
+        private volatile boolean finished;
+        private volatile SQLException error;
+        final TestRunHistory.Recorder recorder = new TestRunHistory.Recorder();
+        // passed, failed, errors, timed out
+        final int[] counts = new int[4];
+
+        OutcomeWriter(BlockingQueue<TestOutcome> completed) {
+            this.completed = completed;
+        }
+
+        boolean failed() {
+            return error != null;
+        }
+
+        void finish() {
+            finished = true;
+        }
+
+        @Override
+        public void run() {
+            List<TestOutcome> batch = new ArrayList<>(BulkInserter.DEFAULT_BATCH_SIZE);
+            try {
+                while (true) {
+                    TestOutcome outcome = completed.poll(100, TimeUnit.MILLISECONDS);
+                    if (outcome != null) {
+                        batch.add(outcome);
+                        completed.drainTo(batch, BulkInserter.DEFAULT_BATCH_SIZE - batch.size());
+                        if (batch.size() < BulkInserter.DEFAULT_BATCH_SIZE) {
+                            continue;
+                        }
+                    } else if (finished && completed.isEmpty() && batch.isEmpty()) {
+                        return;
+                    }
+                    if (!batch.isEmpty()) {
+                        write(batch);
+                        batch.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void write(List<TestOutcome> batch) {
+            for (TestOutcome outcome : batch) {
+                recorder.add(outcome.testCase.getId(), outcome.testCase.getTestType(),
+                             TestRunHistory.outcomeCode(outcome.result), outcome.elapsedNanos);
+                switch (outcome.result) {
+                    case TestOutcome.PASSED: counts[0]++; break;
+                    case TestOutcome.FAILED: counts[1]++; break;
+                    case TestOutcome.ERROR: counts[2]++; break;
+                    default: counts[3]++; break;
+                }
+            }
+            if (error != null) {
+                // keep draining so running tests are not blocked, but stop writing after a failure
+                return;
+            }
+
+            Set<TestOutcome> newDefects;
+            try {
+                newDefects = newDefects(batch);
+            } catch (SQLException e) {
+                error = e;
+                return;
+            }
+
+            String updateSql = "UPDATE TestCases SET actualOutput = ?, result = ?, defects = defects + ? WHERE id = ?";
+            BulkResult updated = new BulkInserter<TestOutcome>(database, updateSql, (pstmt, outcome) -> {
+                pstmt.setString(1, truncate(outcome.actualOutput));
+                pstmt.setString(2, outcome.result);
+                pstmt.setInt(3, newDefects.contains(outcome) ? 1 : 0);
+                pstmt.setInt(4, outcome.testCase.getId());
+            }).insertAll(batch);
+            if (updated.hasErrors()) {
+                error = updated.errors.get(0).cause;
+                return;
+            }
+
+            String defectSql = "INSERT INTO Defects (testName, severity, description, resolutionStatus) VALUES (?, ?, ?, ?)";
+            BulkResult defects = new BulkInserter<TestOutcome>(database, defectSql, (pstmt, outcome) -> {
+                pstmt.setString(1, outcome.testCase.getTestName());
+                pstmt.setInt(2, outcome.severity());
+                pstmt.setString(3, truncate(outcome.result + ": " + outcome.detail));
+                pstmt.setString(4, "Open");
+            }).insertAll(newDefects);
+            if (defects.hasErrors()) {
+                error = defects.errors.get(0).cause;
+            }
+        }
+    }
+
+    // Outcomes that open a defect: the failing test has no Open defect yet. A test that was passing
+    // and fails again while its defect is still open is only reported, so a flaky test alternating
+    // between pass and fail keeps one Open defect instead of gaining one per flip.
+    private Set<TestOutcome> newDefects(List<TestOutcome> batch) throws SQLException {
+        List<TestOutcome> notPassed = new ArrayList<>();
+        StringJoiner marks = new StringJoiner(", ");
+        for (TestOutcome outcome : batch) {
+            if (!outcome.passed()) {
+                notPassed.add(outcome);
+                marks.add("?");
+            }
+        }
+        Set<TestOutcome> opened = new LinkedHashSet<>();
+        if (notPassed.isEmpty()) {
+            return opened;
+        }
+        Set<String> open = new HashSet<>();
+        String sql = "SELECT DISTINCT testName FROM Defects WHERE resolutionStatus = 'Open' AND testName IN (" + marks + ")";
+        try (Connection conn = ConnectionPool.getConnection(database);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < notPassed.size(); i++) {
+                pstmt.setString(i + 1, notPassed.get(i).testCase.getTestName());
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    open.add(rs.getString(1));
+                }
+            }
+        }
+        for (TestOutcome outcome : notPassed) {
+            String previous = outcome.testCase.getResult();
+            boolean wasPassing = previous == null || TestOutcome.PASSED.equals(previous) || "Not Run".equals(previous);
+            // add() also stops two failing cases with one name from opening two defects in this batch
+            if (open.add(outcome.testCase.getTestName())) {
+                opened.add(outcome);
+            } else if (wasPassing) {
+                System.err.println("Test '" + outcome.testCase.getTestName() + "' failed again after passing; " +
+                                   "its Open defect is kept");
+            }
+        }
+        return opened;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String testType = null;
+        String target = null;
+        long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+        int concurrency = DEFAULT_CONCURRENCY;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--type": testType = args[++i]; break;
+                case "--target": target = args[++i]; break;
+                case "--timeout": timeoutMillis = Long.parseLong(args[++i]); break;
+                case "--concurrency": concurrency = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Usage: java TestRunner [--type T] [--target SPEC] [--timeout MS] [--concurrency N]");
+                    System.exit(2);
+            }
+        }
+        TestRunner runner = new TestRunner("TestingSystem", timeoutMillis, concurrency,
+                                           target == null ? null : parseTarget(target));
+        TestRunReport report = runner.run(testType);
+        System.out.println(report);
+        System.exit(0);
+    }
+}
@@ -1,14 +1,20 @@
 import javafx.application.Application;
+import javafx.collections.FXCollections;
 import javafx.scene.Scene;
 import javafx.scene.chart.PieChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
 
 class TestCase {
+    private int id;
     private String testName;
     private String testType;
     private String inputData;
@@ -16,8 +22,14 @@ class TestCase {
     private String actualOutput;
     private String result;
     private int defects;
+    private String target;
 
     public TestCase(String testName, String testType, String inputData, String expectedOutput, String actualOutput, String result, int defects) {
+        this(0, testName, testType, inputData, expectedOutput, actualOutput, result, defects, null);
+    }
+
+    public TestCase(int id, String testName, String testType, String inputData, String expectedOutput, String actualOutput, String result, int defects, String target) {
+        this.id = id;
         this.testName = testName;
         this.testType = testType;
         this.inputData = inputData;
@@ -25,6 +37,44 @@ class TestCase {
         this.actualOutput = actualOutput;
         this.result = result;
         this.defects = defects;
+        this.target = target;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTestName() {
+        return testName;
+    }
+
+    public String getTestType() {
+        return testType;
+    }
+
+    public String getInputData() {
+        return inputData;
+    }
+
+    public String getExpectedOutput() {
+        return expectedOutput;
+    }
+
+    public String getActualOutput() {
+        return actualOutput;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public int getDefects() {
+        return defects;
+    }
+
+    // What TestRunner executes this test against; null for a test whose output is entered by hand.
+    public String getTarget() {
+        return target;
     }
 
     @Override
@@ -35,7 +85,8 @@ class TestCase {
                ", Expected Output: " + expectedOutput +
                ", Actual Output: " + actualOutput +
                ", Result: " + result +
-               ", Defects Found: " + defects;
+               ", Defects Found: " + defects +
+               (target == null ? "" : ", Target: " + target);
     }
 }
 
@@ -52,6 +103,18 @@ class Defect {
         this.resolutionStatus = resolutionStatus;
     }
 
+    public String getTestName() {
+        return testName;
+    }
+
+    public int getSeverity() {
+        return severity;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
     @Override
     public String toString() {
         return "Test Name: " + testName +
@@ -63,9 +126,14 @@ class Defect {
 
 public class TestingSystemApp extends Application {
 
+    private final GroupedCountCache defectSeverityCounts = new GroupedCountCache("TestingSystem",
+            "SELECT CONCAT('Severity ', severity), COUNT(*) FROM Defects GROUP BY severity");
+    private final TestAnalytics testAnalytics = new TestAnalytics("TestingSystem");
+    private static final int FLAKY_TOP_N = Integer.getInteger("testing.flakyTopN", 20);
+
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/TestingSystem", "root", "password");
+            return ConnectionPool.getConnection("TestingSystem");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
@@ -73,16 +141,17 @@ public class TestingSystemApp extends Application {
     }
 
     private void addTestCaseToDatabase(TestCase testCase) {
-        String sql = "INSERT INTO TestCases (testName, testType, inputData, expectedOutput, actualOutput, result, defects) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO TestCases (testName, testType, inputData, expectedOutput, actualOutput, result, defects, target) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         try (Connection conn = connectDB();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, testCase.testName);
-            pstmt.setString(2, testCase.testType);
-            pstmt.setString(3, testCase.inputData);
-            pstmt.setString(4, testCase.expectedOutput);
-            pstmt.setString(5, testCase.actualOutput);
-            pstmt.setString(6, testCase.result);
-            pstmt.setInt(7, testCase.defects);
+            pstmt.setString(1, testCase.getTestName());
+            pstmt.setString(2, testCase.getTestType());
+            pstmt.setString(3, testCase.getInputData());
+            pstmt.setString(4, testCase.getExpectedOutput());
+            pstmt.setString(5, testCase.getActualOutput());
+            pstmt.setString(6, testCase.getResult());
+            pstmt.setInt(7, testCase.getDefects());
+            pstmt.setString(8, testCase.getTarget());
             pstmt.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -98,64 +167,36 @@ public class TestingSystemApp extends Application {
             pstmt.setString(3, defect.description);
             pstmt.setString(4, defect.resolutionStatus);
             pstmt.executeUpdate();
+            defectSeverityCounts.invalidate();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    private List<TestCase> getTestCasesFromDatabase() {
-        List<TestCase> testCases = new ArrayList<>();
-        String sql = "SELECT * FROM TestCases";
-        try (Connection conn = connectDB();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                TestCase testCase = new TestCase(
-                        rs.getString("testName"),
-                        rs.getString("testType"),
-                        rs.getString("inputData"),
-                        rs.getString("expectedOutput"),
-                        rs.getString("actualOutput"),
-                        rs.getString("result"),
-                        rs.getInt("defects")
-                );
-                testCases.add(testCase);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+    // Loads a tracker export of test cases or defects through BulkImport.
+    private BulkResult importCsv(BulkImport.Target target, Path file) throws IOException {
+        BulkResult result = BulkImport.importFile(target, file, BulkInserter.DEFAULT_BATCH_SIZE);
+        if (target == BulkImport.Target.TEST_DEFECTS) {
+            defectSeverityCounts.invalidate();
         }
-        return testCases;
+        return result;
     }
 
-    private List<Defect> getDefectsFromDatabase() {
-        List<Defect> defects = new ArrayList<>();
-        String sql = "SELECT * FROM Defects";
-        try (Connection conn = connectDB();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Defect defect = new Defect(
-                        rs.getString("testName"),
-                        rs.getInt("severity"),
-                        rs.getString("description"),
-                        rs.getString("resolutionStatus")
-                );
-                defects.add(defect);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+    private void importCsv(Stage stage, BulkImport.Target target, ListView<String> resultListView) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import " + (target == BulkImport.Target.TEST_CASES ? "Test Cases" : "Defects"));
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        File file = chooser.showOpenDialog(stage);
+        if (file == null) {
+            return;
         }
-        return defects;
+        DbExecutor.deliver(DbExecutor.supply("import" + target, () -> importCsv(target, file.toPath())),
+                result -> resultListView.setItems(FXCollections.observableArrayList(result.report())),
+                error -> resultListView.setItems(FXCollections.observableArrayList("Import failed: " + error.getMessage())));
     }
 
-    private void showDefectAnalysisChart(Stage primaryStage, List<Defect> defects) {
+    private void showDefectAnalysisChart(Stage primaryStage, Map<String, Integer> severityCount) {
         PieChart pieChart = new PieChart();
-        Map<String, Integer> severityCount = new HashMap<>();
-
-        for (Defect defect : defects) {
-            String severityLabel = "Severity " + defect.severity;
-            severityCount.put(severityLabel, severityCount.getOrDefault(severityLabel, 0) + 1);
-        }
 
         for (Map.Entry<String, Integer> entry : severityCount.entrySet()) {
             pieChart.getData().add(new PieChart.Data(entry.getKey(), entry.getValue()));
@@ -184,13 +225,20 @@ public class TestingSystemApp extends Application {
         actualField.setPromptText("Actual Output");
         TextField defectsField = new TextField();
         defectsField.setPromptText("Number of Defects");
+        TextField targetField = new TextField();
+        targetField.setPromptText("Target (command line or java:Class, optional)");
 
         Button addTestButton = new Button("Add Test Case");
         Button viewTestsButton = new Button("View Test Cases");
         Button viewDefectsButton = new Button("View Defects");
         Button showChartButton = new Button("Show Defect Analysis Chart");
+        Button runTestsButton = new Button("Run Test Cases");
+        Button flakyTestsButton = new Button("Show Flaky Tests and Trends");
+        Button importTestsButton = new Button("Import Test Cases (CSV)");
+        Button importDefectsButton = new Button("Import Defects (CSV)");
 
         ListView<String> resultListView = new ListView<>();
+        LazyPagedList.closeOnReplace(resultListView);
 
         addTestButton.setOnAction(e -> {
             String testName = testNameField.getText();
@@ -198,39 +246,98 @@ public class TestingSystemApp extends Application {
             String inputData = inputField.getText();
             String expectedOutput = expectedField.getText();
             String actualOutput = actualField.getText();
-            String result = expectedOutput.equals(actualOutput) ? "Passed" : "Failed";
+            String target = targetField.getText().trim();
+            // a test with a target gets its actual output and result from the next run
+            String result = !target.isEmpty() ? "Not Run" : expectedOutput.equals(actualOutput) ? "Passed" : "Failed";
             int defects = Integer.parseInt(defectsField.getText());
 
-            TestCase testCase = new TestCase(testName, testType, inputData, expectedOutput, actualOutput, result, defects);
-            addTestCaseToDatabase(testCase);
+            TestCase testCase = new TestCase(0, testName, testType, inputData, expectedOutput, actualOutput, result, defects,
+                                             target.isEmpty() ? null : target);
+            DbExecutor.run("addTestCase", () -> addTestCaseToDatabase(testCase));
             testNameField.clear();
             testTypeField.clear();
             inputField.clear();
             expectedField.clear();
             actualField.clear();
             defectsField.clear();
+            targetField.clear();
         });
 
         viewTestsButton.setOnAction(e -> {
-            resultListView.getItems().clear();
-            List<TestCase> testCases = getTestCasesFromDatabase();
+            resultListView.setItems(new LazyPagedList("TestingSystem", "TestCases", "id",
+                    "id, testName, testType, inputData, expectedOutput, actualOutput, result, defects, target",
+                    rs -> new TestCase(
+                            rs.getInt("id"),
+                            rs.getString("testName"),
+                            rs.getString("testType"),
+                            rs.getString("inputData"),
+                            rs.getString("expectedOutput"),
+                            rs.getString("actualOutput"),
+                            rs.getString("result"),
+                            rs.getInt("defects"),
+                            rs.getString("target")
+                    ).toString()).load());
         });
 
         viewDefectsButton.setOnAction(e -> {
-            resultListView.getItems().clear();
-            List<Defect> defects = getDefectsFromDatabase();
-            for (Defect defect : defects) {
-                resultListView.getItems().add(defect.toString());
-            }
+            resultListView.setItems(new LazyPagedList("TestingSystem", "Defects", "id",
+                    "testName, severity, description, resolutionStatus",
+                    rs -> new Defect(
+                            rs.getString("testName"),
+                            rs.getInt("severity"),
+                            rs.getString("description"),
+                            rs.getString("resolutionStatus")
+                    ).toString()).load());
         });
 
         showChartButton.setOnAction(e -> {
-            List<Defect> defects = getDefectsFromDatabase();
-            showDefectAnalysisChart(primaryStage, defects);
+            DbExecutor.deliver(DbExecutor.supplyLatest("defectChart", defectSeverityCounts::get),
+                    counts -> showDefectAnalysisChart(primaryStage, counts),
+                    error -> resultListView.setItems(FXCollections.observableArrayList("Defect chart failed: " + error.getMessage())));
         });
 
-        vbox.getChildren().addAll(testNameField, testTypeField, inputField, expectedField, actualField, defectsField,
-                                  addTestButton, viewTestsButton, viewDefectsButton, showChartButton, resultListView);
+        runTestsButton.setOnAction(e -> {
+            runTestsButton.setDisable(true);
+            DbExecutor.deliver(DbExecutor.supply("runTests", () -> new TestRunner("TestingSystem").run(null)),
+                    report -> {
+                        runTestsButton.setDisable(false);
+                        defectSeverityCounts.invalidate();
+                        resultListView.setItems(FXCollections.observableArrayList(report.toString()));
+                    },
+                    error -> {
+                        runTestsButton.setDisable(false);
+                        defectSeverityCounts.invalidate();
+                        resultListView.setItems(FXCollections.observableArrayList("Test run failed: " + error.getMessage()));
+                    });
+        });
+
+        flakyTestsButton.setOnAction(e -> {
+            DbExecutor.deliver(DbExecutor.supplyLatest("flakyTests", () -> {
+                testAnalytics.refresh();
+                List<String> lines = new ArrayList<>();
+                lines.add("Pass rate by test type:");
+                for (TypeTrend trend : testAnalytics.trends()) {
+                    lines.add(trend.toString());
+                }
+                lines.add("Top " + FLAKY_TOP_N + " flaky tests:");
+                for (TestStats test : testAnalytics.topFlaky(FLAKY_TOP_N)) {
+                    lines.add(test.toString());
+                }
+                lines.add("Longest current failure streaks:");
+                for (TestStats test : testAnalytics.longestFailing(FLAKY_TOP_N)) {
+                    lines.add(test.toString());
+                }
+                return lines;
+            }), lines -> resultListView.setItems(FXCollections.observableArrayList(lines)),
+                error -> resultListView.setItems(FXCollections.observableArrayList("Test analytics failed: " + error.getMessage())));
+        });
+
+        importTestsButton.setOnAction(e -> importCsv(primaryStage, BulkImport.Target.TEST_CASES, resultListView));
+        importDefectsButton.setOnAction(e -> importCsv(primaryStage, BulkImport.Target.TEST_DEFECTS, resultListView));
+
+        vbox.getChildren().addAll(testNameField, testTypeField, inputField, expectedField, actualField, defectsField, targetField,
+                                  addTestButton, viewTestsButton, viewDefectsButton, showChartButton, runTestsButton,
+                                  flakyTestsButton, importTestsButton, importDefectsButton, resultListView);
 
         Scene scene = new Scene(vbox, 400, 600);
         primaryStage.setTitle("Testing System");
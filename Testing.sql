@@ -9,10 +9,14 @@ CREATE TABLE TestCases (
     inputData TEXT,
     expectedOutput TEXT,
     actualOutput TEXT,
-    result VARCHAR(20), -- Passed/Failed
-    defects INT
+    result VARCHAR(20), -- Passed/Failed/Error/Timed Out/Not Run
+    defects INT,
+    target VARCHAR(255), -- what TestRunner executes: a command line or java:<class>; NULL if entered by hand
+    updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) -- polled by TraceabilityGraph.refresh()
 );
 
+CREATE INDEX idx_testcases_updated ON TestCases (updatedAt);
+
 CREATE TABLE Defects (
     id INT AUTO_INCREMENT PRIMARY KEY,
     testName VARCHAR(100),
@@ -20,3 +24,62 @@ CREATE TABLE Defects (
     description TEXT,
     resolutionStatus VARCHAR(20) -- Open/Resolved
 );
+
+-- Lets the severity chart be answered from the index with GROUP BY severity.
+CREATE INDEX idx_defects_severity ON Defects (severity);
+
+-- TestRunner looks up which failing tests still have an Open defect before logging new ones.
+CREATE INDEX idx_defects_test_status ON Defects (testName, resolutionStatus);
+
+-- One row per TestRunner run; finishedAt is set once all of the run's results are stored, and
+-- analyzed once TestAnalytics has taken them into TestStats.
+CREATE TABLE TestRuns (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    testType VARCHAR(50), -- NULL when the run covered every type
+    startedAt TIMESTAMP NULL,
+    finishedAt TIMESTAMP NULL,
+    passed INT DEFAULT 0,
+    failed INT DEFAULT 0,
+    errors INT DEFAULT 0,
+    timedOut INT DEFAULT 0,
+    analyzed BOOLEAN NOT NULL DEFAULT FALSE,
+    INDEX idx_testruns_pending (analyzed, finishedAt)
+);
+
+-- A run's results as column blocks ordered by test case id: varint id deltas from firstTestCaseId,
+-- one outcome byte per test (0 Passed, 1 Failed, 2 Error, 3 Timed Out), varint elapsed
+-- microseconds, and varint codes into the newline-separated typeDictionary.
+CREATE TABLE TestRunResults (
+    runId INT,
+    firstTestCaseId INT,
+    resultCount INT,
+    testCaseIds MEDIUMBLOB,
+    outcomes MEDIUMBLOB,
+    elapsedMicros MEDIUMBLOB,
+    typeCodes MEDIUMBLOB,
+    typeDictionary TEXT,
+    PRIMARY KEY (runId, firstTestCaseId)
+);
+
+CREATE TABLE TestRunTypeTotals (
+    runId INT,
+    testType VARCHAR(50),
+    passed INT,
+    total INT,
+    PRIMARY KEY (runId, testType)
+);
+
+-- TestAnalytics' running state per test, so it never has to replay the run history.
+CREATE TABLE TestStats (
+    testCaseId INT PRIMARY KEY,
+    testType VARCHAR(50),
+    runs INT,
+    passes INT,
+    flips INT,
+    lastOutcome TINYINT,
+    failureStreak INT,
+    longestFailureStreak INT,
+    decayedFlips DOUBLE,
+    decayedTransitions DOUBLE,
+    lastRunId INT
+);
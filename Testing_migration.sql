@@ -0,0 +1,67 @@
+-- Upgrades a TestingSystem database created by an older Testing.sql, which itself creates the
+-- current schema on a fresh server. Run once: mysql < Testing_migration.sql
+
+USE TestingSystem;
+
+-- Change feed polled by TraceabilityGraph.refresh().
+ALTER TABLE TestCases ADD COLUMN updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+CREATE INDEX idx_testcases_updated ON TestCases (updatedAt);
+
+-- What TestRunner executes for each test case, and the lookup it makes before logging defects.
+ALTER TABLE TestCases ADD COLUMN target VARCHAR(255);
+CREATE INDEX idx_defects_test_status ON Defects (testName, resolutionStatus);
+
+-- Lets the severity chart be answered from the index with GROUP BY severity.
+CREATE INDEX idx_defects_severity ON Defects (severity);
+
+-- Per-run test history and the analytics state built from it.
+CREATE TABLE IF NOT EXISTS TestRuns (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    testType VARCHAR(50), -- NULL when the run covered every type
+    startedAt TIMESTAMP NULL,
+    finishedAt TIMESTAMP NULL,
+    passed INT DEFAULT 0,
+    failed INT DEFAULT 0,
+    errors INT DEFAULT 0,
+    timedOut INT DEFAULT 0,
+    analyzed BOOLEAN NOT NULL DEFAULT FALSE,
+    INDEX idx_testruns_pending (analyzed, finishedAt)
+);
+
+-- A run's results as column blocks ordered by test case id: varint id deltas from firstTestCaseId,
+-- one outcome byte per test (0 Passed, 1 Failed, 2 Error, 3 Timed Out), varint elapsed
+-- microseconds, and varint codes into the newline-separated typeDictionary.
+CREATE TABLE IF NOT EXISTS TestRunResults (
+    runId INT,
+    firstTestCaseId INT,
+    resultCount INT,
+    testCaseIds MEDIUMBLOB,
+    outcomes MEDIUMBLOB,
+    elapsedMicros MEDIUMBLOB,
+    typeCodes MEDIUMBLOB,
+    typeDictionary TEXT,
+    PRIMARY KEY (runId, firstTestCaseId)
+);
+
+CREATE TABLE IF NOT EXISTS TestRunTypeTotals (
+    runId INT,
+    testType VARCHAR(50),
+    passed INT,
+    total INT,
+    PRIMARY KEY (runId, testType)
+);
+
+-- TestAnalytics' running state per test, so it never has to replay the run history.
+CREATE TABLE IF NOT EXISTS TestStats (
+    testCaseId INT PRIMARY KEY,
+    testType VARCHAR(50),
+    runs INT,
+    passes INT,
+    flips INT,
+    lastOutcome TINYINT,
+    failureStreak INT,
+    longestFailureStreak INT,
+    decayedFlips DOUBLE,
+    decayedTransitions DOUBLE,
+    lastRunId INT
+);
@@ -0,0 +1,447 @@
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// The kinds of artefact the traceability graph links, each with the prefix used to write a
+// reference to one: R12, U5, T34, or D:BUG-7 where the id is not a number.
+enum TraceKind {
+    REQUIREMENT("R"), USE_CASE("U"), TEST_CASE("T"), DEFECT("D");
+
+    final String prefix;
+
+    TraceKind(String prefix) {
+        this.prefix = prefix;
+    }
+
+    static TraceKind ofReference(String reference) {
+        for (TraceKind kind : values()) {
+            if (reference.length() > 1 && reference.substring(0, 1).equalsIgnoreCase(kind.prefix)) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("'" + reference + "' must start with R, U, T or D followed by an id");
+    }
+
+    static String idOfReference(String reference) {
+        ofReference(reference);
+        return reference.charAt(1) == ':' ? reference.substring(2) : reference.substring(1);
+    }
+
+    String reference(String id) {
+        return id.chars().allMatch(Character::isDigit) ? prefix + id : prefix + ":" + id;
+    }
+}
+
+// One row read from a change feed: an artefact with its label and state (a test result or defect
+// status) and, for defects, the severity; or a trace link that is now active or removed.
+class TraceChange {
+    enum Type { UPSERT, LINK, UNLINK }
+
+    final Type type;
+    final TraceKind kind;
+    final String id;
+    final String label;
+    final String state;
+    final int severity;
+    final TraceKind targetKind;
+    final String targetId;
+
+    private TraceChange(Type type, TraceKind kind, String id, String label, String state, int severity,
+                        TraceKind targetKind, String targetId) {
+        this.type = type;
+        this.kind = kind;
+        this.id = id;
+        this.label = label;
+        this.state = state;
+        this.severity = severity;
+        this.targetKind = targetKind;
+        this.targetId = targetId;
+    }
+
+    static TraceChange artefact(TraceKind kind, String id, String label, String state, int severity) {
+        return new TraceChange(Type.UPSERT, kind, id, label, state, severity, null, null);
+    }
+
+    static TraceChange link(boolean active, TraceKind kind, String id, TraceKind targetKind, String targetId) {
+        return new TraceChange(active ? Type.LINK : Type.UNLINK, kind, id, null, null, 0, targetKind, targetId);
+    }
+}
+
+class TraceItem {
+    final TraceKind kind;
+    final String id;
+    final String label;
+
+    TraceItem(TraceKind kind, String id, String label) {
+        this.kind = kind;
+        this.id = id;
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return kind.reference(id) + (label == null ? "" : ": " + label);
+    }
+}
+
+// Requirements, use cases, test cases and defects from their four databases, joined by the links in
+// RequirementsEngineering.TraceLinks, as one in-memory graph. Every artefact is a dense int node
+// with its kind, label and state in parallel arrays and its neighbours in an int array, so the
+// coverage questions are linear passes over the arrays rather than cross-database joins.
+//
+// The artefacts are written by separate apps in separate processes, so the graph polls instead of
+// listening: every table has an updatedAt column set by MySQL on insert and update, and refresh()
+// re-reads only rows changed since the newest updatedAt it has seen, less REFRESH_OVERLAP_MILLIS so
+// a transaction that committed late with an older timestamp is still picked up. Rows are applied
+// as upserts, so reading one twice is harmless. Links are never deleted, only marked inactive.
+public class TraceabilityGraph {
+
+    private static final String LINK_DATABASE = "RequirementsEngineering";
+    private static final int MAX_LABEL = 120;
+    static final long REFRESH_OVERLAP_MILLIS = Long.getLong("trace.refreshOverlapMillis", 5000);
+
+    // One polled table: the query without its WHERE clause, and the newest updatedAt read from it.
+    private static final class ChangeFeed {
+        final String database;
+        final String sql;
+        final RowMapper mapper;
+        Timestamp watermark;
+
+        ChangeFeed(String database, String sql, RowMapper mapper) {
+            this.database = database;
+            this.sql = sql;
+            this.mapper = mapper;
+        }
+    }
+
+    // The rows one poll read from a feed, and the watermark to move the feed to once they are applied.
+    private static final class Poll {
+        final List<TraceChange> changes = new ArrayList<>();
+        Timestamp newest;
+    }
+
+    @FunctionalInterface
+    private interface RowMapper {
+        TraceChange map(ResultSet rs) throws SQLException;
+    }
+
+    private final List<ChangeFeed> feeds = Arrays.asList(
+            new ChangeFeed("RequirementsEngineering", "SELECT id, description, updatedAt FROM Requirements",
+                    rs -> TraceChange.artefact(TraceKind.REQUIREMENT, rs.getString(1), rs.getString(2), null, 0)),
+            new ChangeFeed("AnalysisModeling", "SELECT id, useCaseName, updatedAt FROM UseCases",
+                    rs -> TraceChange.artefact(TraceKind.USE_CASE, rs.getString(1), rs.getString(2), null, 0)),
+            new ChangeFeed("TestingSystem", "SELECT id, testName, result, updatedAt FROM TestCases",
+                    rs -> TraceChange.artefact(TraceKind.TEST_CASE, rs.getString(1), rs.getString(2), rs.getString(3), 0)),
+            new ChangeFeed("QualityManagement", "SELECT id, description, status, severity, updatedAt FROM Defects",
+                    rs -> TraceChange.artefact(TraceKind.DEFECT, rs.getString(1), rs.getString(2), rs.getString(3),
+                                               rs.getInt(4))),
+            new ChangeFeed(LINK_DATABASE, "SELECT fromKind, fromId, toKind, toId, active, updatedAt FROM TraceLinks",
+                    rs -> TraceChange.link(rs.getBoolean(5), TraceKind.valueOf(rs.getString(1)), rs.getString(2),
+                                           TraceKind.valueOf(rs.getString(3)), rs.getString(4))));
+    private final Object refreshLock = new Object();
+
+    private final Map<String, Integer> nodeByKey = new HashMap<>();
+    private TraceKind[] kinds = new TraceKind[1024];
+    private String[] ids = new String[1024];
+    private String[] labels = new String[1024];
+    private String[] states = new String[1024];
+    private int[] severities = new int[1024];
+    private boolean[] present = new boolean[1024]; // false for ids only known from a link
+    private int[][] adjacency = new int[1024][];
+    private int[] degrees = new int[1024];
+    private int nodeCount;
+    private int linkCount;
+
+    // Reads the rows changed in the five tables since the last refresh, in parallel, and applies
+    // them; the first call loads everything. Returns the number of rows read. No watermark moves
+    // unless every feed was read and applied, so after a failure the next call reads them all again.
+    public int refresh() throws SQLException {
+        synchronized (refreshLock) {
+            List<Callable<Poll>> queries = new ArrayList<>();
+            for (ChangeFeed feed : feeds) {
+                queries.add(() -> poll(feed));
+            }
+            List<Poll> polls = new ArrayList<>();
+            try {
+                for (Future<Poll> result : ForkJoinPool.commonPool().invokeAll(queries)) {
+                    polls.add(result.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Refreshing the traceability graph was interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+            int rows = 0;
+            // artefacts before links, so a link read in the same pass finds its ends labelled
+            synchronized (this) {
+                for (Poll poll : polls) {
+                    for (TraceChange change : poll.changes) {
+                        apply(change);
+                    }
+                    rows += poll.changes.size();
+                }
+            }
+            for (int i = 0; i < feeds.size(); i++) {
+                feeds.get(i).watermark = polls.get(i).newest;
+            }
+            return rows;
+        }
+    }
+
+    // Reads the feed from its current watermark without moving it; refresh() does that.
+    private static Poll poll(ChangeFeed feed) throws SQLException {
+        Timestamp since = feed.watermark == null ? null : new Timestamp(feed.watermark.getTime() - REFRESH_OVERLAP_MILLIS);
+        String sql = feed.sql + (since == null ? "" : " WHERE updatedAt >= ?");
+        Poll poll = new Poll();
+        poll.newest = feed.watermark;
+        try (Connection conn = ConnectionPool.getConnection(feed.database);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(ConnectionPool.FETCH_SIZE);
+            if (since != null) {
+                pstmt.setTimestamp(1, since);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    poll.changes.add(feed.mapper.map(rs));
+                    Timestamp updatedAt = rs.getTimestamp("updatedAt");
+                    if (updatedAt != null && (poll.newest == null || updatedAt.after(poll.newest))) {
+                        poll.newest = updatedAt;
+                    }
+                }
+            }
+        }
+        return poll;
+    }
+
+    // Records a link in TraceLinks; linking twice is harmless and re-activates a removed link.
+    public static void addLink(TraceKind kind, String id, TraceKind targetKind, String targetId) throws SQLException {
+        String sql = "INSERT INTO TraceLinks (fromKind, fromId, toKind, toId, active) VALUES (?, ?, ?, ?, TRUE) " +
+                     "ON DUPLICATE KEY UPDATE active = TRUE";
+        try (Connection conn = ConnectionPool.getConnection(LINK_DATABASE);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, kind.name());
+            pstmt.setString(2, id);
+            pstmt.setString(3, targetKind.name());
+            pstmt.setString(4, targetId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Marks the link inactive in either direction rather than deleting it, so the change reaches
+    // every graph through the feed. Returns false if there was no active link.
+    public static boolean removeLink(TraceKind kind, String id, TraceKind targetKind, String targetId) throws SQLException {
+        String sql = "UPDATE TraceLinks SET active = FALSE WHERE active = TRUE AND " +
+                     "((fromKind = ? AND fromId = ? AND toKind = ? AND toId = ?) " +
+                     "OR (fromKind = ? AND fromId = ? AND toKind = ? AND toId = ?))";
+        try (Connection conn = ConnectionPool.getConnection(LINK_DATABASE);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, kind.name());
+            pstmt.setString(2, id);
+            pstmt.setString(3, targetKind.name());
+            pstmt.setString(4, targetId);
+            pstmt.setString(5, targetKind.name());
+            pstmt.setString(6, targetId);
+            pstmt.setString(7, kind.name());
+            pstmt.setString(8, id);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    private void apply(TraceChange change) {
+        switch (change.type) {
+            case UPSERT: {
+                int node = node(change.kind, change.id);
+                labels[node] = change.label == null || change.label.length() <= MAX_LABEL
+                        ? change.label : change.label.substring(0, MAX_LABEL) + "...";
+                states[node] = change.state;
+                severities[node] = change.severity;
+                present[node] = true;
+                break;
+            }
+            case LINK:
+                connect(node(change.kind, change.id), node(change.targetKind, change.targetId));
+                break;
+            case UNLINK: {
+                Integer from = nodeByKey.get(change.kind.prefix + change.id);
+                Integer to = nodeByKey.get(change.targetKind.prefix + change.targetId);
+                if (from != null && to != null && disconnect(from, to)) {
+                    disconnect(to, from);
+                    linkCount--;
+                }
+                break;
+            }
+        }
+    }
+
+    private int node(TraceKind kind, String id) {
+        String key = kind.prefix + id;
+        Integer existing = nodeByKey.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (nodeCount == kinds.length) {
+            int capacity = nodeCount * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            states = Arrays.copyOf(states, capacity);
+            severities = Arrays.copyOf(severities, capacity);
+            present = Arrays.copyOf(present, capacity);
+            adjacency = Arrays.copyOf(adjacency, capacity);
+            degrees = Arrays.copyOf(degrees, capacity);
+        }
+        int node = nodeCount++;
+        kinds[node] = kind;
+        ids[node] = id;
+        nodeByKey.put(key, node);
+        return node;
+    }
+
+    private void connect(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        for (int i = 0; i < degrees[a]; i++) {
+            if (adjacency[a][i] == b) {
+                return;
+            }
+        }
+        append(a, b);
+        append(b, a);
+        linkCount++;
+    }
+
+    private void append(int node, int neighbour) {
+        int[] list = adjacency[node];
+        if (list == null) {
+            list = adjacency[node] = new int[2];
+        } else if (degrees[node] == list.length) {
+            list = adjacency[node] = Arrays.copyOf(list, list.length * 2);
+        }
+        list[degrees[node]++] = neighbour;
+    }
+
+    private boolean disconnect(int node, int neighbour) {
+        int[] list = adjacency[node];
+        for (int i = 0; i < degrees[node]; i++) {
+            if (list[i] == neighbour) {
+                list[i] = list[--degrees[node]];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return nodeCount;
+    }
+
+    public synchronized int links() {
+        return linkCount;
+    }
+
+    // Requirements with no passing test linked to them directly or through one of their use cases.
+    public synchronized List<TraceItem> requirementsWithoutPassingTest() {
+        boolean[] covered = new boolean[nodeCount];
+        for (int test = 0; test < nodeCount; test++) {
+            if (kinds[test] != TraceKind.TEST_CASE || !present[test] || !"Passed".equalsIgnoreCase(states[test])) {
+                continue;
+            }
+            for (int i = 0; i < degrees[test]; i++) {
+                int neighbour = adjacency[test][i];
+                if (kinds[neighbour] == TraceKind.REQUIREMENT) {
+                    covered[neighbour] = true;
+                } else if (kinds[neighbour] == TraceKind.USE_CASE && present[neighbour]) {
+                    for (int j = 0; j < degrees[neighbour]; j++) {
+                        int requirement = adjacency[neighbour][j];
+                        if (kinds[requirement] == TraceKind.REQUIREMENT) {
+                            covered[requirement] = true;
+                        }
+                    }
+                }
+            }
+        }
+        List<TraceItem> untested = new ArrayList<>();
+        for (int node = 0; node < nodeCount; node++) {
+            if (kinds[node] == TraceKind.REQUIREMENT && present[node] && !covered[node]) {
+                untested.add(item(node));
+            }
+        }
+        return untested;
+    }
+
+    // Requirements reachable from an open defect of at least minSeverity, directly or through the
+    // test cases and use cases it is linked to (at most three hops, never through another
+    // requirement or defect).
+    public synchronized List<TraceItem> requirementsAffectedByOpenDefects(int minSeverity) {
+        int[] visited = new int[nodeCount]; // defect node + 1 that last reached the node
+        boolean[] affected = new boolean[nodeCount];
+        int[] frontier = new int[16];
+        int[] next = new int[16];
+        for (int defect = 0; defect < nodeCount; defect++) {
+            if (kinds[defect] != TraceKind.DEFECT || !present[defect] || severities[defect] < minSeverity
+                || QualityRollup.isRemoved(states[defect])) {
+                continue;
+            }
+            int stamp = defect + 1;
+            visited[defect] = stamp;
+            frontier[0] = defect;
+            int frontierSize = 1;
+            for (int hop = 0; hop < 3 && frontierSize > 0; hop++) {
+                int nextSize = 0;
+                for (int f = 0; f < frontierSize; f++) {
+                    int node = frontier[f];
+                    for (int i = 0; i < degrees[node]; i++) {
+                        int neighbour = adjacency[node][i];
+                        if (visited[neighbour] == stamp) {
+                            continue;
+                        }
+                        visited[neighbour] = stamp;
+                        if (kinds[neighbour] == TraceKind.REQUIREMENT) {
+                            affected[neighbour] = true;
+                        } else if (kinds[neighbour] != TraceKind.DEFECT && present[neighbour]) {
+                            if (nextSize == next.length) {
+                                next = Arrays.copyOf(next, nextSize * 2);
+                            }
+                            next[nextSize++] = neighbour;
+                        }
+                    }
+                }
+                int[] swap = frontier;
+                frontier = next;
+                next = swap;
+                frontierSize = nextSize;
+            }
+        }
+        List<TraceItem> result = new ArrayList<>();
+        for (int node = 0; node < nodeCount; node++) {
+            if (affected[node] && present[node]) {
+                result.add(item(node));
+            }
+        }
+        return result;
+    }
+
+    // Everything linked to the given artefact.
+    public synchronized List<TraceItem> linksOf(TraceKind kind, String id) {
+        Integer node = nodeByKey.get(kind.prefix + id);
+        List<TraceItem> items = new ArrayList<>();
+        if (node != null) {
+            for (int i = 0; i < degrees[node]; i++) {
+                items.add(item(adjacency[node][i]));
+            }
+        }
+        return items;
+    }
+
+    private TraceItem item(int node) {
+        return new TraceItem(kinds[node], ids[node], labels[node]);
+    }
+}
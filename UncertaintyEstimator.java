@@ -0,0 +1,314 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Fixed-range histogram filled one value at a time, so a simulation keeps only bin counts and
+// running moments however many samples it draws. Partial histograms over the same range merge.
+class StreamingHistogram {
+    final double min;
+    final double max;
+    final long[] counts;
+    private final double scale;
+    private long total;
+    private double mean;
+    private double m2; // sum of squared deviations from the mean (Welford)
+
+    StreamingHistogram(double min, double max, int bins) {
+        this.min = min;
+        this.max = max;
+        this.counts = new long[bins];
+        this.scale = max > min ? bins / (max - min) : 0;
+    }
+
+    void add(double value) {
+        int bin = (int) ((value - min) * scale);
+        counts[Math.max(0, Math.min(counts.length - 1, bin))]++;
+        total++;
+        double delta = value - mean;
+        mean += delta / total;
+        m2 += delta * (value - mean);
+    }
+
+    // Chan et al. pairwise combination of the moments.
+    void merge(StreamingHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        long combined = total + other.total;
+        if (combined == 0) {
+            return;
+        }
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * total * other.total / combined;
+        mean += delta * other.total / combined;
+        total = combined;
+    }
+
+    long total() {
+        return total;
+    }
+
+    double mean() {
+        return mean;
+    }
+
+    double standardDeviation() {
+        return total > 1 ? Math.sqrt(m2 / (total - 1)) : 0;
+    }
+
+    double binWidth() {
+        return (max - min) / counts.length;
+    }
+
+    // Value below which a fraction q of the samples fall, interpolated linearly inside the bin.
+    double quantile(double q) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        if (!(max > min)) {
+            return min;
+        }
+        double target = q * total;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && seen + counts[i] >= target) {
+                double within = (target - seen) / counts[i];
+                return min + (i + within) * binWidth();
+            }
+            seen += counts[i];
+        }
+        return max;
+    }
+
+    // Coarser view for charting: every output bin sums counts.length / bins input bins.
+    long[] rebin(int bins) {
+        long[] out = new long[bins];
+        for (int i = 0; i < counts.length; i++) {
+            out[(int) ((long) i * bins / counts.length)] += counts[i];
+        }
+        return out;
+    }
+}
+
+// Summary of a three-point simulation. Effort is monotonic in size for every model, and cost and
+// duration are monotonic in effort, so the q-quantile of each is read off the effort quantile.
+class UncertaintyResult {
+    static final double[] QUANTILES = {0.05, 0.10, 0.25, 0.50, 0.75, 0.80, 0.90, 0.95};
+
+    final String modelName;
+    final String distribution;
+    final StreamingHistogram effort;
+    final Estimation[] atQuantile;
+    final long elapsedNanos;
+
+    UncertaintyResult(String modelName, String distribution, StreamingHistogram effort, Estimation[] atQuantile,
+                      long elapsedNanos) {
+        this.modelName = modelName;
+        this.distribution = distribution;
+        this.effort = effort;
+        this.atQuantile = atQuantile;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    Estimation quantile(double q) {
+        for (int i = 0; i < QUANTILES.length; i++) {
+            if (QUANTILES[i] == q) {
+                return atQuantile[i];
+            }
+        }
+        throw new IllegalArgumentException("Quantile " + q + " was not computed");
+    }
+
+    List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        lines.add(distribution + " simulation of " + modelName + ": " + effort.total() + " samples in " +
+                  String.format("%.0f", elapsedNanos / 1e6) + " ms, effort mean " +
+                  String.format("%.2f", effort.mean()) + " +/- " + String.format("%.2f", effort.standardDeviation()) +
+                  " person-months");
+        lines.add(band(0.10, 0.90));
+        lines.add(band(0.05, 0.95));
+        for (int i = 0; i < QUANTILES.length; i++) {
+            Estimation e = atQuantile[i];
+            lines.add("P" + Math.round(QUANTILES[i] * 100) +
+                      ": Effort " + String.format("%.2f", e.getEffort()) + " person-months" +
+                      ", Cost $" + String.format("%.0f", e.getCost()) +
+                      ", Duration " + String.format("%.2f", e.getDuration()) + " months");
+        }
+        return lines;
+    }
+
+    private String band(double low, double high) {
+        Estimation lo = quantile(low);
+        Estimation hi = quantile(high);
+        return Math.round((high - low) * 100) + "% band: effort " +
+               String.format("%.2f", lo.getEffort()) + " - " + String.format("%.2f", hi.getEffort()) +
+               " person-months, cost $" + String.format("%.0f", lo.getCost()) + " - $" +
+               String.format("%.0f", hi.getCost());
+    }
+}
+
+// Three-point (optimistic, most likely, pessimistic) size estimates run through an estimation
+// model by Monte Carlo. Sizes are drawn from a PERT (scaled Beta) or triangular distribution on
+// all cores, each fork-join leaf with its own SplittableRandom split off the seed, and every
+// effort lands in a per-leaf StreamingHistogram; the raw samples are never stored.
+public class UncertaintyEstimator {
+
+    public enum Distribution {
+        PERT, TRIANGULAR;
+
+        @Override
+        public String toString() {
+            return this == PERT ? "PERT" : "Triangular";
+        }
+    }
+
+    static final int BINS = 4096;
+    private static final int SAMPLES_PER_TASK = 1 << 18;
+
+    public static long defaultSamples() {
+        return Long.getLong("estimation.samples", 5_000_000L);
+    }
+
+    public static UncertaintyResult simulate(EstimationModel model, Calibration calibration, CostDrivers drivers,
+                                             double optimistic, double mostLikely, double pessimistic,
+                                             Distribution distribution, long samples, long seed) {
+        if (!(optimistic >= 0 && optimistic <= mostLikely && mostLikely <= pessimistic)) {
+            throw new IllegalArgumentException("Sizes must satisfy 0 <= optimistic <= most likely <= pessimistic");
+        }
+        if (samples <= 0) {
+            throw new IllegalArgumentException("Sample count must be positive");
+        }
+        long start = System.nanoTime();
+        // The size driver is linear in size (or ignores it), so sampling between the driver values
+        // at the three points is the same as sampling size and converting every draw.
+        double low = model.sizeDriver(optimistic, drivers);
+        double mode = model.sizeDriver(mostLikely, drivers);
+        double high = model.sizeDriver(pessimistic, drivers);
+        EffortFunction effort = new EffortFunction(calibration.coefficient,
+                calibration.exponent + model.exponentAdjustment(drivers), model.effortMultiplier(drivers));
+
+        StreamingHistogram histogram = ForkJoinPool.commonPool().invoke(new Simulation(
+                new SizeSampler(distribution, low, mode, high), effort,
+                effort.apply(low), effort.apply(high), samples, new SplittableRandom(seed)));
+
+        double rate = model.costPerPersonMonth(drivers);
+        Estimation[] atQuantile = new Estimation[UncertaintyResult.QUANTILES.length];
+        for (int i = 0; i < atQuantile.length; i++) {
+            double e = histogram.quantile(UncertaintyResult.QUANTILES[i]);
+            atQuantile[i] = new Estimation(model.name(), mostLikely, e, e * rate, model.duration(e, drivers, calibration));
+        }
+        return new UncertaintyResult(model.name(), distribution.toString(), histogram, atQuantile,
+                                     System.nanoTime() - start);
+    }
+
+    // effort = a * x^exponent * multiplier with the drivers already folded in.
+    static final class EffortFunction {
+        final double scale;
+        final double exponent;
+
+        EffortFunction(double coefficient, double exponent, double multiplier) {
+            this.scale = coefficient * multiplier;
+            this.exponent = exponent;
+        }
+
+        double apply(double x) {
+            return scale * BatchEstimator.fastPow(x, exponent);
+        }
+    }
+
+    static final class SizeSampler {
+        private final Distribution distribution;
+        private final double low;
+        private final double mode;
+        private final double high;
+        private final double alpha;
+        private final double beta;
+        private final double modeFraction;
+
+        SizeSampler(Distribution distribution, double low, double mode, double high) {
+            this.distribution = distribution;
+            this.low = low;
+            this.mode = mode;
+            this.high = high;
+            double range = high - low;
+            // PERT shape parameters for lambda = 4, giving mean (low + 4 * mode + high) / 6
+            this.alpha = range > 0 ? 1 + 4 * (mode - low) / range : 1;
+            this.beta = range > 0 ? 1 + 4 * (high - mode) / range : 1;
+            this.modeFraction = range > 0 ? (mode - low) / range : 0;
+        }
+
+        double next(SplittableRandom random) {
+            double range = high - low;
+            if (!(range > 0)) {
+                return mode;
+            }
+            if (distribution == Distribution.TRIANGULAR) {
+                double u = random.nextDouble();
+                return u < modeFraction
+                        ? low + Math.sqrt(u * range * (mode - low))
+                        : high - Math.sqrt((1 - u) * range * (high - mode));
+            }
+            double x = gamma(random, alpha);
+            double y = gamma(random, beta);
+            return low + range * x / (x + y);
+        }
+
+        // Marsaglia and Tsang's squeeze method; both PERT shapes are at least 1.
+        private static double gamma(SplittableRandom random, double shape) {
+            double d = shape - 1.0 / 3;
+            double c = 1 / Math.sqrt(9 * d);
+            while (true) {
+                double z = random.nextGaussian();
+                double v = 1 + c * z;
+                if (v <= 0) {
+                    continue;
+                }
+                v = v * v * v;
+                double u = random.nextDouble();
+                double z2 = z * z;
+                if (u < 1 - 0.0331 * z2 * z2 || Math.log(u) < 0.5 * z2 + d * (1 - v + Math.log(v))) {
+                    return d * v;
+                }
+            }
+        }
+    }
+
+    // Splits the sample count in halves down to SAMPLES_PER_TASK. The right half keeps the parent's
+    // generator and the left half gets a split of it, so results depend only on seed and count.
+    private static final class Simulation extends RecursiveTask<StreamingHistogram> {
+        private final SizeSampler sampler;
+        private final EffortFunction effort;
+        private final double min;
+        private final double max;
+        private final long samples;
+        private final SplittableRandom random;
+
+        Simulation(SizeSampler sampler, EffortFunction effort, double min, double max, long samples,
+                   SplittableRandom random) {
+            this.sampler = sampler;
+            this.effort = effort;
+            this.min = min;
+            this.max = max;
+            this.samples = samples;
+            this.random = random;
+        }
+
+        @Override
+        protected StreamingHistogram compute() {
+            if (samples <= SAMPLES_PER_TASK) {
+                StreamingHistogram histogram = new StreamingHistogram(min, max, BINS);
+                for (long i = 0; i < samples; i++) {
+                    histogram.add(effort.apply(sampler.next(random)));
+                }
+                return histogram;
+            }
+            long half = samples / 2;
+            Simulation left = new Simulation(sampler, effort, min, max, half, random.split());
+            Simulation right = new Simulation(sampler, effort, min, max, samples - half, random);
+            left.fork();
+            StreamingHistogram histogram = right.compute();
+            histogram.merge(left.join());
+            return histogram;
+        }
+    }
+}
@@ -18,6 +18,18 @@ class UseCase {
         this.scenarioDescription = scenarioDescription;
     }
 
+    public String getActor() {
+        return actor;
+    }
+
+    public String getUseCaseName() {
+        return useCaseName;
+    }
+
+    public String getScenarioDescription() {
+        return scenarioDescription;
+    }
+
     @Override
     public String toString() {
         return "Actor: " + actor + ", Use Case: " + useCaseName + ", Scenario: " + scenarioDescription;
@@ -79,7 +91,7 @@ public class AnalysisModelingApp extends Application {
 
     private Connection connectDB() {
         try {
-            return DriverManager.getConnection("jdbc:mysql://localhost:3306/AnalysisModeling", "root", "password");
+            return ConnectionPool.getConnection("AnalysisModeling");
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
@@ -90,9 +102,9 @@ public class AnalysisModelingApp extends Application {
         String sql = "INSERT INTO UseCases (actor, useCaseName, scenarioDescription) VALUES (?, ?, ?)";
         try (Connection conn = connectDB();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, useCase.actor);
-            pstmt.setString(2, useCase.useCaseName);
-            pstmt.setString(3, useCase.scenarioDescription);
+            pstmt.setString(1, useCase.getActor());
+            pstmt.setString(2, useCase.getUseCaseName());
+            pstmt.setString(3, useCase.getScenarioDescription());
             pstmt.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -138,22 +150,6 @@ public class AnalysisModelingApp extends Application {
         }
     }
 
-    private List<String> getAllUseCasesFromDatabase() {
-        List<String> useCases = new ArrayList<>();
-        String sql = "SELECT * FROM UseCases";
-        try (Connection conn = connectDB();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                useCases.add("Actor: " + rs.getString("actor") + ", Use Case: " + rs.getString("useCaseName") +
-                             ", Scenario: " + rs.getString("scenarioDescription"));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return useCases;
-    }
-
     private List<String> getAllClassesFromDatabase() {
         List<String> classes = new ArrayList<>();
         String sql = "SELECT * FROM Classes";
@@ -185,6 +181,7 @@ public class AnalysisModelingApp extends Application {
         Button viewUseCasesButton = new Button("View Use Cases");
 
         ListView<String> resultListView = new ListView<>();
+        LazyPagedList.closeOnReplace(resultListView);
 
         addUseCaseButton.setOnAction(e -> {
             String actor = actorField.getText();
@@ -192,7 +189,7 @@ public class AnalysisModelingApp extends Application {
             String scenarioDescription = scenarioDescriptionField.getText();
 
             UseCase useCase = new UseCase(actor, useCaseName, scenarioDescription);
-            addUseCaseToDatabase(useCase);
+            DbExecutor.run("addUseCase", () -> addUseCaseToDatabase(useCase));
 
             actorField.clear();
             useCaseNameField.clear();
@@ -200,8 +197,13 @@ public class AnalysisModelingApp extends Application {
         });
 
         viewUseCasesButton.setOnAction(e -> {
-            resultListView.getItems().clear();
-            resultListView.getItems().addAll(getAllUseCasesFromDatabase());
+            resultListView.setItems(new LazyPagedList("AnalysisModeling", "UseCases", "id",
+                    "actor, useCaseName, scenarioDescription",
+                    rs -> new UseCase(
+                            rs.getString("actor"),
+                            rs.getString("useCaseName"),
+                            rs.getString("scenarioDescription")
+                    ).toString()).load());
         });
 
         vbox.getChildren().addAll(actorField, useCaseNameField, scenarioDescriptionField, addUseCaseButton,
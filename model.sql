@@ -6,9 +6,12 @@ CREATE TABLE UseCases (
     id INT AUTO_INCREMENT PRIMARY KEY,
     actor VARCHAR(100),
     useCaseName VARCHAR(100),
-    scenarioDescription TEXT
+    scenarioDescription TEXT,
+    updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) -- polled by TraceabilityGraph.refresh()
 );
 
+CREATE INDEX idx_usecases_updated ON UseCases (updatedAt);
+
 CREATE TABLE Processes (
     id INT AUTO_INCREMENT PRIMARY KEY,
     processName VARCHAR(100),
@@ -0,0 +1,8 @@
+-- Upgrades a AnalysisModeling database created by an older model.sql, which itself creates the
+-- current schema on a fresh server. Run once: mysql < model_migration.sql
+
+USE AnalysisModeling;
+
+-- Change feed polled by TraceabilityGraph.refresh().
+ALTER TABLE UseCases ADD COLUMN updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+CREATE INDEX idx_usecases_updated ON UseCases (updatedAt);